@@ -0,0 +1,248 @@
+package eDoe;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+/**
+ * Arquivos em que o estado do sistema e guardado: um arquivo base com o estado completo e arquivos parciais(deltas),
+ *   gravados pelos checkpoints, cada um com apenas as mudancas feitas desde o checkpoint anterior. Todos usam o formato
+ *   de EstadoDoSistema, e cada um guarda a geracao do diario de operacoes ate a qual ele vai. O estado do sistema e
+ *   a base com os deltas de geracao maior que a dela aplicados em ordem de geracao; deltas de geracao menor ou igual a
+ *   da base ja estao nela e sao ignorados, de forma que uma queda entre gravar uma base e apagar os deltas antigos
+ *   nunca aplica um delta duas vezes.
+ * <p>
+ * Quando os deltas se acumulam, uma tarefa em segundo plano os compacta: le a base e os deltas, grava a base
+ *   resultante em um arquivo temporario e so entao, caso nenhuma base nova tenha sido gravada no meio tempo, troca a
+ *   base e apaga os deltas compactados. A leitura e a gravacao da base compactada nao bloqueiam os checkpoints.
+ * <p>
+ * Os diarios de operacoes tambem ficam aqui, um arquivo por geracao("diario"."geracao"): o diario de uma geracao so
+ *   e apagado depois que um delta ou uma base dessa geracao for gravado.
+ */
+public class ArquivosDoSistema {
+	/**
+	 * Quantidade de deltas a partir da qual um checkpoint pede a compactacao
+	 */
+	public static final int DELTAS_ANTES_DA_COMPACTACAO = 8;
+	/**
+	 * Sufixo dos arquivos de delta, que se chamam "base"."geracao".delta
+	 */
+	private static final String SUFIXO_DOS_DELTAS = ".delta";
+	/**
+	 * Arquivo base
+	 */
+	private final File base;
+	/**
+	 * Caminho dos diarios de operacoes, sem a geracao
+	 */
+	private final File diario;
+	/**
+	 * Executor da compactacao em segundo plano
+	 */
+	private final ExecutorService compactador;
+	/**
+	 * Quantidade de bases gravadas, usada pela compactacao para perceber que uma base nova foi gravada no meio tempo
+	 */
+	private long basesGravadas;
+	/**
+	 * Indica se ja ha uma compactacao pedida e ainda nao terminada
+	 */
+	private boolean compactando;
+	/**
+	 * Construtor que constroi os arquivos a partir do caminho do arquivo base, cujo diretorio guarda tambem os deltas,
+	 * e do caminho dos diarios de operacoes
+	 * @param caminhoDaBase caminho do arquivo base
+	 * @param caminhoDosDiarios caminho dos diarios de operacoes, ao qual e acrescentada a geracao de cada um
+	 */
+	public ArquivosDoSistema(String caminhoDaBase, String caminhoDosDiarios) {
+		this.base = new File(caminhoDaBase);
+		this.diario = new File(caminhoDosDiarios);
+		this.compactador = Executors.newSingleThreadExecutor(tarefa -> {
+			Thread thread = new Thread(tarefa, "compactador-do-sistema");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+	/**
+	 * Informa se o arquivo base existe
+	 * @return true caso o arquivo base exista
+	 */
+	public boolean existeBase() {
+		return this.base.exists();
+	}
+	/**
+	 * Le o estado do sistema: a base com os deltas de geracao maior que a dela aplicados
+	 * @return o estado lido
+	 * @throws IOException caso algum arquivo nao possa ser lido ou seja invalido
+	 */
+	public EstadoDoSistema le() throws IOException {
+		return le(deltas());
+	}
+	/**
+	 * Grava um estado completo como a nova base e apaga os deltas que ja estao nele
+	 * @param estado estado completo do sistema
+	 * @throws IOException caso a base nao possa ser gravada
+	 */
+	public synchronized void gravaBase(EstadoDoSistema estado) throws IOException {
+		estado.grava(this.base.getPath());
+		this.basesGravadas += 1;
+		for (File delta : deltas()) {
+			if (geracao(delta) <= estado.getGeracaoDoDiario()) {
+				Files.deleteIfExists(delta.toPath());
+			}
+		}
+	}
+	/**
+	 * Grava um estado parcial como um novo delta, pedindo a compactacao em segundo plano caso os deltas tenham se
+	 * acumulado
+	 * @param parcial estado parcial com as mudancas desde o delta anterior(ou desde a base)
+	 * @throws IOException caso o delta nao possa ser gravado
+	 */
+	public synchronized void gravaDelta(EstadoDoSistema parcial) throws IOException {
+		parcial.grava(this.base.getPath() + "." + parcial.getGeracaoDoDiario() + SUFIXO_DOS_DELTAS);
+
+		if (!this.compactando && deltas().size() >= DELTAS_ANTES_DA_COMPACTACAO) {
+			this.compactando = true;
+			this.compactador.submit(() -> {
+				try {
+					compacta();
+				} finally {
+					synchronized (this) {
+						this.compactando = false;
+					}
+				}
+				return null;
+			});
+		}
+	}
+	/**
+	 * Apaga todos os deltas, usado antes de gravar uma base que nao descende deles
+	 * @throws IOException caso algum delta nao possa ser apagado
+	 */
+	public synchronized void apagaDeltas() throws IOException {
+		for (File delta : deltas()) {
+			Files.deleteIfExists(delta.toPath());
+		}
+	}
+	/**
+	 * Retorna o caminho do diario de operacoes de uma geracao
+	 * @param geracao geracao do diario
+	 * @return o caminho do diario
+	 */
+	public String caminhoDoDiario(long geracao) {
+		return this.diario.getPath() + "." + geracao;
+	}
+	/**
+	 * Retorna as geracoes dos diarios de operacoes existentes, em ordem crescente
+	 * @return as geracoes dos diarios
+	 */
+	public List<Long> geracoesDosDiarios() {
+		String prefixo = this.diario.getName() + ".";
+		String[] nomes = this.diario.getAbsoluteFile().getParentFile().list((pasta, nome) -> nome.startsWith(prefixo));
+
+		List<Long> geracoes = new ArrayList<Long>();
+		if (nomes != null) {
+			for (String nome : nomes) {
+				try {
+					geracoes.add(Long.parseLong(nome.substring(prefixo.length())));
+				} catch (NumberFormatException e) {
+					continue;
+				}
+			}
+		}
+		Collections.sort(geracoes);
+		return geracoes;
+	}
+	/**
+	 * Apaga os diarios de operacoes ate uma geracao, inclusive, cujas operacoes ja estao na base ou em um delta
+	 * @param geracao maior geracao a ser apagada
+	 * @throws IOException caso algum diario nao possa ser apagado
+	 */
+	public void apagaDiariosAte(long geracao) throws IOException {
+		for (long geracaoDoDiario : geracoesDosDiarios()) {
+			if (geracaoDoDiario <= geracao) {
+				Files.deleteIfExists(new File(caminhoDoDiario(geracaoDoDiario)).toPath());
+			}
+		}
+	}
+	/**
+	 * Compacta a base e os deltas atuais em uma nova base e apaga os deltas compactados. Caso outra base seja gravada
+	 * durante a compactacao, a base compactada e descartada.
+	 * @throws IOException caso algum arquivo nao possa ser lido ou gravado
+	 */
+	public void compacta() throws IOException {
+		List<File> compactados;
+		long basesAntes;
+		synchronized (this) {
+			compactados = deltas();
+			basesAntes = this.basesGravadas;
+		}
+		if (compactados.isEmpty()) {
+			return;
+		}
+
+		File temporario = new File(this.base.getPath() + ".compactado");
+		le(compactados).grava(temporario.getPath());
+
+		synchronized (this) {
+			if (this.basesGravadas != basesAntes) {
+				Files.deleteIfExists(temporario.toPath());
+				return;
+			}
+			Files.move(temporario.toPath(), this.base.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			this.basesGravadas += 1;
+			for (File delta : compactados) {
+				Files.deleteIfExists(delta.toPath());
+			}
+		}
+	}
+	/**
+	 * Le a base e aplica sobre ela os deltas passados de geracao maior que a dela
+	 */
+	private EstadoDoSistema le(List<File> deltas) throws IOException {
+		EstadoDoSistema estado = EstadoDoSistema.le(this.base.getPath());
+		for (File delta : deltas) {
+			if (geracao(delta) > estado.getGeracaoDoDiario()) {
+				estado = estado.aplica(EstadoDoSistema.le(delta.getPath()));
+			}
+		}
+		return estado;
+	}
+	/**
+	 * Retorna os deltas existentes em ordem de geracao
+	 */
+	private List<File> deltas() {
+		String prefixo = this.base.getName() + ".";
+		File diretorio = this.base.getAbsoluteFile().getParentFile();
+		File[] arquivos = diretorio.listFiles((pasta, nome) -> nome.startsWith(prefixo) && nome.endsWith(SUFIXO_DOS_DELTAS) && geracao(nome, prefixo) >= 0);
+
+		List<File> deltas = new ArrayList<File>();
+		if (arquivos != null) {
+			Collections.addAll(deltas, arquivos);
+		}
+		deltas.sort(Comparator.comparingLong(this::geracao));
+		return deltas;
+	}
+	/**
+	 * Retorna a geracao de um delta, tirada do seu nome
+	 */
+	private long geracao(File delta) {
+		return geracao(delta.getName(), this.base.getName() + ".");
+	}
+	/**
+	 * Retorna a geracao escrita no nome de um delta entre o prefixo e o sufixo, ou -1 caso o nome nao tenha uma
+	 */
+	private static long geracao(String nome, String prefixo) {
+		try {
+			return Long.parseLong(nome.substring(prefixo.length(), nome.length() - SUFIXO_DOS_DELTAS.length()));
+		} catch (RuntimeException e) {
+			return -1;
+		}
+	}
+}
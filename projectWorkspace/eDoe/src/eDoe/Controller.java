@@ -1,26 +1,50 @@
 package eDoe;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
-import util.ComparadorDeArrayDeInformacoesDeItem;
-import util.ComparadorPorDescricao;
+import util.AlocadorDeDoacoes;
+import util.Cursor;
+import util.DicionarioDeTags;
+import util.Diario;
+import util.Diario.RegistroPendente;
+import util.IndiceDeDescricoes;
+import util.IndiceDeNomes;
+import util.ListaOrdenadaPorId;
+import util.Pagina;
+import util.RetratoVersionado;
+import util.TravaVersionada;
+import util.TravasPorUsuario;
 import util.TuplaDePontosDeMatchComItemEUsuario;
 import util.Validacao;
 
 import java.util.Scanner;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.TreeSet;
 /**
  * Controlador do sistema, possui todas as informações e todos os métodos para o sistema funcionar.
  * @author Gustavo Gurjão Camargo Campos, Daniel de Matos Figueredo, Joao Victor Teodulo Wanderley.
@@ -38,27 +62,281 @@ public class Controller {
 	 */
 	private Map<String,Descritor> descritores;
 	/**
-	 * Contador para a adição de itens.
+	 * Registro das doações realizadas no sistema.
 	 */
-	private Map<Doacao,String> doacoes;
-	private int idItens;
+	private RegistroDeDoacoes doacoes;
+	/**
+	 * Contador para a adição de itens, incrementado atomicamente para que threads diferentes nunca recebam o mesmo id.
+	 */
+	private AtomicInteger idItens;
+	/**
+	 * Indice global que associa o id de cada item cadastrado no sistema ao usuario que o possui,
+	 * evitando percorrer todos os usuarios para descobrir o dono de um item.
+	 */
+	private Map<Integer,Usuario> donosDosItens;
+	/**
+	 * Indice invertido que associa cada descritor aos itens para doacao que possuem aquela descricao,
+	 * ordenados pelo id do item. Itens necessarios nao fazem parte deste indice.
+	 */
+	private Map<String,Map<Integer,Item>> itensDoadosPorDescritor;
+	/**
+	 * Indice dos usuarios por nome, em ordem de cadastro
+	 */
+	private IndiceDeNomes usuariosPorNome;
+	/**
+	 * Indice de trigramas das descricoes de todos os itens do sistema, usado na pesquisa de itens por descricao
+	 */
+	private IndiceDeDescricoes itensPorDescricao;
+	/**
+	 * Itens para doacao de todos os doadores, mantidos em ordem de quantidade decrescente, descricao e id
+	 */
+	private TreeSet<Item> itensParaDoacaoOrdenados;
+	/**
+	 * Itens necessarios de todos os receptores, mantidos em ordem crescente de id
+	 */
+	private ListaOrdenadaPorId<Item> itensNecessariosOrdenados;
 	/**
 	 * Realizador da validação dos itens
 	 */
 	private Validacao validador;
 	/**
-	 * Construtor do controlador. Constrói o controlador a partir de um LinkedHashMap de usuários (mantendo a ordem de inserção),
-	 * um TreeMap de descritores(Ordem alfabética das chaves), põe o idItens igual a zero para iniciar o sistema e constrói um novo
+	 * Dicionario das tags dos itens do sistema, descartado junto com eles ao finalizar o sistema
+	 */
+	private DicionarioDeTags dicionarioDeTags;
+	/**
+	 * Travas por faixa de id de usuario. Toda operacao sobre um usuario trava a faixa dele(para leitura ou escrita),
+	 * e operacoes sobre mais de um usuario travam as faixas em ordem crescente.
+	 */
+	private TravasPorUsuario travas;
+	/**
+	 * Trava dos indices compartilhados entre usuarios(donos dos itens, itens por descritor, nomes, descricoes, itens
+	 * ordenados) e dos campos dos itens e usuarios que aparecem nas listagens. Escritores a pegam apenas para alterar
+	 * esses indices e campos, sempre depois das travas de usuario, e nunca durante toda a operacao: so o cadastro de
+	 * usuarios e a criacao de descritores anotam a operacao no diario com ela pega(veja anota). As listagens a pegam
+	 * para leitura ou usam um retrato tirado com ela.
+	 */
+	private TravaVersionada travaDosIndices;
+	/**
+	 * Retrato dos itens para doacao, refeito apenas quando algum escritor pega a trava dos indices
+	 */
+	private RetratoVersionado<RetratoDeItem[]> retratoDosItensParaDoacao;
+	/**
+	 * Trava que separa os ajustes das quantidades dos descritores da listagem deles. Os ajustes a pegam para leitura e
+	 * podem acontecer ao mesmo tempo; a listagem a pega para escrita para copiar todas as quantidades de uma vez.
+	 */
+	private ReentrantReadWriteLock travaDosContadores;
+	/**
+	 * Diario de operacoes, ativo entre iniciaSistema e finalizaSistema: cada operacao que altera o sistema e registrada
+	 * nele antes de retornar, para ser refeita por iniciaSistema caso o sistema caia antes de finalizaSistema
+	 */
+	private volatile Diario diario;
+	/**
+	 * Politica de sincronizacao dos proximos diarios abertos(veja Diario)
+	 */
+	private volatile String politicaDoDiario;
+	/**
+	 * Intervalo entre as sincronizacoes dos proximos diarios abertos com a politica PERIODICA
+	 */
+	private volatile int intervaloDoDiario;
+	/**
+	 * Arquivo base e deltas onde o estado do sistema e guardado(veja ArquivosDoSistema)
+	 */
+	private ArquivosDoSistema arquivos;
+	/**
+	 * Gravador dos checkpoints em segundo plano
+	 */
+	private GravadorDeCheckpoints gravador;
+	/**
+	 * Trava que impede dois checkpoints ao mesmo tempo, ou um checkpoint durante iniciaSistema e finalizaSistema, de
+	 * forma que o diario de operacoes so muda de geracao com ela travada. E sempre pega antes das travas de usuario.
+	 */
+	private ReentrantLock travaDoCheckpoint;
+	/**
+	 * Ids dos usuarios cadastrados ou alterados desde o ultimo checkpoint, cada um com a ordem em que foi modificado
+	 * pela primeira vez, o que reproduz entre eles a ordem de cadastro
+	 */
+	private ConcurrentHashMap<String,Long> usuariosModificados;
+	/**
+	 * Ids dos usuarios removidos desde o ultimo checkpoint
+	 */
+	private Set<String> usuariosRemovidos;
+	/**
+	 * Descricoes dos descritores cadastrados ou com quantidade alterada desde o ultimo checkpoint
+	 */
+	private Set<String> descritoresModificados;
+	/**
+	 * Contador da ordem das modificacoes de usuarios
+	 */
+	private AtomicLong ordemDasModificacoes;
+	/**
+	 * Diretorio dos arquivos do sistema
+	 */
+	private static final String DIRETORIO_DO_SISTEMA = "arquivos_sistema";
+	/**
+	 * Arquivo binario onde finalizaSistema guarda o estado do sistema
+	 */
+	private static final String ARQUIVO_DO_SISTEMA = DIRETORIO_DO_SISTEMA + "/sistema.edoe";
+	/**
+	 * Caminho dos diarios de operacoes, ao qual e acrescentada a geracao de cada um
+	 */
+	private static final String ARQUIVO_DO_DIARIO = DIRETORIO_DO_SISTEMA + "/diario.edoe";
+	/**
+	 * Tipos dos registros do diario de operacoes, um para cada operacao que altera o sistema
+	 */
+	private static final int REGISTRO_ADICIONA_DOADOR = 1, REGISTRO_ATUALIZA_USUARIO = 2, REGISTRO_REMOVE_USUARIO = 3,
+			REGISTRO_ADICIONA_DESCRITOR = 4, REGISTRO_ADICIONA_ITEM = 5, REGISTRO_ATUALIZA_ITEM = 6, REGISTRO_REMOVE_ITEM = 7,
+			REGISTRO_LE_RECEPTOR = 8, REGISTRO_REALIZA_DOACAO = 9, REGISTRO_REALIZA_DOACOES = 10, REGISTRO_EFETUA_DOACOES = 11;
+	/**
+	 * Construtor do controlador. Constrói o controlador a partir de um LinkedHashMap sincronizado de usuários (mantendo a ordem de inserção),
+	 * um ConcurrentSkipListMap de descritores(Ordem alfabética das chaves), põe o idItens igual a zero para iniciar o sistema e constrói um novo
 	 * validador.
 	 */
-	
-	
 	public Controller() {
-		this.usuarios = new LinkedHashMap<String,Usuario>();
-		this.descritores = new TreeMap<String,Descritor>();
-		this.doacoes = new TreeMap<Doacao,String>();
-		this.idItens = 0;
+		this.usuarios = Collections.synchronizedMap(new LinkedHashMap<String,Usuario>());
+		this.descritores = new ConcurrentSkipListMap<String,Descritor>();
+		this.doacoes = new RegistroDeDoacoes();
+		this.idItens = new AtomicInteger(0);
+		this.donosDosItens = new ConcurrentHashMap<Integer,Usuario>();
+		this.itensDoadosPorDescritor = new HashMap<String,Map<Integer,Item>>();
+		this.usuariosPorNome = new IndiceDeNomes();
+		this.itensPorDescricao = new IndiceDeDescricoes();
+		this.itensParaDoacaoOrdenados = new TreeSet<Item>();
+		this.itensNecessariosOrdenados = new ListaOrdenadaPorId<Item>();
 		this.validador = new Validacao();
+		this.dicionarioDeTags = new DicionarioDeTags();
+		this.travas = new TravasPorUsuario(64);
+		this.travaDosIndices = new TravaVersionada();
+		this.travaDoCheckpoint = new ReentrantLock();
+		this.retratoDosItensParaDoacao = new RetratoVersionado<RetratoDeItem[]>(this.travaDosIndices, this::tiraRetratoDosItensParaDoacao);
+		this.travaDosContadores = new ReentrantReadWriteLock();
+		this.politicaDoDiario = Diario.SEMPRE;
+		this.intervaloDoDiario = 1000;
+		this.arquivos = new ArquivosDoSistema(ARQUIVO_DO_SISTEMA, ARQUIVO_DO_DIARIO);
+		this.gravador = new GravadorDeCheckpoints(this.arquivos);
+		this.usuariosModificados = new ConcurrentHashMap<String,Long>();
+		this.usuariosRemovidos = ConcurrentHashMap.newKeySet();
+		this.descritoresModificados = ConcurrentHashMap.newKeySet();
+		this.ordemDasModificacoes = new AtomicLong();
+	}
+	/**
+	 * Configura a politica de sincronizacao do diario de operacoes, usada a partir do proximo iniciaSistema
+	 * @param politica SEMPRE, PERIODICA ou NUNCA(veja Diario)
+	 * @param intervaloEmMilissegundos intervalo entre as sincronizacoes da politica PERIODICA
+	 */
+	public void configuraDiario(String politica, int intervaloEmMilissegundos) {
+		this.validador.validaConfiguraDiario(politica, intervaloEmMilissegundos);
+		this.politicaDoDiario = politica;
+		this.intervaloDoDiario = intervaloEmMilissegundos;
+	}
+	/**
+	 * Acrescenta o registro de uma operacao ao diario de operacoes, caso ele esteja ativo. Deve ser chamado depois da
+	 * operacao ser validada e antes dela ser aplicada, com as travas de usuario dela pegas: as operacoes sobre um mesmo
+	 * usuario entram no diario na ordem dada pela faixa dele, e as operacoes sobre usuarios diferentes podem ser
+	 * refeitas em qualquer ordem, exceto as que dependem da ordem de um efeito compartilhado(o cadastro de um usuario,
+	 * cuja posicao aparece nas listagens, e a criacao de um descritor). Essas anotam e aplicam esse efeito dentro de uma
+	 * mesma secao curta da trava dos indices, que entao ordena o diario. Caso o diario tenha falhado e nao possa ser
+	 * recuperado, a operacao e recusada antes de alterar o sistema.
+	 * @param campos tipo da operacao seguido dos seus campos
+	 * @return o registro pendente, ou null caso o diario nao esteja ativo
+	 */
+	private RegistroPendente anota(Object... campos) {
+		Diario diario = this.diario;
+		if (diario == null) {
+			return null;
+		}
+		try {
+			return diario.registra(campos);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	/**
+	 * Espera o registro de uma operacao chegar ao diario, depois de soltar as travas da operacao
+	 * @param registro registro devolvido por anota, ou null
+	 */
+	private void confirma(RegistroPendente registro) {
+		if (registro != null) {
+			try {
+				registro.confirma();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+	/**
+	 * Marca um usuario como cadastrado ou alterado desde o ultimo checkpoint. Deve ser chamado com a faixa do usuario
+	 * travada para escrita.
+	 * @param usuario usuario modificado
+	 */
+	private void marcaModificado(Usuario usuario) {
+		this.usuariosModificados.computeIfAbsent(usuario.getId(), id -> this.ordemDasModificacoes.getAndIncrement());
+	}
+	/**
+	 * Marca um usuario como removido desde o ultimo checkpoint. Caso ele seja cadastrado de novo, volta a ser marcado
+	 * como modificado, agora no fim da ordem de cadastro.
+	 * @param id id do usuario removido
+	 */
+	private void marcaRemovido(String id) {
+		this.usuariosModificados.remove(id);
+		this.usuariosRemovidos.add(id);
+	}
+	/**
+	 * Esquece as modificacoes feitas desde o ultimo checkpoint, depois que elas sao guardadas
+	 */
+	private void limpaModificacoes() {
+		this.usuariosModificados.clear();
+		this.usuariosRemovidos.clear();
+		this.descritoresModificados.clear();
+		this.doacoes.marcaCheckpoint();
+	}
+	/**
+	 * Refaz uma operacao registrada no diario de operacoes
+	 * @param campos campos do registro, sendo o primeiro o tipo da operacao
+	 */
+	private void refazRegistroDoDiario(Object[] campos) {
+		switch (((Long) campos[0]).intValue()) {
+			case REGISTRO_ADICIONA_DOADOR:
+				adicionaDoador((String) campos[1], (String) campos[2], (String) campos[3], (String) campos[4], (String) campos[5]);
+				break;
+			case REGISTRO_ATUALIZA_USUARIO:
+				atualizaUsuario((String) campos[1], (String) campos[2], (String) campos[3], (String) campos[4]);
+				break;
+			case REGISTRO_REMOVE_USUARIO:
+				removeUsuario((String) campos[1]);
+				break;
+			case REGISTRO_ADICIONA_DESCRITOR:
+				adicionaDescritor((String) campos[1]);
+				break;
+			case REGISTRO_ADICIONA_ITEM:
+				adicionaItem((String) campos[1], (String) campos[2], ((Long) campos[3]).intValue(), (String) campos[4], ((Long) campos[5]).intValue());
+				break;
+			case REGISTRO_ATUALIZA_ITEM:
+				atualizaItem(((Long) campos[1]).intValue(), (String) campos[2], ((Long) campos[3]).intValue(), (String) campos[4]);
+				break;
+			case REGISTRO_REMOVE_ITEM:
+				removeItem(((Long) campos[1]).intValue(), (String) campos[2]);
+				break;
+			case REGISTRO_LE_RECEPTOR:
+				leReceptor(new String[] {(String) campos[1], (String) campos[2], (String) campos[3], (String) campos[4], (String) campos[5]});
+				break;
+			case REGISTRO_REALIZA_DOACAO:
+				realizaDoacao(((Long) campos[1]).intValue(), ((Long) campos[2]).intValue(), (String) campos[3], (Long) campos[4]);
+				break;
+			case REGISTRO_REALIZA_DOACOES:
+				List<PedidoDeDoacao> pedidos = new ArrayList<PedidoDeDoacao>();
+				long[] idsDasDoacoes = new long[(campos.length - 1) / 4];
+				for (int p = 0; p < idsDasDoacoes.length; p++) {
+					pedidos.add(new PedidoDeDoacao(((Long) campos[1 + 4 * p]).intValue(), ((Long) campos[2 + 4 * p]).intValue(), (String) campos[3 + 4 * p]));
+					idsDasDoacoes[p] = (Long) campos[4 + 4 * p];
+				}
+				realizaDoacoes(pedidos, idsDasDoacoes);
+				break;
+			case REGISTRO_EFETUA_DOACOES:
+				refazDoacoesAlocadas(campos);
+				break;
+			default:
+				throw new IllegalStateException("Registro desconhecido no diario de operacoes: " + campos[0] + ".");
+		}
 	}
 	/**
 	 * Adiciona um doador ao sistema, a partir de seu id, nome,email, celular e classe.
@@ -70,12 +348,26 @@ public class Controller {
 	 * @return o identificador único do doador
 	 */
 	public String adicionaDoador(String id, String nome, String email, String celular, String classe) {
-		
-		this.validador.validaAdicionaDoador(id, nome, email, celular, classe, this.usuarios);
-		
-		this.usuarios.put(id,new Usuario(id,nome,email,celular,classe,"doador"));
+		RegistroPendente registro;
+		Lock trava = this.travas.escrita(id);
+		trava.lock();
+		try {
+			this.validador.validaAdicionaDoador(id, nome, email, celular, classe, this.usuarios);
+			
+			this.travaDosIndices.escrita().lock();
+			try {
+				registro = anota(REGISTRO_ADICIONA_DOADOR, id, nome, email, celular, classe);
+				this.usuarios.put(id,new Usuario(id,nome,email,celular,classe,"doador"));
+				this.usuariosPorNome.adiciona(this.usuarios.get(id));
+				marcaModificado(this.usuarios.get(id));
+			} finally {
+				this.travaDosIndices.escrita().unlock();
+			}
+		} finally {
+			trava.unlock();
+		}
+		confirma(registro);
 		return id;
-		
 	}
 	/**
 	 * Pesquisa um usuário de acordo com seu id
@@ -83,29 +375,63 @@ public class Controller {
 	 * @return a representação em String do usuário
 	 */
 	public String pesquisaUsuarioPorId(String id) {
-		this.validador.validapesquisaUsuarioPorId(id, this.usuarios);
+		Lock trava = this.travas.leitura(id);
+		trava.lock();
+		try {
+			this.validador.validapesquisaUsuarioPorId(id, this.usuarios);
 
-		return this.usuarios.get(id).toString();
+			return this.usuarios.get(id).toString();
+		} finally {
+			trava.unlock();
+		}
 	}
 	/**
-	 * Pesquisa usuários com um nome em específico
+	 * Pesquisa usuários com um nome em específico a partir do índice de usuários por nome
 	 * @param nome nome a ser pesquisado
 	 * @return retorna a representação em String de todos os usuários com esse nome em ordem de inserção
 	 */
 	public String pesquisaUsuarioPorNome(String nome) {
+			StringBuilder retorno = new StringBuilder();
+			try {
+				pesquisaUsuarioPorNome(nome, retorno);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return retorno.toString();
+	}
+	/**
+	 * Pesquisa usuários com um nome em específico e escreve o resultado diretamente na saída passada,
+	 * no mesmo formato de pesquisaUsuarioPorNome(String)
+	 * @param nome nome a ser pesquisado
+	 * @param saida saída que receberá a representação dos usuários encontrados
+	 * @throws IOException caso a saída não possa ser escrita
+	 */
+	public void pesquisaUsuarioPorNome(String nome, Appendable saida) throws IOException {
 			
 			this.validador.validapesquisaUsuarioPorNome(nome);
-		
-			String retorno = "";
-			for (Usuario usuario : this.usuarios.values()) {
-				if (usuario.getNome().equals(nome)) {retorno += usuario.toString() + " | ";}
+			
+			List<Usuario> encontrados;
+			this.travaDosIndices.leitura().lock();
+			try {
+				encontrados = new ArrayList<Usuario>(this.usuariosPorNome.busca(nome));
+			} finally {
+				this.travaDosIndices.leitura().unlock();
 			}
 			
-			if (retorno.trim().equals("")) {throw new IllegalArgumentException("Usuario nao encontrado: " + nome + ".");}
+			if (encontrados.isEmpty()) {throw new IllegalArgumentException("Usuario nao encontrado: " + nome + ".");}
 			
-			else {
-				return retorno.substring(0, retorno.length()-3);
-			}	
+			boolean primeiro = true;
+			for (Usuario usuario : encontrados) {
+				if (!primeiro) {saida.append(" | ");}
+				Lock trava = this.travas.leitura(usuario.getId());
+				trava.lock();
+				try {
+					saida.append(usuario.toString());
+				} finally {
+					trava.unlock();
+				}
+				primeiro = false;
+			}
 	}
 	/**
 	 * Atualiza informações do usuário: nome, email ou celular
@@ -116,10 +442,23 @@ public class Controller {
 	 * @return nova representação em String do usuário
 	 */
 	public String atualizaUsuario(String id, String nome, String email, String celular) {
+		String retorno;
+		RegistroPendente registro;
+		Lock trava = this.travas.escrita(id);
+		trava.lock();
+		try {
 			this.validador.validaAtualizaUsuario(id,nome,email,celular,this.usuarios);
 			
+			registro = anota(REGISTRO_ATUALIZA_USUARIO, id, nome, email, celular);
 			if (nome != null && !nome.trim().equals("")) { 
-				this.usuarios.get(id).setNome(nome);
+				this.travaDosIndices.escrita().lock();
+				try {
+					String nomeAntigo = this.usuarios.get(id).getNome();
+					this.usuarios.get(id).setNome(nome);
+					this.usuariosPorNome.renomeia(this.usuarios.get(id), nomeAntigo);
+				} finally {
+					this.travaDosIndices.escrita().unlock();
+				}
 			}
 			
 			if (celular != null && !celular.trim().equals("")) {
@@ -130,31 +469,63 @@ public class Controller {
 				this.usuarios.get(id).setEmail(email);
 			}
 			
-			return this.usuarios.get(id).toString();
-			
+			marcaModificado(this.usuarios.get(id));
+			retorno = this.usuarios.get(id).toString();
+		} finally {
+			trava.unlock();
+		}
+		confirma(registro);
+		return retorno;
 	}
 	/**
 	 * Remove um usuário e todos os itens pertencentes a ele do sistema de acordo com seu id
 	 * @param id id do usuário a ser removido
 	 */
 	public void removeUsuario(String id) {
-		this.validador.validaRemoveUsario(id,this.usuarios);
-		
-			for (Item item : this.usuarios.get(id).getItens().values()) {
-				removeItem(item.getId(),id);
+		RegistroPendente registro;
+		Lock trava = this.travas.escrita(id);
+		trava.lock();
+		try {
+			this.validador.validaRemoveUsario(id,this.usuarios);
+			
+			Usuario usuario = this.usuarios.get(id);
+			registro = anota(REGISTRO_REMOVE_USUARIO, id);
+			for (Item item : new ArrayList<Item>(usuario.getItens().values())) {
+				retiraItem(usuario, item);
 			}
-			this.usuarios.remove(id);
-		
+			
+			this.travaDosIndices.escrita().lock();
+			try {
+				this.usuariosPorNome.remove(this.usuarios.remove(id));
+			} finally {
+				this.travaDosIndices.escrita().unlock();
+			}
+			marcaRemovido(id);
+		} finally {
+			trava.unlock();
+		}
+		confirma(registro);
 	}
 	/**
 	 * Adiciona um novo descritor ao sistema
 	 * @param descricao descrição do descritor do sistema
 	 */
 	public void adicionaDescritor(String descricao) {
-		this.validador.validaAdicionaDescritor(descricao,this.descritores);
-
-		this.descritores.put(descricao.toLowerCase(),new Descritor(descricao.toLowerCase()));
+		RegistroPendente registro;
+		this.travaDosIndices.escrita().lock();
+		try {
+			this.validador.validaAdicionaDescritor(descricao,this.descritores);
 
+			if (this.descritores.containsKey(descricao.toLowerCase())) {
+				throw new IllegalArgumentException("Descritor de Item ja existente: " + descricao.toLowerCase() + ".");
+			}
+			registro = anota(REGISTRO_ADICIONA_DESCRITOR, descricao);
+			this.descritores.put(descricao.toLowerCase(),new Descritor(descricao.toLowerCase()));
+			this.descritoresModificados.add(descricao.toLowerCase());
+		} finally {
+			this.travaDosIndices.escrita().unlock();
+		}
+		confirma(registro);
 	}
 	/**
 	 * Adiciona um item para doação a um usuário
@@ -165,38 +536,62 @@ public class Controller {
 	 * @return o id do item a ser vinculado
 	 */
 	public int adicionaItem(String idUsuario, String descricaoItem, int quantidade, String tags) {
-		this.validador.validaAdicionaItem(idUsuario,descricaoItem,quantidade,tags,this.usuarios);
+		return adicionaItem(idUsuario, descricaoItem, quantidade, tags, -1);
+	}
+	/**
+	 * Adiciona um item a um usuario como em adicionaItem, podendo usar um id ja definido para o item novo
+	 * @param idUsuario id do usuário que estara vinculado ao item
+	 * @param descricaoItem descrição do item a ser vinculado
+	 * @param quantidade quantidade do item a ser vinculado
+	 * @param tags tags do item a ser vinculado
+	 * @param idDefinido id do item novo, como o id guardado no diario de operacoes, ou -1 para usar o proximo id livre
+	 * @return o id do item a ser vinculado
+	 */
+	private int adicionaItem(String idUsuario, String descricaoItem, int quantidade, String tags, int idDefinido) {
+		int id;
+		RegistroPendente registro;
+		Lock trava = this.travas.escrita(idUsuario);
+		trava.lock();
+		try {
+			this.validador.validaAdicionaItem(idUsuario,descricaoItem,quantidade,tags,this.usuarios);
 		
-		for (Item item : this.usuarios.get(idUsuario).getItens().values()) {
-			if (item.getDescricao().toLowerCase().equals(descricaoItem.toLowerCase()) && item.getTags().equals(tags)) {
-				
-				if (!(this.usuarios.get(idUsuario).getStatus().equals("receptor"))) {
-					int diferenca = quantidade - item.getQuant();
-					
-					this.descritores.get(descricaoItem).aumentaQuant(diferenca);
-				}
-				item.setQuant(quantidade);
-					
-				return item.getId();
-			}
-		}
-		if (!(this.usuarios.get(idUsuario).getStatus().equals("receptor"))) {
+			Item itemExistente = this.usuarios.get(idUsuario).buscaItem(descricaoItem, tags);
 		
-			if (this.descritores.containsKey(descricaoItem.toLowerCase())) {
-			this.descritores.get(descricaoItem.toLowerCase()).aumentaQuant(quantidade);
+			if (itemExistente != null) {
+				id = itemExistente.getId();
+				registro = anota(REGISTRO_ADICIONA_ITEM, idUsuario, descricaoItem, quantidade, tags, id);
+				mudaQuantidade(this.usuarios.get(idUsuario), itemExistente, quantidade);
 			}
+			else {
+				if (idDefinido >= 0) {
+					id = idDefinido;
+					this.idItens.accumulateAndGet(idDefinido + 1, Math::max);
+				}
+				else {
+					id = this.idItens.getAndIncrement();
+				}
+				Item novoItem = new Item(descricaoItem.toLowerCase(), quantidade, tags, id, this.dicionarioDeTags);
 			
-			if (!this.descritores.containsKey(descricaoItem.toLowerCase())) {
-			this.descritores.put(descricaoItem.toLowerCase(),new Descritor(descricaoItem.toLowerCase(),quantidade));
+				// o item de um doador pode criar o descritor, entao e anotado na mesma secao que adicionaDescritor
+				this.travaDosIndices.escrita().lock();
+				try {
+					registro = anota(REGISTRO_ADICIONA_ITEM, idUsuario, descricaoItem, quantidade, tags, id);
+					if (!(this.usuarios.get(idUsuario).getStatus().equals("receptor"))) {
+						ajustaDescritor(novoItem.getDescricao(), quantidade);
+					}
+				
+					this.usuarios.get(idUsuario).adicionaItem(novoItem);
+					indexaItem(this.usuarios.get(idUsuario), novoItem);
+				} finally {
+					this.travaDosIndices.escrita().unlock();
+				}
+				marcaModificado(this.usuarios.get(idUsuario));
 			}
+		} finally {
+			trava.unlock();
 		}
-			
-		this.usuarios.get(idUsuario).getItens().put(this.idItens,new Item(descricaoItem.toLowerCase(), quantidade, tags,idItens));
-			
-		this.idItens += 1;
-			
-		return (this.idItens-1);
-
+		confirma(registro);
+		return id;
 	}
 	/**
 	 * Exibe a representação em String de um item do sistema
@@ -205,9 +600,15 @@ public class Controller {
 	 * @return a representação em String do item
 	 */
 	public String exibeItem(int id, String idDoador) {
-		this.validador.validaExibeItem(id,idDoador,this.usuarios);
+		Lock trava = this.travas.leitura(idDoador);
+		trava.lock();
+		try {
+			this.validador.validaExibeItem(id,idDoador,this.usuarios);
 	
-		return this.usuarios.get(idDoador).getItens().get(id).toString();
+			return this.usuarios.get(idDoador).buscaItem(id).toString();
+		} finally {
+			trava.unlock();
+		}
 	}
 	/**
 	 * Atualiza a quantidade ou as tags de um item a ser doado.
@@ -218,37 +619,34 @@ public class Controller {
 	 * @return a nova representação em String do item
 	 */
 	public String atualizaItem(int id, String idUsuario, int quantidade, String tags) {
-		this.validador.validaAtualizaItem(id,idUsuario,quantidade,tags,this.usuarios);
-		
+		String retorno;
+		RegistroPendente registro;
+		Lock trava = this.travas.escrita(idUsuario);
+		trava.lock();
+		try {
+			this.validador.validaAtualizaItem(id,idUsuario,quantidade,tags,this.usuarios);
+			
+			registro = anota(REGISTRO_ATUALIZA_ITEM, id, idUsuario, quantidade, tags);
 			if (quantidade > 0) {
-				if (!(this.usuarios.get(idUsuario).getStatus().equals("receptor"))) {
-					if (this.usuarios.get(idUsuario).getItens().get(id).getQuant() > quantidade) {
-						
-						int diferenca = this.usuarios.get(idUsuario).getItens().get(id).getQuant() - quantidade;
-						
-						this.descritores.get(this.usuarios.get(idUsuario).getItens().get(id).getDescricao()).diminuiQuant(diferenca);
-					}
-					
-					if (this.usuarios.get(idUsuario).getItens().get(id).getQuant() < quantidade) {
-						
-						int diferenca = quantidade - this.usuarios.get(idUsuario).getItens().get(id).getQuant();
-						
-						this.descritores.get(this.usuarios.get(idUsuario).getItens().get(id).getDescricao()).aumentaQuant(diferenca);
-					}
-				}
-					
-				this.usuarios.get(idUsuario).getItens().get(id).setQuant(quantidade);
-				
+				mudaQuantidade(this.usuarios.get(idUsuario), this.usuarios.get(idUsuario).buscaItem(id), quantidade);
 			}
 			
-		if (tags != null && !tags.trim().equals("")) {
-			
-			this.usuarios.get(idUsuario).getItens().get(id).setTags(tags);
+			if (tags != null && !tags.trim().equals("")) {
+				this.travaDosIndices.escrita().lock();
+				try {
+					this.usuarios.get(idUsuario).mudaTagsDoItem(id, tags);
+				} finally {
+					this.travaDosIndices.escrita().unlock();
+				}
+			}
 			
+			marcaModificado(this.usuarios.get(idUsuario));
+			retorno = this.usuarios.get(idUsuario).buscaItem(id).toString();
+		} finally {
+			trava.unlock();
 		}
-		
-		return this.usuarios.get(idUsuario).getItens().get(id).toString();
-			
+		confirma(registro);
+		return retorno;
 	}
 	/**
 	 * Remove um item para doação
@@ -256,15 +654,130 @@ public class Controller {
 	 * @param idUsuario id do usuario ao qual o item esta atribuido
 	 */
 	public void removeItem(int id, String idUsuario) {
-		this.validador.validaRemoveItem(id,idUsuario,this.usuarios);
+		RegistroPendente registro;
+		Lock trava = this.travas.escrita(idUsuario);
+		trava.lock();
+		try {
+			this.validador.validaRemoveItem(id,idUsuario,this.usuarios);
 		
-		int diferenca = this.usuarios.get(idUsuario).getItens().get(id).getQuant();
+			registro = anota(REGISTRO_REMOVE_ITEM, id, idUsuario);
+			retiraItem(this.usuarios.get(idUsuario), this.usuarios.get(idUsuario).buscaItem(id));
+		} finally {
+			trava.unlock();
+		}
+		confirma(registro);
+	}
+	/**
+	 * Retira um item do usuario e dos indices do controlador, descontando sua quantidade do descritor caso o usuario seja um doador
+	 * @param usuario usuario que possui o item
+	 * @param item item a ser retirado
+	 */
+	private void retiraItem(Usuario usuario, Item item) {
+		int quantidade;
+		this.travaDosIndices.escrita().lock();
+		try {
+			quantidade = item.getQuant();
+			desindexaItem(usuario, usuario.removeItem(item.getId()));
+		} finally {
+			this.travaDosIndices.escrita().unlock();
+		}
+		marcaModificado(usuario);
 		
-		if (!(this.usuarios.get(idUsuario).getStatus().equals("receptor"))) {
-			this.descritores.get(this.usuarios.get(idUsuario).getItens().get(id).getDescricao()).diminuiQuant(diferenca);
+		if (!(usuario.getStatus().equals("receptor"))) {
+			ajustaDescritor(item.getDescricao(), -quantidade);
+		}
+	}
+	/**
+	 * Muda a quantidade de um item. Caso o item pertenca a um doador, a diferenca e aplicada ao descritor do item
+	 * e o item e reposicionado na ordenacao de itens para doacao.
+	 * @param usuario usuario que possui o item
+	 * @param item item a ser modificado
+	 * @param quantidade nova quantidade do item
+	 */
+	private void mudaQuantidade(Usuario usuario, Item item, int quantidade) {
+		int diferenca;
+		this.travaDosIndices.escrita().lock();
+		try {
+			diferenca = quantidade - item.getQuant();
+			if (!(usuario.getStatus().equals("receptor"))) {
+				this.itensParaDoacaoOrdenados.remove(item);
+				item.setQuant(quantidade);
+				this.itensParaDoacaoOrdenados.add(item);
+			}
+			else {
+				item.setQuant(quantidade);
+			}
+		} finally {
+			this.travaDosIndices.escrita().unlock();
+		}
+		marcaModificado(usuario);
+		
+		if (!(usuario.getStatus().equals("receptor"))) {
+			ajustaDescritor(item.getDescricao(), diferenca);
+		}
+	}
+	/**
+	 * Soma uma diferenca a quantidade do descritor de uma descricao, criando o descritor caso ele nao exista. Varios
+	 * escritores podem ajustar descritores ao mesmo tempo, pois todos pegam a trava dos contadores para leitura; so a
+	 * listagem dos descritores a pega para escrita, pelo tempo de copiar as quantidades.
+	 * @param descricao descricao do descritor
+	 * @param diferenca valor a ser somado, negativo para diminuir a quantidade
+	 */
+	private void ajustaDescritor(String descricao, int diferenca) {
+		this.travaDosContadores.readLock().lock();
+		try {
+			Descritor descritor = this.descritores.get(descricao);
+			if (descritor == null) {
+				descritor = this.descritores.computeIfAbsent(descricao, Descritor::new);
+			}
+			descritor.aumentaQuant(diferenca);
+			if (!this.descritoresModificados.contains(descricao)) {
+				this.descritoresModificados.add(descricao);
+			}
+		} finally {
+			this.travaDosContadores.readLock().unlock();
+		}
+	}
+	/**
+	 * Registra um item nos indices do controlador: o indice de donos dos itens, o indice de descricoes e,
+	 * caso o usuario seja um doador, o indice de itens para doacao por descritor e a ordenacao de itens para doacao;
+	 * caso seja um receptor, a lista de itens necessarios.
+	 * @param usuario usuario que possui o item
+	 * @param item item a ser indexado
+	 */
+	private void indexaItem(Usuario usuario, Item item) {
+		this.donosDosItens.put(item.getId(), usuario);
+		this.itensPorDescricao.adiciona(item);
+		
+		if (!(usuario.getStatus().equals("receptor"))) {
+			if (!this.itensDoadosPorDescritor.containsKey(item.getDescricao())) {
+				this.itensDoadosPorDescritor.put(item.getDescricao(), new TreeMap<Integer,Item>());
+			}
+			this.itensDoadosPorDescritor.get(item.getDescricao()).put(item.getId(), item);
+			this.itensParaDoacaoOrdenados.add(item);
+		}
+		else {
+			this.itensNecessariosOrdenados.adiciona(item.getId(), item);
+		}
+	}
+	/**
+	 * Retira um item dos indices do controlador.
+	 * @param usuario usuario que possuia o item
+	 * @param item item a ser retirado dos indices
+	 */
+	private void desindexaItem(Usuario usuario, Item item) {
+		this.donosDosItens.remove(item.getId());
+		this.itensPorDescricao.remove(item);
+		this.itensParaDoacaoOrdenados.remove(item);
+		this.itensNecessariosOrdenados.remove(item.getId());
+		
+		Map<Integer,Item> itensDoDescritor = this.itensDoadosPorDescritor.get(item.getDescricao());
+		if (itensDoDescritor != null) {
+			itensDoDescritor.remove(item.getId());
+			if (itensDoDescritor.isEmpty()) {
+				this.itensDoadosPorDescritor.remove(item.getDescricao());
+			}
 		}
-		this.usuarios.get(idUsuario).getItens().remove(id); 
-
 	}
 	/**
 	 * Le os receptores a partir de um arquivo csv
@@ -280,6 +793,7 @@ public class Controller {
 		}
 		
 		String linha = null;
+		RegistroPendente ultimoRegistro = null;
 		
 		while(sc.hasNextLine()) {
 			
@@ -288,142 +802,353 @@ public class Controller {
 			if (linha.equals("id,nome,E-mail,celular,classe"))
 				continue;
 			
-			String[] dadosReceptor = linha.split(",");
-			
+			ultimoRegistro = leReceptor(linha.split(","));
+		}
+		
+		sc.close();
+		
+		confirma(ultimoRegistro);
+	}
+	/**
+	 * Cadastra ou atualiza um receptor a partir dos dados de uma linha do csv de receptores. O registro da linha no
+	 * diario de operacoes nao e confirmado aqui: confirmar o registro da ultima linha confirma todos os anteriores.
+	 * @param dadosReceptor id, nome, email, celular e classe do receptor
+	 * @return o registro da linha no diario, ainda nao confirmado, ou null caso o diario nao esteja ativo
+	 */
+	private RegistroPendente leReceptor(String[] dadosReceptor) {
+		Lock trava = this.travas.escrita(dadosReceptor[0]);
+		trava.lock();
+		this.travaDosIndices.escrita().lock();
+		try {
+			RegistroPendente registro = anota(REGISTRO_LE_RECEPTOR, dadosReceptor[0], dadosReceptor[1], dadosReceptor[2], dadosReceptor[3], dadosReceptor[4]);
 			if (this.usuarios.containsKey(dadosReceptor[0])) {
+				String nomeAntigo = this.usuarios.get(dadosReceptor[0]).getNome();
 				this.usuarios.get(dadosReceptor[0]).setNome(dadosReceptor[1]);
+				this.usuariosPorNome.renomeia(this.usuarios.get(dadosReceptor[0]), nomeAntigo);
 				this.usuarios.get(dadosReceptor[0]).setEmail(dadosReceptor[2]);
 				this.usuarios.get(dadosReceptor[0]).setCelular(dadosReceptor[3]);
 			}
 			
-			else {this.usuarios.put(dadosReceptor[0], new Usuario(dadosReceptor[0],dadosReceptor[1],dadosReceptor[2],dadosReceptor[3],dadosReceptor[4],"receptor"));}
+			else {
+				this.usuarios.put(dadosReceptor[0], new Usuario(dadosReceptor[0],dadosReceptor[1],dadosReceptor[2],dadosReceptor[3],dadosReceptor[4],"receptor"));
+				this.usuariosPorNome.adiciona(this.usuarios.get(dadosReceptor[0]));
+			}
+			marcaModificado(this.usuarios.get(dadosReceptor[0]));
+			return registro;
+		} finally {
+			this.travaDosIndices.escrita().unlock();
+			trava.unlock();
 		}
-		
-		sc.close();
-		
 	}
 	/**
 	 * Percorre o map "descritores" e retorna o toString() de todos eles separados por " | "
 	 * @return o toString() de todos os descritores separados por " | "
 	 */
 	public String listaDescritorDeItensParaDoacao() {
-		String s="";
-		
-		for (Descritor i : descritores.values()) {
-			s+=i.toString()+" | ";
+		StringBuilder s = new StringBuilder();
+		try {
+			listaDescritorDeItensParaDoacao(s);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
 		}
+		return s.toString();
+	}
+	/**
+	 * Escreve o toString() de todos os descritores, separados por " | ", diretamente na saida passada. As quantidades
+	 * sao copiadas de uma vez com os ajustes de descritores bloqueados, formando um retrato consistente entre eles.
+	 * @param saida saida que recebera a listagem
+	 * @throws IOException caso a saida nao possa ser escrita
+	 */
+	public void listaDescritorDeItensParaDoacao(Appendable saida) throws IOException {
+		List<String> instantaneo = new ArrayList<String>();
 		
-		s=s.trim();
-		
-		if (!s.equals("")) {
-			s=s.substring(0, s.length()-1);
+		this.travaDosContadores.writeLock().lock();
+		try {
+			for (Descritor i : descritores.values()) {
+				instantaneo.add(i.toString());
+			}
+		} finally {
+			this.travaDosContadores.writeLock().unlock();
 		}
 		
-		return s.trim();
-		
+		boolean primeiro = true;
+		for (String descritor : instantaneo) {
+			if (!primeiro) {
+				saida.append(" | ");
+			}
+			saida.append(descritor);
+			primeiro = false;
+		}
 	}
 	/**
-	 * Percorre os itens de todos os doadores guardando eles em um TreeMap,deixando todos ordenados automaticamente, e retorna sua representacao em ordem de quantidade, maior para menor
+	 * Percorre os itens de todos os doadores na ordenacao mantida pelo controlador e retorna sua representacao em ordem de quantidade, maior para menor(e de descricao e id, em caso de empate)
 	 * @return representacao,em string, de todos os itens de todos os doadores, em ordem de quantidade decrescente, no formato : '"idDoItem" - "descritor", tags: ["tags"], quantidade: "quantidade", doador: "nomeDoDoador"/"idDoUsuario"\';
-	 * e separados por " | " 
+	 * e separados por " | "
 	 */
 	public String listaItensParaDoacao() {
-		TreeMap<Item,Usuario> lista = new TreeMap<>();
-		String s="";
+		StringBuilder s = new StringBuilder();
+		try {
+			listaItensParaDoacao(s);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return s.toString();
+	}
+	/**
+	 * Escreve a representacao de todos os itens de todos os doadores diretamente na saida passada, na mesma ordem
+	 * e no mesmo formato de listaItensParaDoacao(). A listagem e escrita a partir de um retrato dos itens, sem travas,
+	 * e as escritas feitas enquanto ela e escrita nao aparecem nela.
+	 * @param saida saida que recebera a listagem
+	 * @throws IOException caso a saida nao possa ser escrita
+	 */
+	public void listaItensParaDoacao(Appendable saida) throws IOException {
+		RetratoDeItem[] retrato = retratoDosItensParaDoacao();
 		
-		for (Usuario i : usuarios.values()) {
-			if (i.getStatus().equals("doador"))
-			for (Item j : i.getItens().values()) {
-				lista.put(j, i);
+		for (int i = 0; i < retrato.length; i++) {
+			if (i > 0) {
+				saida.append(" | ");
 			}
+			retrato[i].escreveComDonoEm(", doador: ", saida);
 		}
+	}
+	/**
+	 * Retorna o retrato de todos os itens para doacao, na ordem mantida pelo controlador. O retrato so e refeito, com
+	 * a trava dos indices pega para leitura, caso algum escritor a tenha pego desde o ultimo; como copia apenas alguns
+	 * campos de cada item, leva uma fracao do tempo de escrever a listagem.
+	 * @return os retratos dos itens para doacao em ordem de quantidade decrescente, descricao e id
+	 */
+	private RetratoDeItem[] retratoDosItensParaDoacao() {
+		return this.retratoDosItensParaDoacao.atual();
+	}
+	/**
+	 * Copia os itens para doacao para um retrato, com a trava dos indices pega para leitura
+	 * @return os retratos dos itens para doacao em ordem de quantidade decrescente, descricao e id
+	 */
+	private RetratoDeItem[] tiraRetratoDosItensParaDoacao() {
+		RetratoDeItem[] retrato = new RetratoDeItem[this.itensParaDoacaoOrdenados.size()];
+		int i = 0;
 		
-		for (Entry<Item,Usuario> entry : lista.entrySet()) {
-			s+=entry.getKey().toString() + ", doador: " + entry.getValue().getNome() + "/" + entry.getValue().getId() + " | ";
+		for (Item item : this.itensParaDoacaoOrdenados) {
+			retrato[i++] = item.retrato(this.donosDosItens.get(item.getId()));
 		}
+		return retrato;
+	}
+	/**
+	 * Retorna uma pagina da listagem de itens para doacao, na mesma ordem e no mesmo formato de listaItensParaDoacao().
+	 * A pagina comeca logo depois do item identificado pelo cursor e custa O(tamanhoDaPagina + log n).
+	 * @param tamanhoDaPagina quantidade maxima de itens da pagina
+	 * @param cursor cursor devolvido pela pagina anterior, ou null para a primeira pagina
+	 * @return a pagina com os itens e o cursor da proxima pagina
+	 */
+	public Pagina listaItensParaDoacao(int tamanhoDaPagina, String cursor) {
+		this.travaDosIndices.leitura().lock();
+		try {
+			this.validador.validaPaginacao(tamanhoDaPagina);
 		
-		s=s.trim();
-		
-		if (!s.equals("")) {
-			s=s.substring(0, s.length()-1);
-		}
+			Iterator<Item> itens = this.itensParaDoacaoOrdenados.iterator();
+			if (cursor != null) {
+				String[] campos = Cursor.decodifica(cursor, 3);
+				Item ultimo = new Item(campos[1], (int) Cursor.campoNumerico(campos[0]), "", (int) Cursor.campoNumerico(campos[2]));
+				itens = this.itensParaDoacaoOrdenados.tailSet(ultimo, false).iterator();
+			}
 		
-		return s.trim();
+			StringBuilder s = new StringBuilder();
+			Item item = null;
+			for (int i = 0; i < tamanhoDaPagina && itens.hasNext(); i++) {
+				item = itens.next();
+				if (i > 0) {
+					s.append(" | ");
+				}
+				escreveItemComDonoSemExcecao(item, ", doador: ", s);
+			}
 		
+			String proximoCursor = itens.hasNext() ? Cursor.codifica("" + item.getQuant(), item.getDescricao(), "" + item.getId()) : null;
+			return new Pagina(s.toString(), proximoCursor);
+		} finally {
+			this.travaDosIndices.leitura().unlock();
+		}
 	}
 
 	/**
-	 * Pesquisa um item pela sua descricao e guarda em um TreeMap que automaticamente deixa ordenado em ordem alfabetica
+	 * Pesquisa um item pela sua descricao no indice de trigramas das descricoes, que ja devolve os itens em ordem alfabetica de descricao(e de id, para a mesma descricao)
 	 * @param pesquisa termo que vai ser pesquisado na descricao dos itens
 	 * @return todos os itens cuja descricao contem o termo pesquisado no formato :"idDoItem" - "descritor", tags: ["tags"], quantidade: "quantidade" | 
 	 */
 	public String pesquisaItemParaDoacaoPorDescricao(String pesquisa) {
-		this.validador.validaPesquisaItemParaDoacaoPorDescricao(pesquisa);
-		
-		ArrayList<Item> itensValidos=new ArrayList<>();
-		
-		ComparadorPorDescricao comparador=new ComparadorPorDescricao();
-		
-		String s="";
-		
-		for (Usuario i : usuarios.values()) {
-			for (Item j : i.getItens().values())
-				if (j.getDescricao().toLowerCase().contains(pesquisa.toLowerCase())) {
-					itensValidos.add(j);
-			}
+		StringBuilder s = new StringBuilder();
+		try {
+			pesquisaItemParaDoacaoPorDescricao(pesquisa, s);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
 		}
+		return s.toString();
+	}
+	/**
+	 * Pesquisa um item pela sua descricao e escreve os itens encontrados diretamente na saida passada, na mesma ordem
+	 * e no mesmo formato de pesquisaItemParaDoacaoPorDescricao(String)
+	 * @param pesquisa termo que vai ser pesquisado na descricao dos itens
+	 * @param saida saida que recebera os itens encontrados
+	 * @throws IOException caso a saida nao possa ser escrita
+	 */
+	public void pesquisaItemParaDoacaoPorDescricao(String pesquisa, Appendable saida) throws IOException {
+		this.travaDosIndices.leitura().lock();
+		try {
+			this.validador.validaPesquisaItemParaDoacaoPorDescricao(pesquisa);
 		
-		Collections.sort(itensValidos, comparador);
+			boolean primeiro = true;
 		
-		for (Item i : itensValidos) {
-			s+=i.toString()+" | ";
+			for (Item i : this.itensPorDescricao.busca(pesquisa)) {
+				if (!primeiro) {
+					saida.append(" | ");
+				}
+				i.escreveEm(saida);
+				primeiro = false;
+			}
+		} finally {
+			this.travaDosIndices.leitura().unlock();
 		}
+	}
+	/**
+	 * Retorna uma pagina da pesquisa de itens por descricao, na mesma ordem e no mesmo formato de
+	 * pesquisaItemParaDoacaoPorDescricao(String). A pagina comeca logo depois do item identificado pelo cursor.
+	 * @param pesquisa termo que vai ser pesquisado na descricao dos itens
+	 * @param tamanhoDaPagina quantidade maxima de itens da pagina
+	 * @param cursor cursor devolvido pela pagina anterior, ou null para a primeira pagina
+	 * @return a pagina com os itens e o cursor da proxima pagina
+	 */
+	public Pagina pesquisaItemParaDoacaoPorDescricao(String pesquisa, int tamanhoDaPagina, String cursor) {
+		this.travaDosIndices.leitura().lock();
+		try {
+			this.validador.validaPesquisaItemParaDoacaoPorDescricao(pesquisa);
+			this.validador.validaPaginacao(tamanhoDaPagina);
+		
+			String aPartirDaDescricao = null;
+			int aPartirDoId = 0;
+			if (cursor != null) {
+				String[] campos = Cursor.decodifica(cursor, 2);
+				aPartirDaDescricao = campos[0];
+				aPartirDoId = (int) Cursor.campoNumerico(campos[1]);
+			}
 		
-		s=s.trim();
+			List<Item> encontrados = this.itensPorDescricao.busca(pesquisa, aPartirDaDescricao, aPartirDoId, tamanhoDaPagina + 1);
 		
-		if (!s.equals("")) {
-			s=s.substring(0, s.length()-1);
-		}
+			StringBuilder s = new StringBuilder();
+			for (int i = 0; i < tamanhoDaPagina && i < encontrados.size(); i++) {
+				if (i > 0) {
+					s.append(" | ");
+				}
+				s.append(encontrados.get(i).toString());
+			}
 		
-		return s.trim();
+			String proximoCursor = null;
+			if (encontrados.size() > tamanhoDaPagina) {
+				Item ultimo = encontrados.get(tamanhoDaPagina - 1);
+				proximoCursor = Cursor.codifica(ultimo.getDescricao(), "" + ultimo.getId());
+			}
+			return new Pagina(s.toString(), proximoCursor);
+		} finally {
+			this.travaDosIndices.leitura().unlock();
+		}
 	}
 	
 	/**
-	 * Percorre os itens de todos os doadores e retorna sua representacao em ordem de id do item, de menor id para maior id.
+	 * Percorre a lista de itens necessarios, mantida em ordem de id, e retorna sua representacao em ordem de id do item, de menor id para maior id.
+	 * Caso nao exista nenhum item necessario, retorna uma String vazia.
 	 *
 	 * @return representacao, em string, de todos os itens de todos os receptores, em ordem de id crescente, no formato : "idDoItem" - "descritor", tags: ["tags"], quantidade: "quantidade", receptor: "nomeDoReceptor"/"idDoUsuario"\ | 
 	 */
 	public String listaItensNecessarios() {
-		
-		ArrayList<String[]> listaParaImpressao = new ArrayList<>();
-		String s="";
-		
-		for (Usuario i : usuarios.values()) {
-			if (!(i.getStatus().equals("receptor"))) {
-				continue;
-			} else {
-				for (Item o : i.getItens().values()) {
-					String[] ArrayDeInformacoes = new String[2];
-					ArrayDeInformacoes[0] = "" + o.getId();
-					ArrayDeInformacoes[1] = " - " + o.getDescricaoETagsEQuantidades() + ", Receptor: " + i.getNome() + "/" + i.getId() + " | ";
-					listaParaImpressao.add(ArrayDeInformacoes);
+		StringBuilder s = new StringBuilder();
+		try {
+			listaItensNecessarios(s);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return s.toString();
+	}
+	/**
+	 * Escreve a representacao de todos os itens necessarios diretamente na saida passada, na mesma ordem e no mesmo
+	 * formato de listaItensNecessarios()
+	 * @param saida saida que recebera a listagem
+	 * @throws IOException caso a saida nao possa ser escrita
+	 */
+	public void listaItensNecessarios(Appendable saida) throws IOException {
+		this.travaDosIndices.leitura().lock();
+		try {
+			for (int i = 0; i < this.itensNecessariosOrdenados.tamanho(); i++) {
+				if (i > 0) {
+					saida.append(" | ");
 				}
+				escreveItemComDono(this.itensNecessariosOrdenados.valorNaPosicao(i), ", Receptor: ", saida);
 			}
+		} finally {
+			this.travaDosIndices.leitura().unlock();
 		}
+	}
+	/**
+	 * Retorna uma pagina da listagem de itens necessarios, na mesma ordem e no mesmo formato de listaItensNecessarios().
+	 * A pagina comeca no primeiro item com id maior que o do cursor e custa O(tamanhoDaPagina + log n).
+	 * @param tamanhoDaPagina quantidade maxima de itens da pagina
+	 * @param cursor cursor devolvido pela pagina anterior, ou null para a primeira pagina
+	 * @return a pagina com os itens e o cursor da proxima pagina
+	 */
+	public Pagina listaItensNecessarios(int tamanhoDaPagina, String cursor) {
+		this.travaDosIndices.leitura().lock();
+		try {
+			this.validador.validaPaginacao(tamanhoDaPagina);
+		
+			int inicio = 0;
+			if (cursor != null) {
+				int ultimoId = (int) Cursor.campoNumerico(Cursor.decodifica(cursor, 1)[0]);
+				inicio = this.itensNecessariosOrdenados.posicaoDe(ultimoId);
+				if (inicio < this.itensNecessariosOrdenados.tamanho() && this.itensNecessariosOrdenados.idNaPosicao(inicio) == ultimoId) {
+					inicio += 1;
+				}
+			}
 		
-		Collections.sort(listaParaImpressao, new ComparadorDeArrayDeInformacoesDeItem());
+			int fim = (int) Math.min((long) inicio + tamanhoDaPagina, this.itensNecessariosOrdenados.tamanho());
+			StringBuilder s = new StringBuilder();
+			for (int i = inicio; i < fim; i++) {
+				if (i > inicio) {
+					s.append(" | ");
+				}
+				escreveItemComDonoSemExcecao(this.itensNecessariosOrdenados.valorNaPosicao(i), ", Receptor: ", s);
+			}
 		
-		for (String[] i: listaParaImpressao) {
-			s += i[0] + i[1];
+			String proximoCursor = fim < this.itensNecessariosOrdenados.tamanho() ? Cursor.codifica("" + this.itensNecessariosOrdenados.idNaPosicao(fim - 1)) : null;
+			return new Pagina(s.toString(), proximoCursor);
+		} finally {
+			this.travaDosIndices.leitura().unlock();
 		}
-		
-		s = s.substring(0, s.length() - 3);
-		s.trim();
-		
-		return s;
 	}
 	/**
-	 * Percorre todos os itens doados e retorna uma representacao em String dos itens que possuem a mesma descricao do item necessario
+	 * Escreve na saida a representacao de um item seguida do nome e do id do seu dono, no formato:
+	 *  '"idDoItem" - "descricao", tags: ["tags"], quantidade: "quantidade""rotulo""nomeDoDono"/"idDoDono"'
+	 * @param item item a ser escrito
+	 * @param rotulo texto que separa o item do seu dono, como ", doador: "
+	 * @param saida saida que recebera a representacao
+	 * @throws IOException caso a saida nao possa ser escrita
+	 */
+	private void escreveItemComDono(Item item, String rotulo, Appendable saida) throws IOException {
+		Usuario dono = this.donosDosItens.get(item.getId());
+		item.escreveEm(saida);
+		saida.append(rotulo).append(dono.getNome()).append("/").append(dono.getId());
+	}
+	/**
+	 * Escreve em um StringBuilder a representacao de um item seguida do nome e do id do seu dono, como em escreveItemComDono
+	 * @param item item a ser escrito
+	 * @param rotulo texto que separa o item do seu dono, como ", doador: "
+	 * @param saida StringBuilder que recebera a representacao
+	 */
+	private void escreveItemComDonoSemExcecao(Item item, String rotulo, StringBuilder saida) {
+		try {
+			escreveItemComDono(item, rotulo, saida);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	/**
+	 * Percorre os itens doados que possuem a mesma descricao do item necessario, a partir do indice de itens por descritor, e retorna uma representacao em String deles
 	 *  ordenados pelos pontos de match(os que possuem o melhor match vem primeiro).
 	 * @param idReceptor id do usuario receptor que guarda o item necessario
 	 * @param idItemNecessario id do item necessario procurado
@@ -431,39 +1156,132 @@ public class Controller {
 	 * e separados por " | "
 	 */
 	public String match(String idReceptor, int idItemNecessario) {
-		this.validador.validaMatch(idReceptor,idItemNecessario,this.usuarios);
+		StringBuilder retorno = new StringBuilder();
+		try {
+			match(idReceptor, idItemNecessario, retorno);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return retorno.toString();
+	}
+	/**
+	 * Escreve os itens doados que possuem a mesma descricao do item necessario diretamente na saida passada, na mesma
+	 *  ordem e no mesmo formato de match(String, int)
+	 * @param idReceptor id do usuario receptor que guarda o item necessario
+	 * @param idItemNecessario id do item necessario procurado
+	 * @param saida saida que recebera os itens encontrados
+	 * @throws IOException caso a saida nao possa ser escrita
+	 */
+	public void match(String idReceptor, int idItemNecessario, Appendable saida) throws IOException {
+		this.travaDosIndices.leitura().lock();
+		try {
+			this.validador.validaMatch(idReceptor,idItemNecessario,this.usuarios);
+		
+			Item itemNecessario = this.usuarios.get(idReceptor).buscaItem(idItemNecessario);
 		
-		Item itemNecessario = this.usuarios.get(idReceptor).getItens().get(idItemNecessario);
+			escreveCandidatos(melhoresCandidatos(itemNecessario, Integer.MAX_VALUE), saida);
+		} finally {
+			this.travaDosIndices.leitura().unlock();
+		}
+	}
+	/**
+	 * Retorna apenas os k itens doados com melhor match com o item necessario, na mesma ordem e no mesmo formato de match(String, int)
+	 * @param idReceptor id do usuario receptor que guarda o item necessario
+	 * @param idItemNecessario id do item necessario procurado
+	 * @param k quantidade maxima de itens devolvidos
+	 * @return uma representacao dos k itens doados de maior ponto de match, separados por " | "
+	 */
+	public String match(String idReceptor, int idItemNecessario, int k) {
+		this.travaDosIndices.leitura().lock();
+		try {
+			this.validador.validaMatch(idReceptor,idItemNecessario,this.usuarios);
+			this.validador.validaQuantidadeDoMatch(k);
 		
-		ArrayList<TuplaDePontosDeMatchComItemEUsuario> canditatosADoacao = new ArrayList<>();
+			Item itemNecessario = this.usuarios.get(idReceptor).buscaItem(idItemNecessario);
 		
-		for (Usuario u : this.usuarios.values()) {
-			if (u.getStatus().equals("receptor")) {
-				continue;
-			}
-			for (Item i : u.getItens().values()) {
-				if (!(i.getDescricao().equals(itemNecessario.getDescricao()))) {
-					continue;
-				}
-				TuplaDePontosDeMatchComItemEUsuario pontosECandidatoADoacao = new TuplaDePontosDeMatchComItemEUsuario(calcularPontosDeMatch(itemNecessario,i),i,u);
-				canditatosADoacao.add(pontosECandidatoADoacao);
+			StringBuilder retorno = new StringBuilder();
+			try {
+				escreveCandidatos(melhoresCandidatos(itemNecessario, k), retorno);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
 			}
+			return retorno.toString();
+		} finally {
+			this.travaDosIndices.leitura().unlock();
 		}
+	}
+	/**
+	 * Seleciona os k itens doados com melhor match com o item necessario
+	 * @param itemNecessario item necessario procurado
+	 * @param k quantidade maxima de candidatos
+	 * @return os candidatos selecionados, do melhor para o pior match
+	 */
+	private List<TuplaDePontosDeMatchComItemEUsuario> melhoresCandidatos(Item itemNecessario, int k) {
+		Map<Integer,Item> itensDoDescritor = this.itensDoadosPorDescritor.get(itemNecessario.getDescricao());
 		
-		Collections.sort(canditatosADoacao);
-		
-		String retorno = "";
-		for (TuplaDePontosDeMatchComItemEUsuario tupla : canditatosADoacao) {
-			retorno += tupla.getItem().getId() + " - " + tupla.getItem().getDescricaoETagsEQuantidades() + ", doador: " + tupla.getUsuario().getNome() + "/" + tupla.getUsuario().getId() + " | ";
+		if (itensDoDescritor == null) {
+			return new ArrayList<TuplaDePontosDeMatchComItemEUsuario>();
 		}
 		
-		if (!(retorno.equals(""))){
-			retorno = retorno.substring(0, retorno.length() - 3);
+		return melhoresCandidatos(itemNecessario, itensDoDescritor.values(), k);
+	}
+	/**
+	 * Seleciona, entre os candidatos passados, os k com melhor match com o item necessario. Os candidatos sao percorridos
+	 *  em ordem crescente de id, mantendo um heap de tamanho k cujo topo e o pior candidato guardado: como em caso de
+	 *  empate o menor id vem antes, um candidato so entra no heap cheio se tiver mais pontos que o topo, e a busca para
+	 *  assim que o topo alcanca a pontuacao maxima possivel para o item necessario.
+	 * @param itemNecessario item necessario procurado
+	 * @param candidatos itens doados com a mesma descricao, em ordem crescente de id
+	 * @param k quantidade maxima de candidatos
+	 * @return os candidatos selecionados, do melhor para o pior match
+	 */
+	private List<TuplaDePontosDeMatchComItemEUsuario> melhoresCandidatos(Item itemNecessario, Collection<Item> candidatos, int k) {
+		if (k >= candidatos.size()) {
+			List<TuplaDePontosDeMatchComItemEUsuario> canditatosADoacao = new ArrayList<>(candidatos.size());
+			for (Item i : candidatos) {
+				canditatosADoacao.add(new TuplaDePontosDeMatchComItemEUsuario(calcularPontosDeMatch(itemNecessario,i),i,this.donosDosItens.get(i.getId())));
+			}
+			Collections.sort(canditatosADoacao);
+			return canditatosADoacao;
 		}
 		
-		return retorno;
+		int pontosMaximos = 20 + itemNecessario.pontosMaximosDeMatchDasTags();
+		PriorityQueue<TuplaDePontosDeMatchComItemEUsuario> melhores = new PriorityQueue<>(k, Collections.reverseOrder());
 		
+		for (Item i : candidatos) {
+			if (melhores.size() == k && melhores.peek().getPontosDeMatch() >= pontosMaximos) {
+				break;
+			}
+			
+			int pontos = calcularPontosDeMatch(itemNecessario,i);
+			
+			if (melhores.size() < k) {
+				melhores.add(new TuplaDePontosDeMatchComItemEUsuario(pontos,i,this.donosDosItens.get(i.getId())));
+			} else if (pontos > melhores.peek().getPontosDeMatch()) {
+				melhores.poll();
+				melhores.add(new TuplaDePontosDeMatchComItemEUsuario(pontos,i,this.donosDosItens.get(i.getId())));
+			}
+		}
 		
+		List<TuplaDePontosDeMatchComItemEUsuario> canditatosADoacao = new ArrayList<>(melhores);
+		Collections.sort(canditatosADoacao);
+		return canditatosADoacao;
+	}
+	/**
+	 * Escreve na saida os itens dos candidatos passados, com seus doadores, separados por " | "
+	 * @param canditatosADoacao candidatos a serem escritos, ja ordenados
+	 * @param saida saida que recebera os itens
+	 * @throws IOException caso a saida nao possa ser escrita
+	 */
+	private void escreveCandidatos(List<TuplaDePontosDeMatchComItemEUsuario> canditatosADoacao, Appendable saida) throws IOException {
+		boolean primeiro = true;
+		for (TuplaDePontosDeMatchComItemEUsuario tupla : canditatosADoacao) {
+			if (!primeiro) {
+				saida.append(" | ");
+			}
+			escreveItemComDono(tupla.getItem(), ", doador: ", saida);
+			primeiro = false;
+		}
 	}
 	/**
 	 * Calcula os pontos de match entre dois itens e retorna o valor calculado.
@@ -478,31 +1296,7 @@ public class Controller {
 			pontos += 20;
 		}
 		
-		String[] TagsDeItemNecessario = itemNecessario.getTags().split(",");
-		String[] TagsDeCandidatoADoacao = candidatoADoacao.getTags().split(",");
-		
-		for (int i = 0; i < TagsDeItemNecessario.length; i++) {
-			if (Arrays.asList(TagsDeCandidatoADoacao).contains(TagsDeItemNecessario[i])) {
-				pontos += 5;
-			}
-		}
-		
-		if (TagsDeItemNecessario.length <= TagsDeCandidatoADoacao.length) {
-			for (int i = 0; i < TagsDeItemNecessario.length; i++) {
-				if (TagsDeItemNecessario[i].equalsIgnoreCase(TagsDeCandidatoADoacao[i])) {
-					pontos += 5;
-				}
-			}
-		}
-			
-		else {
-			for (int i = 0; i < TagsDeCandidatoADoacao.length; i++) {
-				if (TagsDeItemNecessario[i].equalsIgnoreCase(TagsDeCandidatoADoacao[i])) {
-					pontos += 5;
-				}
-		}
-	}
-			
+		pontos += itemNecessario.pontosDeMatchDasTags(candidatoADoacao);
 		
 		return pontos;
 	}
@@ -515,190 +1309,711 @@ public class Controller {
 	 * @return uma representacao em String da doacao no formato '"data" - doador: "nomeDoDoador"/"idDoDoador", item: "descricaoDoItem", quantidade: "quantidadeDoada", receptor: "nomeDoReceptor"/"idDoReceptor"'
 	 */
 	public String realizaDoacao(int idNecessario, int idDoado, String data) {
+		return realizaDoacao(idNecessario, idDoado, data, -1);
+	}
+	/**
+	 * Efetua uma doacao como em realizaDoacao, podendo usar um id ja definido para a doacao
+	 * @param idNecessario id do item requisitado
+	 * @param idDoado id do item que sera doado
+	 * @param data data em que a doacao foi realizada
+	 * @param idDaDoacao id da doacao, como o id guardado no diario de operacoes, ou -1 para usar o proximo id
+	 * @return uma representacao em String da doacao
+	 */
+	private String realizaDoacao(int idNecessario, int idDoado, String data, long idDaDoacao) {
 		this.validador.validaRealizaDoacao(idNecessario,idDoado,data);		
-			
-		String idDoador = "";
-		String idReceptor = "";
-		for (Usuario i : usuarios.values()) {
-			for (Item j : i.getItens().values()) {
-				if (j.getId() == idDoado) {
-					idDoador = i.getId();
-				}
-				
-				else if (j.getId() == idNecessario) {
-					idReceptor = i.getId();
+		
+		Doacao doacao = null;
+		RegistroPendente registro = null;
+		List<Integer> idsDosItens = Arrays.asList(idNecessario, idDoado);
+		while (doacao == null) {
+			List<String> envolvidos = idsDosDonos(idsDosItens);
+			this.travas.travaEscrita(envolvidos);
+			try {
+				if (idsDosDonos(idsDosItens).equals(envolvidos)) {
+					Item[] itens = itensDaDoacao(idNecessario, idDoado);
+					long id = idDaDoacao >= 0 ? idDaDoacao : this.doacoes.reservaIds(1);
+					registro = anota(REGISTRO_REALIZA_DOACAO, idNecessario, idDoado, data, id);
+					doacao = efetuaDoacao(itens[0], itens[1], Math.min(itens[0].getQuant(), itens[1].getQuant()), data, id);
 				}
+			} finally {
+				this.travas.destravaEscrita(envolvidos);
 			}
 		}
+		confirma(registro);
+		return doacao.toString();
+	}
+	/**
+	 * Busca os itens de uma doacao ja com as faixas do doador e do receptor travadas, verificando de novo a existencia
+	 * dos itens e se as suas descricoes sao iguais
+	 * @param idNecessario id do item requisitado
+	 * @param idDoado id do item que sera doado
+	 * @return o item necessario e o item doado, nessa ordem
+	 */
+	private Item[] itensDaDoacao(int idNecessario, int idDoado) {
+		if (idNecessario == idDoado || !this.donosDosItens.containsKey(idNecessario)) throw new IllegalArgumentException("Item nao encontrado: " + idNecessario + ".");
 		
-		if (idReceptor.equals("")) throw new IllegalArgumentException("Item nao encontrado: " + idNecessario + ".");
+		if (!this.donosDosItens.containsKey(idDoado)) throw new IllegalArgumentException("Item nao encontrado: " + idDoado + ".");
 		
-		if (idDoador.equals("")) throw new IllegalArgumentException("Item nao encontrado: " + idDoado + ".");
+		Item itemDoado = this.donosDosItens.get(idDoado).buscaItem(idDoado);
+		Item itemNecessario = this.donosDosItens.get(idNecessario).buscaItem(idNecessario);
 		
-		if (!usuarios.get(idDoador).getItens().get(idDoado).getDescricao().equals(usuarios.get(idReceptor).getItens().get(idNecessario).getDescricao())) {
+		if (!itemDoado.getDescricao().equals(itemNecessario.getDescricao())) {
 			throw new IllegalArgumentException("Os itens nao tem descricoes iguais.");
 		}
 		
-		String doador = usuarios.get(idDoador).getNome()+"/"+usuarios.get(idDoador).getId();
-		String receptor = usuarios.get(idReceptor).getNome()+"/"+usuarios.get(idReceptor).getId();
-		String descricao = usuarios.get(idDoador).getItens().get(idDoado).getDescricao();
-		int qtd = Math.min(usuarios.get(idDoador).getItens().get(idDoado).getQuant(), usuarios.get(idReceptor).getItens().get(idNecessario).getQuant());
+		return new Item[] {itemNecessario, itemDoado};
+	}
+	/**
+	 * Retorna os ids dos donos dos itens passados que existem no sistema. Como um item nunca muda de dono, basta travar
+	 * as faixas desses donos e conferir, ja com as faixas travadas, que nenhum item apareceu ou sumiu no meio tempo.
+	 * @param idsDosItens ids dos itens
+	 * @return os ids dos donos dos itens encontrados
+	 */
+	private List<String> idsDosDonos(Collection<Integer> idsDosItens) {
+		List<String> donos = new ArrayList<String>();
+		for (Integer id : idsDosItens) {
+			Usuario dono = this.donosDosItens.get(id);
+			if (dono != null) {
+				donos.add(dono.getId());
+			}
+		}
+		return donos;
+	}
+	/**
+	 * Realiza um lote de doacoes com o mesmo resultado de chamar realizaDoacao para cada pedido, em ordem, mas de forma
+	 *  atomica: todo o lote e validado antes, simulando as quantidades que cada doacao deixa nos itens, e caso algum
+	 *  pedido seja invalido nenhuma doacao e realizada. Depois da validacao as doacoes sao registradas e cada item
+	 *  envolvido tem sua quantidade(e a do seu descritor) alterada uma unica vez, para a quantidade final do lote.
+	 * @param pedidos pedidos de doacao, na ordem em que devem ser realizados
+	 * @return as representacoes em String das doacoes realizadas, na ordem dos pedidos
+	 */
+	public List<String> realizaDoacoes(List<PedidoDeDoacao> pedidos) {
+		return realizaDoacoes(pedidos, null);
+	}
+	/**
+	 * Realiza um lote de doacoes como em realizaDoacoes, podendo usar ids ja definidos para as doacoes
+	 * @param pedidos pedidos de doacao, na ordem em que devem ser realizados
+	 * @param idsDasDoacoes ids das doacoes de cada pedido, como os ids guardados no diario de operacoes, ou null para
+	 *  usar os proximos ids
+	 * @return as representacoes em String das doacoes realizadas, na ordem dos pedidos
+	 */
+	private List<String> realizaDoacoes(List<PedidoDeDoacao> pedidos, long[] idsDasDoacoes) {
+		this.validador.validaRealizaDoacoes(pedidos);
+		
+		List<Integer> idsDosItens = new ArrayList<Integer>();
+		for (PedidoDeDoacao pedido : pedidos) {
+			if (pedido != null) {
+				idsDosItens.add(pedido.getIdNecessario());
+				idsDosItens.add(pedido.getIdDoado());
+			}
+		}
+		
+		List<Doacao> realizadas = new ArrayList<Doacao>(pedidos.size());
+		RegistroPendente registro = null;
+		boolean realizado = false;
+		while (!realizado) {
+			List<String> envolvidos = idsDosDonos(idsDosItens);
+			this.travas.travaEscrita(envolvidos);
+			try {
+				if (idsDosDonos(idsDosItens).equals(envolvidos)) {
+					registro = realizaDoacoesComTravas(pedidos, idsDasDoacoes, realizadas);
+					realizado = true;
+				}
+			} finally {
+				this.travas.destravaEscrita(envolvidos);
+			}
+		}
+		confirma(registro);
+		
+		List<String> representacoes = new ArrayList<String>(realizadas.size());
+		for (Doacao doacao : realizadas) {
+			representacoes.add(doacao.toString());
+		}
+		return representacoes;
+	}
+	/**
+	 * Realiza um lote de doacoes ja com as faixas de todos os usuarios envolvidos travadas. O lote e anotado no diario
+	 * de operacoes depois de validado e antes de qualquer doacao ser efetuada.
+	 * @param pedidos pedidos de doacao, na ordem em que devem ser realizados
+	 * @param idsDasDoacoes ids das doacoes de cada pedido, ou null para usar os proximos ids
+	 * @param realizadas lista que recebe as doacoes realizadas, na ordem dos pedidos
+	 * @return o registro do lote no diario, ou null caso o diario nao esteja ativo ou o lote seja vazio
+	 */
+	private RegistroPendente realizaDoacoesComTravas(List<PedidoDeDoacao> pedidos, long[] idsDasDoacoes, List<Doacao> realizadas) {
+		Map<Integer,Integer> quantidadesSimuladas = new LinkedHashMap<Integer,Integer>();
+		Item[][] itensDosPedidos = new Item[pedidos.size()][];
+		int[] quantidadesDosPedidos = new int[pedidos.size()];
+		
+		for (int p = 0; p < pedidos.size(); p++) {
+			PedidoDeDoacao pedido = pedidos.get(p);
+			try {
+				this.validador.validaPedidoDeDoacao(pedido);
+				
+				Item itemNecessario = itemDisponivel(pedido.getIdNecessario(), quantidadesSimuladas);
+				if (pedido.getIdNecessario() == pedido.getIdDoado() || itemNecessario == null) throw new IllegalArgumentException("Item nao encontrado: " + pedido.getIdNecessario() + ".");
+				
+				Item itemDoado = itemDisponivel(pedido.getIdDoado(), quantidadesSimuladas);
+				if (itemDoado == null) throw new IllegalArgumentException("Item nao encontrado: " + pedido.getIdDoado() + ".");
+				
+				if (!itemDoado.getDescricao().equals(itemNecessario.getDescricao())) {
+					throw new IllegalArgumentException("Os itens nao tem descricoes iguais.");
+				}
+				
+				int necessario = quantidadesSimuladas.containsKey(itemNecessario.getId()) ? quantidadesSimuladas.get(itemNecessario.getId()) : itemNecessario.getQuant();
+				int doado = quantidadesSimuladas.containsKey(itemDoado.getId()) ? quantidadesSimuladas.get(itemDoado.getId()) : itemDoado.getQuant();
+				int qtd = Math.min(doado, necessario);
+				
+				quantidadesSimuladas.put(itemNecessario.getId(), necessario - qtd);
+				quantidadesSimuladas.put(itemDoado.getId(), doado - qtd);
+				itensDosPedidos[p] = new Item[] {itemNecessario, itemDoado};
+				quantidadesDosPedidos[p] = qtd;
+			} catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException("Pedido de doacao " + p + ": " + e.getMessage());
+			}
+		}
 		
-		doacoes.put(new Doacao(data, usuarios.get(idDoador).getItens().get(idDoado).getDescricao()), data + " - doador: " + doador + ", item: " + descricao + ", quantidade: " + qtd + ", receptor: " + receptor);
+		RegistroPendente registro = null;
+		long[] ids = new long[pedidos.size()];
+		long primeiroId = idsDasDoacoes == null ? this.doacoes.reservaIds(pedidos.size()) : -1;
+		Object[] campos = new Object[1 + 4 * pedidos.size()];
+		campos[0] = REGISTRO_REALIZA_DOACOES;
+		for (int p = 0; p < pedidos.size(); p++) {
+			ids[p] = idsDasDoacoes == null ? primeiroId + p : idsDasDoacoes[p];
+			campos[1 + 4 * p] = pedidos.get(p).getIdNecessario();
+			campos[2 + 4 * p] = pedidos.get(p).getIdDoado();
+			campos[3 + 4 * p] = pedidos.get(p).getData();
+			campos[4 + 4 * p] = ids[p];
+		}
+		if (!pedidos.isEmpty()) {
+			registro = anota(campos);
+		}
+		
+		this.travaDosIndices.escrita().lock();
+		try {
+			for (int p = 0; p < pedidos.size(); p++) {
+				Usuario receptor = this.donosDosItens.get(itensDosPedidos[p][0].getId());
+				Usuario doador = this.donosDosItens.get(itensDosPedidos[p][1].getId());
+				realizadas.add(this.doacoes.registra(ids[p], pedidos.get(p).getData(), itensDosPedidos[p][1].getDescricao(), doador.getNome()+"/"+doador.getId(), receptor.getNome()+"/"+receptor.getId(), quantidadesDosPedidos[p]));
+			}
+			
+			for (Entry<Integer,Integer> quantidadeFinal : quantidadesSimuladas.entrySet()) {
+				Usuario dono = this.donosDosItens.get(quantidadeFinal.getKey());
+				Item item = dono.buscaItem(quantidadeFinal.getKey());
+				
+				if (quantidadeFinal.getValue() > 0) {
+					mudaQuantidade(dono, item, quantidadeFinal.getValue());
+				}
+				else {
+					retiraItem(dono, item);
+				}
+			}
+		} finally {
+			this.travaDosIndices.escrita().unlock();
+		}
 		
-		int newQtdDoado = usuarios.get(idDoador).getItens().get(idDoado).getQuant() - qtd;
-		int newQtdNecessario = usuarios.get(idReceptor).getItens().get(idNecessario).getQuant() - qtd;
+		return registro;
+	}
+	/**
+	 * Retorna um item do sistema que ainda nao foi esgotado pelas doacoes ja simuladas de um lote
+	 * @param id id do item
+	 * @param quantidadesSimuladas quantidades que os itens ja envolvidos no lote terao ao final das doacoes simuladas
+	 * @return o item, ou null caso ele nao exista ou ja tenha sido esgotado no lote
+	 */
+	private Item itemDisponivel(int id, Map<Integer,Integer> quantidadesSimuladas) {
+		if (!this.donosDosItens.containsKey(id) || (quantidadesSimuladas.containsKey(id) && quantidadesSimuladas.get(id) == 0)) {
+			return null;
+		}
+		return this.donosDosItens.get(id).buscaItem(id);
+	}
+	/**
+	 * Efetua uma doacao ja validada de uma quantidade do item doado para o item necessario: registra a doacao e
+	 *  diminui a quantidade dos dois itens, retirando do sistema os que chegarem a zero e atualizando o descritor
+	 *  do item doado
+	 * @param itemNecessario item requisitado
+	 * @param itemDoado item que sera doado
+	 * @param quantidade quantidade doada, que nao pode ser maior que a quantidade de nenhum dos dois itens
+	 * @param data data em que a doacao foi realizada
+	 * @param idDaDoacao id da doacao, ou -1 para usar o proximo id
+	 * @return a doacao registrada
+	 */
+	private Doacao efetuaDoacao(Item itemNecessario, Item itemDoado, int quantidade, String data, long idDaDoacao) {
+		Usuario doador = this.donosDosItens.get(itemDoado.getId());
+		Usuario receptor = this.donosDosItens.get(itemNecessario.getId());
 		
-		if (newQtdDoado > 0) atualizaItem(idDoado, idDoador, newQtdDoado, "");
-		else removeItem(idDoado, idDoador);
+		this.travaDosIndices.escrita().lock();
+		try {
+			Doacao doacao = this.doacoes.registra(idDaDoacao, data, itemDoado.getDescricao(), doador.getNome()+"/"+doador.getId(), receptor.getNome()+"/"+receptor.getId(), quantidade);
+			
+			diminuiQuantidade(doador, itemDoado, quantidade);
+			diminuiQuantidade(receptor, itemNecessario, quantidade);
+			
+			return doacao;
+		} finally {
+			this.travaDosIndices.escrita().unlock();
+		}
+	}
+	/**
+	 * Diminui a quantidade de um item, retirando o item do sistema caso a quantidade chegue a zero
+	 * @param usuario usuario que possui o item
+	 * @param item item a ser modificado
+	 * @param quantidade quantidade a ser diminuida
+	 */
+	private void diminuiQuantidade(Usuario usuario, Item item, int quantidade) {
+		if (item.getQuant() > quantidade) {
+			mudaQuantidade(usuario, item, item.getQuant() - quantidade);
+		}
+		else {
+			retiraItem(usuario, item);
+		}
+	}
+	/**
+	 * Calcula e efetua, em lote, um plano de doacoes entre todos os itens necessarios e todos os itens doados do
+	 *  sistema, buscando a maior soma de pontos de match multiplicados pela quantidade doada. Os itens sao agrupados
+	 *  pela descricao, e como os grupos sao independentes o plano de cada um e calculado em paralelo no ForkJoinPool
+	 *  comum; as doacoes sao efetuadas depois que todos os planos estiverem prontos, na ordem das descricoes, dos
+	 *  itens necessarios e dos itens doados. Caso algum grupo seja grande demais para o alocador(veja
+	 *  AlocadorDeDoacoes.MAXIMO_DE_PARES), nenhuma doacao e efetuada.
+	 * @param modo modo de alocacao: GULOSO, LEILAO ou FLUXO_DE_CUSTO_MINIMO
+	 * @param data data em que as doacoes foram realizadas
+	 * @return as representacoes das doacoes efetuadas, na ordem em que foram efetuadas e separadas por " | "
+	 */
+	public String alocaDoacoes(String modo, String data) {
+		String retorno;
+		RegistroPendente registro = null;
+		this.travas.travaTodas();
+		try {
+			this.validador.validaAlocaDoacoes(modo, data);
+		
+			Map<String,List<Item>> necessariosPorDescricao = new TreeMap<String,List<Item>>();
+			for (int i = 0; i < this.itensNecessariosOrdenados.tamanho(); i++) {
+				Item item = this.itensNecessariosOrdenados.valorNaPosicao(i);
+				if (this.itensDoadosPorDescritor.containsKey(item.getDescricao())) {
+					if (!necessariosPorDescricao.containsKey(item.getDescricao())) {
+						necessariosPorDescricao.put(item.getDescricao(), new ArrayList<Item>());
+					}
+					necessariosPorDescricao.get(item.getDescricao()).add(item);
+				}
+			}
 		
-		if (newQtdNecessario > 0) atualizaItem(idNecessario, idReceptor, newQtdNecessario, "");
-		else removeItem(idNecessario, idReceptor);
+			AlocadorDeDoacoes alocador = new AlocadorDeDoacoes(modo);
+			List<Item[]> necessariosDosGrupos = new ArrayList<Item[]>();
+			List<Item[]> doadosDosGrupos = new ArrayList<Item[]>();
+			List<ForkJoinTask<int[][]>> planos = new ArrayList<ForkJoinTask<int[][]>>();
+		
+			for (List<Item> grupo : necessariosPorDescricao.values()) {
+				Item[] necessarios = grupo.toArray(new Item[grupo.size()]);
+				Item[] doados = this.itensDoadosPorDescritor.get(necessarios[0].getDescricao()).values().toArray(new Item[0]);
+				AlocadorDeDoacoes.validaTamanhoDoGrupo(necessarios.length, doados.length);
+				necessariosDosGrupos.add(necessarios);
+				doadosDosGrupos.add(doados);
+			
+				planos.add(ForkJoinPool.commonPool().submit(() -> {
+					int[] necessidades = new int[necessarios.length];
+					int[] ofertas = new int[doados.length];
+					int[][] pontos = new int[necessarios.length][doados.length];
+					for (int i = 0; i < necessarios.length; i++) {
+						necessidades[i] = necessarios[i].getQuant();
+						for (int j = 0; j < doados.length; j++) {
+							pontos[i][j] = calcularPontosDeMatch(necessarios[i], doados[j]);
+						}
+					}
+					for (int j = 0; j < doados.length; j++) {
+						ofertas[j] = doados[j].getQuant();
+					}
+					return alocador.aloca(necessidades, ofertas, pontos);
+				}));
+			}
 		
-		return  data + " - doador: " + doador + ", item: " + descricao + ", quantidade: " + qtd + ", receptor: " + receptor;
-	
+			List<int[][]> planosCalculados = new ArrayList<int[][]>(planos.size());
+			for (ForkJoinTask<int[][]> plano : planos) {
+				planosCalculados.add(plano.join());
+			}
+			
+			List<Item[]> pares = new ArrayList<Item[]>();
+			List<Integer> quantidades = new ArrayList<Integer>();
+			for (int g = 0; g < planosCalculados.size(); g++) {
+				int[][] plano = planosCalculados.get(g);
+				Item[] necessarios = necessariosDosGrupos.get(g);
+				Item[] doados = doadosDosGrupos.get(g);
+			
+				for (int i = 0; i < necessarios.length; i++) {
+					for (int j = 0; j < doados.length; j++) {
+						if (plano[i][j] > 0) {
+							pares.add(new Item[] {necessarios[i], doados[j]});
+							quantidades.add(plano[i][j]);
+						}
+					}
+				}
+			}
+			
+			long primeiroId = this.doacoes.reservaIds(pares.size());
+			if (!pares.isEmpty()) {
+				List<Object> campos = new ArrayList<Object>();
+				campos.add(REGISTRO_EFETUA_DOACOES);
+				campos.add(data);
+				for (int d = 0; d < pares.size(); d++) {
+					Collections.addAll(campos, pares.get(d)[0].getId(), pares.get(d)[1].getId(), quantidades.get(d), primeiroId + d);
+				}
+				registro = anota(campos.toArray());
+			}
+			
+			StringBuilder efetuadas = new StringBuilder();
+			for (int d = 0; d < pares.size(); d++) {
+				if (efetuadas.length() > 0) {
+					efetuadas.append(" | ");
+				}
+				efetuadas.append(efetuaDoacao(pares.get(d)[0], pares.get(d)[1], quantidades.get(d), data, primeiroId + d).toString());
+			}
+			retorno = efetuadas.toString();
+		} finally {
+			this.travas.destravaTodas();
+		}
+		confirma(registro);
+		return retorno;
+	}
+	/**
+	 * Refaz as doacoes de um plano de alocacao guardado no diario de operacoes, sem calcular o plano de novo
+	 * @param campos campos do registro: o tipo, a data e, para cada doacao, o id do item necessario, o id do item
+	 *  doado, a quantidade doada e o id da doacao
+	 */
+	private void refazDoacoesAlocadas(Object[] campos) {
+		String data = (String) campos[1];
+		for (int i = 2; i + 3 < campos.length; i += 4) {
+			int idNecessario = ((Long) campos[i]).intValue();
+			int idDoado = ((Long) campos[i + 1]).intValue();
+			Item itemNecessario = this.donosDosItens.get(idNecessario).buscaItem(idNecessario);
+			Item itemDoado = this.donosDosItens.get(idDoado).buscaItem(idDoado);
+			efetuaDoacao(itemNecessario, itemDoado, ((Long) campos[i + 2]).intValue(), data, (Long) campos[i + 3]);
+		}
 	}
 	/**
 	 * lista todas as doacoes realizadas
-	 * @return retorna as representacoes de doacoes na ordem de data e caso tenham a mesma data, a descricao.
+	 * @return retorna as representacoes de doacoes na ordem de data e caso tenham a mesma data, a descricao(e, por ultimo, a ordem em que foram realizadas).
 	 */
 	public String listaDoacoes() {
-		ArrayList<String> lista =new ArrayList<>();
+		StringBuilder lista = new StringBuilder();
+		try {
+			listaDoacoes(lista);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return lista.toString();
+	}
+	/**
+	 * Escreve todas as doacoes realizadas diretamente na saida passada, na mesma ordem e no mesmo formato de listaDoacoes().
+	 * A listagem percorre um retrato do registro de doacoes, sem travas, e nao inclui as doacoes realizadas depois do
+	 * seu inicio.
+	 * @param saida saida que recebera a listagem
+	 * @throws IOException caso a saida nao possa ser escrita
+	 */
+	public void listaDoacoes(Appendable saida) throws IOException {
+		boolean primeira = true;
+		
+		for (Doacao doacao : this.doacoes.retrato()) {
+			if (!primeira) {
+				saida.append(" | ");
+			}
+			saida.append(doacao.toString());
+			primeira = false;
+		}
+	}
+	/**
+	 * Retorna uma pagina da listagem de doacoes, na mesma ordem e no mesmo formato de listaDoacoes().
+	 * A pagina comeca logo depois da doacao identificada pelo cursor e custa O(tamanhoDaPagina + log n).
+	 * @param tamanhoDaPagina quantidade maxima de doacoes da pagina
+	 * @param cursor cursor devolvido pela pagina anterior, ou null para a primeira pagina
+	 * @return a pagina com as doacoes e o cursor da proxima pagina
+	 */
+	public Pagina listaDoacoes(int tamanhoDaPagina, String cursor) {
+		this.travaDosIndices.leitura().lock();
+		try {
+			this.validador.validaPaginacao(tamanhoDaPagina);
+		
+			Iterator<Doacao> doacoesDaPagina = this.doacoes.emOrdem().iterator();
+			if (cursor != null) {
+				String[] campos = Cursor.decodifica(cursor, 3);
+				Doacao ultima;
+				try {
+					ultima = new Doacao(Cursor.campoNumerico(campos[2]), campos[0], campos[1], null, null, 0);
+				} catch (RuntimeException e) {
+					throw new IllegalArgumentException("Entrada invalida: cursor invalido.");
+				}
+				doacoesDaPagina = this.doacoes.emOrdem().tailSet(ultima, false).iterator();
+			}
+		
+			StringBuilder lista = new StringBuilder();
+			Doacao doacao = null;
+			for (int i = 0; i < tamanhoDaPagina && doacoesDaPagina.hasNext(); i++) {
+				doacao = doacoesDaPagina.next();
+				if (i > 0) {
+					lista.append(" | ");
+				}
+				lista.append(doacao.toString());
+			}
+		
+			String proximoCursor = doacoesDaPagina.hasNext() ? Cursor.codifica(doacao.getData(), doacao.getDescricaoItemDoado(), "" + doacao.getId()) : null;
+			return new Pagina(lista.toString(), proximoCursor);
+		} finally {
+			this.travaDosIndices.leitura().unlock();
+		}
+	}
+	/**
+	 * Captura um checkpoint e o grava em segundo plano(veja GravadorDeCheckpoints). O diario de operacoes da proxima
+	 * geracao e aberto antes de travar o sistema. Com o sistema travado, a captura apenas copia as mudancas feitas desde
+	 * o ultimo checkpoint: os usuarios cadastrados ou alterados(com seus itens), os ids dos removidos, as doacoes
+	 * registradas, os descritores alterados e o contador de ids de itens, e troca o diario pelo da proxima geracao, de
+	 * forma que o tempo travado acompanha a quantidade de mudancas, e nao o tamanho do sistema. Caso ainda nao exista um
+	 * arquivo base ou uma gravacao anterior tenha falhado, o estado completo e antes copiado sem travar o sistema(veja
+	 * copiaEstadoCompleto) e as mudancas capturadas sao aplicadas sobre ele para formar a base. O diario da geracao
+	 * capturada so e apagado depois que o checkpoint estiver gravado, entao uma queda no meio da gravacao nao perde
+	 * operacoes.
+	 * @return a gravacao do checkpoint, que termina quando ele estiver nos arquivos
+	 * @throws IOException caso o diario da proxima geracao nao possa ser aberto
+	 */
+	public Future<?> checkpoint() throws IOException {
+		this.travaDoCheckpoint.lock();
+		try {
+			long inicio = System.nanoTime();
+			if (this.diario == null) {
+				throw new IllegalStateException("Sistema nao iniciado.");
+			}
+			long geracao = this.diario.getGeracao();
+			
+			Diario proximo = Diario.abre(this.arquivos.caminhoDoDiario(geracao + 1), geracao + 1, this.politicaDoDiario, this.intervaloDoDiario, campos -> {
+				throw new IllegalStateException("Diario da proxima geracao ja possui registros.");
+			});
+			EstadoDoSistema capturado;
+			boolean completo;
+			Diario diarioCapturado;
+			try {
+				completo = this.gravador.precisaDeBase();
+				EstadoDoSistema base = completo ? copiaEstadoCompleto(geracao) : null;
+				
+				this.travas.travaTodas();
+				this.travaDosIndices.escrita().lock();
+				try {
+					List<Entry<String,Long>> ordemDosModificados = new ArrayList<Entry<String,Long>>(this.usuariosModificados.entrySet());
+					ordemDosModificados.sort(Entry.comparingByValue());
+					List<Usuario> modificados = new ArrayList<Usuario>(ordemDosModificados.size());
+					for (Entry<String,Long> modificado : ordemDosModificados) {
+						modificados.add(this.usuarios.get(modificado.getKey()).copia());
+					}
+					
+					List<Descritor> descritoresModificados = new ArrayList<Descritor>(this.descritoresModificados.size());
+					for (String descricao : this.descritoresModificados) {
+						Descritor descritor = this.descritores.get(descricao);
+						descritoresModificados.add(new Descritor(descritor.getDescricao(), descritor.getQuant()));
+					}
+					
+					capturado = new EstadoDoSistema(modificados, new ArrayList<Doacao>(this.doacoes.desdeOUltimoCheckpoint()), descritoresModificados, this.idItens.get(), geracao, new ArrayList<String>(this.usuariosRemovidos));
+					limpaModificacoes();
+					diarioCapturado = this.diario;
+					this.diario = proximo;
+				} finally {
+					this.travaDosIndices.escrita().unlock();
+					this.travas.destravaTodas();
+				}
+				
+				if (completo) {
+					capturado = base.aplica(capturado);
+				}
+			} catch (RuntimeException e) {
+				proximo.close();
+				new File(this.arquivos.caminhoDoDiario(geracao + 1)).delete();
+				throw e;
+			}
+			return this.gravador.grava(capturado, completo, diarioCapturado, System.nanoTime() - inicio);
+		} finally {
+			this.travaDoCheckpoint.unlock();
+		}
+	}
+	/**
+	 * Copia o estado completo do sistema sem trava-lo, para servir de base a um checkpoint. Primeiro as modificacoes
+	 * marcadas sao esquecidas, ja que a base inclui todas elas; depois cada usuario e copiado com a sua faixa travada
+	 * para leitura, e os descritores e as doacoes registradas ate entao sao copiados. Os usuarios, descritores e doacoes
+	 * alterados durante a copia voltam a ser marcados, e a captura do checkpoint os copia de novo com o sistema travado,
+	 * de forma que a base com essas mudancas aplicadas e o estado do sistema no momento da captura.
+	 * @param geracao geracao do diario de operacoes capturada
+	 * @return o estado copiado
+	 */
+	private EstadoDoSistema copiaEstadoCompleto(long geracao) {
+		limpaModificacoes();
+		
+		List<Usuario> cadastrados;
+		synchronized (this.usuarios) {
+			cadastrados = new ArrayList<Usuario>(this.usuarios.values());
+		}
+		List<Usuario> usuarios = new ArrayList<Usuario>(cadastrados.size());
+		for (Usuario usuario : cadastrados) {
+			Lock trava = this.travas.leitura(usuario.getId());
+			trava.lock();
+			try {
+				usuarios.add(usuario.copia());
+			} finally {
+				trava.unlock();
+			}
+		}
 		
-		for (String doacao : this.doacoes.values()) {
-			lista.add(doacao);
+		List<Descritor> descritores = new ArrayList<Descritor>(this.descritores.size());
+		for (Descritor descritor : this.descritores.values()) {
+			descritores.add(new Descritor(descritor.getDescricao(), descritor.getQuant()));
 		}
 		
-		return String.join(" | ", lista);
+		return new EstadoDoSistema(usuarios, new ArrayList<Doacao>(this.doacoes.ateOUltimoCheckpoint()), descritores, this.idItens.get(), geracao);
 	}
 	/**
-	 * Finaliza o sistema, guardando as modificacoes em usuarios, doacoes, descritores, e o idItens.Depois ele zera todas as informacoes do sistema.
+	 * Configura os checkpoints periodicos, que capturam um checkpoint a cada intervalo enquanto o sistema estiver
+	 * iniciado. Falhas dos checkpoints periodicos ficam nas metricas(veja metricasDeCheckpoint).
+	 * @param intervaloEmMilissegundos intervalo entre o fim de um checkpoint periodico e o proximo, ou 0 para desligar
+	 */
+	public void configuraCheckpointPeriodico(int intervaloEmMilissegundos) {
+		this.validador.validaConfiguraCheckpointPeriodico(intervaloEmMilissegundos);
+		this.gravador.agenda(intervaloEmMilissegundos, this::checkpointPeriodico);
+	}
+	/**
+	 * Captura um checkpoint periodico, caso o sistema esteja iniciado
+	 */
+	private void checkpointPeriodico() {
+		try {
+			checkpoint();
+		} catch (IllegalStateException e) {
+			return;
+		} catch (IOException | RuntimeException e) {
+			this.gravador.registraFalha(e);
+		}
+	}
+	/**
+	 * Retorna as metricas dos checkpoints: quantos foram gravados, quantos falharam, quantos esperam a gravacao, o
+	 * progresso da gravacao em andamento e a duracao da ultima captura e da ultima gravacao
+	 * @return a representacao das metricas(veja MetricasDeCheckpoint)
+	 */
+	public String metricasDeCheckpoint() {
+		return this.gravador.getMetricas().toString();
+	}
+	/**
+	 * Finaliza o sistema, guardando as modificacoes em usuarios, doacoes, descritores, e o idItens no arquivo binario do
+	 * sistema(veja EstadoDoSistema), que passa a ser a nova base no lugar da base e dos deltas dos checkpoints. O arquivo
+	 * guarda tambem a geracao do diario de operacoes ativo, e depois dele gravado os deltas e o diario sao apagados: caso
+	 * o sistema caia entre as duas etapas, o proximo iniciaSistema reconhece pela geracao que eles ja estao no arquivo e
+	 * os descarta. Os checkpoints ainda sendo gravados sao esperados antes. Depois ele zera todas as informacoes do sistema.
 	 * @throws IOException
 	 */
 	public void finalizaSistema() throws IOException {
-		 FileOutputStream arqUser = new FileOutputStream("arquivos_sistema/usuarios.txt");
-	        
-		 ObjectOutputStream user = new ObjectOutputStream(arqUser);
-			
-		 ArrayList<Usuario> users = new ArrayList<Usuario>();
+		this.travaDoCheckpoint.lock();
+		this.travas.travaTodas();
+		this.travaDosIndices.escrita().lock();
+		try {
+			this.gravador.aguarda();
 			
-		 for (Usuario u : this.usuarios.values()) {
-			 users.add(u);
+			long geracaoDoDiario = 0;
+			if (this.diario != null) {
+				geracaoDoDiario = this.diario.getGeracao();
 			}
-	    
-		 user.writeObject(users);
-		 
-		 user.close();
-		 
-		 FileOutputStream arqDoac = new FileOutputStream("arquivos_sistema/Doacoes.txt");
-	     
-		 ObjectOutputStream doac = new ObjectOutputStream(arqDoac);
-			
-		 TreeMap<Doacao,String> doacao = new TreeMap<Doacao,String>();
-		 
-		 for (Entry<Doacao, String> entry : this.doacoes.entrySet()) {
-			 doacao.put(entry.getKey(), entry.getValue());
+			else {
+				this.arquivos.apagaDeltas();
+				this.arquivos.apagaDiariosAte(Long.MAX_VALUE);
 			}
-		 
-		 doac.writeObject(doacao);
-		 
-		 doac.close();
-		 
-		 FileOutputStream arqDesc = new FileOutputStream("arquivos_sistema/Descritores.txt");
-	     
-		 ObjectOutputStream desc = new ObjectOutputStream(arqDesc);
 			
-		 TreeMap<String, Descritor> descritors = new TreeMap<String, Descritor>();
-		 
-		 for (Entry<String, Descritor> entry : this.descritores.entrySet()) {
-			 descritors.put(entry.getKey(), entry.getValue());
-			}
-		 
-		 desc.writeObject(descritors);
-		 
-		 desc.close();
-		 
-		 FileOutputStream arqItens = new FileOutputStream("arquivos_sistema/NdeItens.txt");
-	     
-		 ObjectOutputStream Item = new ObjectOutputStream(arqItens);
+			this.arquivos.gravaBase(new EstadoDoSistema(this.usuarios.values(), this.doacoes.emOrdemDeRegistro(), this.descritores.values(), this.idItens.get(), geracaoDoDiario));
 			
-		 int itens = this.idItens;
-		 
-		 Item.writeObject(itens);
-		 
-		 Item.close();	
+			if (this.diario != null) {
+				this.diario.close();
+				this.diario = null;
+				this.arquivos.apagaDiariosAte(Long.MAX_VALUE);
+			}
 		 
-		 // As seguintes linhas simulam o reinicio do sistema
-		 this.usuarios = new LinkedHashMap<String,Usuario>();
-		 this.descritores = new TreeMap<String,Descritor>();
-		 this.doacoes = new TreeMap<Doacao,String>();
-		 this.idItens = 0;
-		 this.validador = new Validacao();
-		
+			// As seguintes linhas simulam o reinicio do sistema
+			this.usuarios = Collections.synchronizedMap(new LinkedHashMap<String,Usuario>());
+			this.descritores = new ConcurrentSkipListMap<String,Descritor>();
+			this.doacoes = new RegistroDeDoacoes();
+			this.idItens = new AtomicInteger(0);
+			this.donosDosItens = new ConcurrentHashMap<Integer,Usuario>();
+			this.itensDoadosPorDescritor = new HashMap<String,Map<Integer,Item>>();
+			this.usuariosPorNome = new IndiceDeNomes();
+			this.itensPorDescricao = new IndiceDeDescricoes();
+			this.itensParaDoacaoOrdenados = new TreeSet<Item>();
+			this.itensNecessariosOrdenados = new ListaOrdenadaPorId<Item>();
+			this.validador = new Validacao();
+			this.dicionarioDeTags = new DicionarioDeTags();
+			limpaModificacoes();
+		} finally {
+			this.travaDosIndices.escrita().unlock();
+			this.travas.destravaTodas();
+			this.travaDoCheckpoint.unlock();
+		}
 	}
 	/**
-	 * Inicia o sistema, lendo os arquivos salvos e recuperando o estado anterior do sistema.
+	 * Inicia o sistema, lendo o arquivo binario do sistema(com os deltas dos checkpoints) e recuperando o estado anterior do sistema. Caso o arquivo
+	 * binario ainda nao exista, le os arquivos do formato antigo(usuarios.txt, Doacoes.txt, Descritores.txt e NdeItens.txt),
+	 * que serao substituidos pelo arquivo binario no proximo finalizaSistema. Depois ele abre os diarios de operacoes
+	 * em ordem de geracao, refazendo as operacoes registradas neles que ainda nao estao nos arquivos(as de um sistema
+	 * que caiu antes de finalizaSistema ou no meio da gravacao de um checkpoint), e passa a registrar no ultimo as
+	 * proximas operacoes. Antes de tudo ele espera os checkpoints ainda sendo gravados.
 	 * @throws IOException
 	 * @throws ClassNotFoundException
 	 */
 	public void iniciaSistema() throws IOException, ClassNotFoundException {
-		FileInputStream fis = new FileInputStream("arquivos_sistema/usuarios.txt");
-        
-        ObjectInputStream ois = new ObjectInputStream(fis);
-        
-        ArrayList<Usuario> woi = new ArrayList<>();
-        
-        woi = (ArrayList<Usuario>)ois.readObject();
-        
-        for (Usuario u : woi){
-        	
-         this.usuarios.put(u.getId(), u);
-
-        }
-        
-        ois.close();
-        
-        FileInputStream fis2 = new FileInputStream("arquivos_sistema/Doacoes.txt");
-        
-        ObjectInputStream ois2 = new ObjectInputStream(fis2);
-        
-        TreeMap<Doacao,String> woi2 = new TreeMap<>();
-        
-        woi2 = (TreeMap<Doacao,String>)ois2.readObject();
-        
-        for (Entry<Doacao, String> entry : woi2.entrySet()) {
-			
-			this.doacoes.put(entry.getKey(), entry.getValue());
-		
-        }
-        
-        ois2.close();
-        
-        FileInputStream fis3 = new FileInputStream("arquivos_sistema/Descritores.txt");
-        
-        ObjectInputStream ois3 = new ObjectInputStream(fis3);
-        
-        TreeMap<String,Descritor> woi3 = new TreeMap<>();
-        
-        woi3 = (TreeMap<String,Descritor>)ois3.readObject();
-        
-        for (Entry<String, Descritor> entry : woi3.entrySet()) {
-			
-			this.descritores.put(entry.getKey(), entry.getValue());
-		
-        }
-        
-        ois3.close();
-        
-        FileInputStream fis4 = new FileInputStream("arquivos_sistema/NdeItens.txt");
-        
-        ObjectInputStream ois4 = new ObjectInputStream(fis4);
-        
-        this.idItens = (Integer)ois4.readObject();        
-        
-        ois4.close();
-		
+		this.travaDoCheckpoint.lock();
+		this.travas.travaTodas();
+		this.travaDosIndices.escrita().lock();
+		try {
+			this.gravador.aguarda();
+			
+			EstadoDoSistema estado;
+			if (this.arquivos.existeBase()) {
+				estado = this.arquivos.le();
+			}
+			else if (new File(DIRETORIO_DO_SISTEMA, "usuarios.txt").exists()) {
+				estado = EstadoDoSistema.leFormatoAntigo(DIRETORIO_DO_SISTEMA);
+			}
+			else {
+				estado = new EstadoDoSistema(new ArrayList<Usuario>(), new ArrayList<Doacao>(), new ArrayList<Descritor>(), 0);
+			}
+			
+			for (Usuario u : estado.getUsuarios()) {
+				this.usuarios.put(u.getId(), u);
+				this.usuariosPorNome.adiciona(u);
+				
+				for (Item item : u.getItens().values()) {
+					item.usaDicionarioDeTags(this.dicionarioDeTags);
+					indexaItem(u, item);
+				}
+			}
+			
+			for (Doacao doacao : estado.getDoacoes()) {
+				this.doacoes.acrescenta(doacao);
+			}
+			
+			for (Descritor descritor : estado.getDescritores()) {
+				this.descritores.put(descritor.getDescricao(), descritor);
+			}
+			
+			this.idItens = new AtomicInteger(estado.getIdItens());
+			limpaModificacoes();
+			
+			if (this.diario != null) {
+				this.diario.close();
+				this.diario = null;
+			}
+			new File(DIRETORIO_DO_SISTEMA).mkdirs();
+			this.arquivos.apagaDiariosAte(estado.getGeracaoDoDiario());
+			
+			Diario ultimo = null;
+			for (long geracao : this.arquivos.geracoesDosDiarios()) {
+				if (ultimo != null) {
+					ultimo.close();
+				}
+				ultimo = Diario.abre(this.arquivos.caminhoDoDiario(geracao), geracao, this.politicaDoDiario, this.intervaloDoDiario, this::refazRegistroDoDiario);
+			}
+			if (ultimo == null) {
+				long geracao = estado.getGeracaoDoDiario() + 1;
+				ultimo = Diario.abre(this.arquivos.caminhoDoDiario(geracao), geracao, this.politicaDoDiario, this.intervaloDoDiario, this::refazRegistroDoDiario);
+			}
+			this.diario = ultimo;
+		} finally {
+			this.travaDosIndices.escrita().unlock();
+			this.travas.destravaTodas();
+			this.travaDoCheckpoint.unlock();
+		}
 	}
-	
-	
 }
@@ -1,6 +1,11 @@
 package eDoe;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Classe que serve para guardar descricoes de itens ja armazenadas no sistema com sua quantidade atuais(como um inventario),
@@ -9,21 +14,32 @@ import java.io.Serializable;
  *
  */
 public class Descritor implements Serializable{
+	/**
+	 * Versao de serializacao do descritor, fixada no valor calculado para a versao original da classe para que os
+	 * arquivos salvos por ela continuem legiveis
+	 */
+	private static final long serialVersionUID = -3281695359169502083L;
+	/**
+	 * Campos serializados, os mesmos da versao original da classe: a quantidade continua sendo gravada como int
+	 */
+	private static final ObjectStreamField[] serialPersistentFields = {
+			new ObjectStreamField("descricao", String.class), new ObjectStreamField("quant", int.class)};
 	/**
 	 * A descricao em si
 	 */
 	private String descricao;
 	/**
-	 * A quantidade de itens doados que estao disponiveis no sistema
+	 * A quantidade de itens doados que estao disponiveis no sistema. Guardada em um LongAdder, que divide a soma em
+	 * celulas por thread, para que doadores diferentes possam altera-la ao mesmo tempo sem disputar o mesmo contador
 	 */
-	private int quant;
+	private LongAdder quant;
 	/**
 	 * Construtor que constroi a partir de uma descricao fornecida e comeca com uma quantidade 0
 	 * @param descricao descricao do item em questao
 	 */
 	public Descritor(String descricao) {
 		this.descricao = descricao;
-		this.quant = 0;
+		this.quant = new LongAdder();
 	}
 	/**
 	 * Construtor que constroi a partir de uma descricao e quantidade fornecidas
@@ -32,7 +48,8 @@ public class Descritor implements Serializable{
 	 */
 	public Descritor(String descricao, int quant) {
 		this.descricao = descricao;
-		this.quant = quant;
+		this.quant = new LongAdder();
+		this.quant.add(quant);
 	}
 	/**
 	 * Um metodo que retorna a descricao
@@ -46,27 +63,50 @@ public class Descritor implements Serializable{
 	 * @return a quantidade
 	 */
 	public int getQuant() {
-		return this.quant;
+		return (int) this.quant.sum();
 	}
 	/**
 	 * Diminui a quantidade com base em um numero passado
 	 * @param quant a quantidade que sera diminuida
 	 */
 	public void diminuiQuant(int quant) {
-		this.quant -= quant;
+		this.quant.add(-quant);
 	}
 	/**
 	 * Aumenta a quantidade com base em um numero passado
 	 * @param quant a quantidade a ser aumentada
 	 */
 	public void aumentaQuant(int quant) {
-		this.quant += quant;
+		this.quant.add(quant);
+	}
+	/**
+	 * Grava o descritor no formato da versao original da classe
+	 * @param saida stream onde o descritor e gravado
+	 * @throws IOException
+	 */
+	private void writeObject(ObjectOutputStream saida) throws IOException {
+		ObjectOutputStream.PutField campos = saida.putFields();
+		campos.put("descricao", this.descricao);
+		campos.put("quant", getQuant());
+		saida.writeFields();
+	}
+	/**
+	 * Le um descritor gravado no formato da versao original da classe
+	 * @param entrada stream de onde o descritor e lido
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	private void readObject(ObjectInputStream entrada) throws IOException, ClassNotFoundException {
+		ObjectInputStream.GetField campos = entrada.readFields();
+		this.descricao = (String) campos.get("descricao", null);
+		this.quant = new LongAdder();
+		this.quant.add(campos.get("quant", 0));
 	}
 	/**
 	 * Representacao textual de Descritor no formato:"quantidade" - "descricao"
 	 */
 	@Override
 	public String toString() {
-		return this.quant + " - " + this.descricao;
+		return this.quant.sum() + " - " + this.descricao;
 	}
 }
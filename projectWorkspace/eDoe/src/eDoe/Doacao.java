@@ -1,5 +1,7 @@
 package eDoe;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 /**
  * Classe que guarda as informacoes de uma doacao realizada,funcionando como um historico
@@ -7,22 +9,100 @@ import java.io.Serializable;
  *
  */
 public class Doacao implements Comparable<Doacao>, Serializable{
+	/**
+	 * Versao de serializacao da doacao, fixada no valor calculado para a versao original da classe para que os
+	 * arquivos salvos por ela continuem legiveis. Os campos que ela nao tinha sao lidos com os valores padrao.
+	 */
+	private static final long serialVersionUID = 7253885244372525667L;
+	/**
+	 * Identificador sequencial da doacao, dado na ordem em que as doacoes sao registradas
+	 */
+	private long id;
 	/**
 	 * String que guarda a data da doacao realizada
 	 */
-	String data;
+	private String data;
+	/**
+	 * Data da doacao convertida uma unica vez para a quantidade de dias desde 01/01/1970, usada na ordenacao
+	 */
+	private transient int diaEpoch;
 	/**
 	 * String que guarda a descricao do item doado
 	 */
-	String descricaoItemDoado;
+	private String descricaoItemDoado;
+	/**
+	 * Doador da doacao no formato "nome"/"id"
+	 */
+	private String doador;
+	/**
+	 * Receptor da doacao no formato "nome"/"id"
+	 */
+	private String receptor;
+	/**
+	 * Quantidade de itens doados
+	 */
+	private int quantidade;
+	/**
+	 * Posicao da doacao na ordem de registro do RegistroDeDoacoes, dada quando ela e acrescentada a ele
+	 */
+	private transient int posicaoNoRegistro;
 	/**
-	 * Construtor da classe Doacao, constroi a partir da data e descricao passada
-	 * @param data
-	 * @param descricaoItemDoado
+	 * Construtor da classe Doacao, constroi a partir do id sequencial, da data no formato dd/MM/yyyy, da descricao
+	 * do item doado, do doador, do receptor e da quantidade doada
+	 * @param id identificador sequencial da doacao
+	 * @param data data da doacao no formato dd/MM/yyyy
+	 * @param descricaoItemDoado descricao do item doado
+	 * @param doador doador no formato "nome"/"id"
+	 * @param receptor receptor no formato "nome"/"id"
+	 * @param quantidade quantidade de itens doados
 	 */
-	public Doacao(String data,String descricaoItemDoado) {
+	public Doacao(long id, String data, String descricaoItemDoado, String doador, String receptor, int quantidade) {
+		this.id = id;
 		this.data = data;
+		this.diaEpoch = converteParaDiaEpoch(data);
 		this.descricaoItemDoado = descricaoItemDoado;
+		this.doador = doador;
+		this.receptor = receptor;
+		this.quantidade = quantidade;
+	}
+	/**
+	 * Converte uma data no formato dd/MM/yyyy para a quantidade de dias desde 01/01/1970
+	 * @param data data no formato dd/MM/yyyy
+	 * @return a quantidade de dias desde 01/01/1970
+	 */
+	public static int converteParaDiaEpoch(String data) {
+		String[] partes = data.split("/");
+
+		int dia = Integer.parseInt(partes[0]);
+		int mes = Integer.parseInt(partes[1]);
+		int ano = Integer.parseInt(partes[2]);
+
+		if (mes <= 2) {
+			ano -= 1;
+		}
+		int era = Math.floorDiv(ano, 400);
+		int anoDaEra = ano - era * 400;
+		int diaDoAno = (153 * (mes > 2 ? mes - 3 : mes + 9) + 2) / 5 + dia - 1;
+		int diaDaEra = anoDaEra * 365 + anoDaEra / 4 - anoDaEra / 100 + diaDoAno;
+
+		return era * 146097 + diaDaEra - 719468;
+	}
+	/**
+	 * Recalcula a data em dias desde 01/01/1970 ao ler uma doacao salva
+	 * @param entrada stream de onde a doacao e lida
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	private void readObject(ObjectInputStream entrada) throws IOException, ClassNotFoundException {
+		entrada.defaultReadObject();
+		this.diaEpoch = converteParaDiaEpoch(this.data);
+	}
+	/**
+	 * Metodo que retorna o identificador sequencial da doacao
+	 * @return o identificador sequencial da doacao
+	 */
+	public long getId() {
+		return id;
 	}
 	/**
 	 * Metodo que retorna a data em que a doacao foi realizada
@@ -31,6 +111,13 @@ public class Doacao implements Comparable<Doacao>, Serializable{
 	public String getData() {
 		return data;
 	}
+	/**
+	 * Metodo que retorna a data da doacao em dias desde 01/01/1970
+	 * @return a data da doacao em dias desde 01/01/1970
+	 */
+	public int getDiaEpoch() {
+		return diaEpoch;
+	}
 	/**
 	 * Metodo que retorna a descricao do item que foi doado
 	 * @return a descricao do item que foi doado
@@ -39,39 +126,59 @@ public class Doacao implements Comparable<Doacao>, Serializable{
 		return descricaoItemDoado;
 	}
 	/**
-	 * Metodo para comparacao que compara a partir primeiro da data(a doacao mais antiga vem primeiro) e se der empate
-	 * a partir da ordem alfabetica da descricao guardada
+	 * Metodo que retorna o doador no formato "nome"/"id"
+	 * @return o doador
+	 */
+	public String getDoador() {
+		return doador;
+	}
+	/**
+	 * Metodo que retorna o receptor no formato "nome"/"id"
+	 * @return o receptor
+	 */
+	public String getReceptor() {
+		return receptor;
+	}
+	/**
+	 * Metodo que retorna a quantidade de itens doados
+	 * @return a quantidade de itens doados
+	 */
+	public int getQuantidade() {
+		return quantidade;
+	}
+	/**
+	 * Metodo que retorna a posicao da doacao na ordem de registro
+	 * @return a posicao da doacao na ordem de registro
+	 */
+	int getPosicaoNoRegistro() {
+		return posicaoNoRegistro;
+	}
+	/**
+	 * Metodo que define a posicao da doacao na ordem de registro, chamado pelo RegistroDeDoacoes ao acrescenta-la
+	 * @param posicaoNoRegistro posicao da doacao na ordem de registro
+	 */
+	void setPosicaoNoRegistro(int posicaoNoRegistro) {
+		this.posicaoNoRegistro = posicaoNoRegistro;
+	}
+	/**
+	 * Representacao textual da doacao no formato '"data" - doador: "nomeDoDoador"/"idDoDoador", item: "descricaoDoItem", quantidade: "quantidadeDoada", receptor: "nomeDoReceptor"/"idDoReceptor"'
+	 */
+	@Override
+	public String toString() {
+		return data + " - doador: " + doador + ", item: " + descricaoItemDoado + ", quantidade: " + quantidade + ", receptor: " + receptor;
+	}
+	/**
+	 * Metodo para comparacao que compara a partir primeiro da data(a doacao mais antiga vem primeiro), se der empate
+	 * a partir da ordem alfabetica da descricao guardada e por ultimo pela ordem em que as doacoes foram registradas
 	 */
 	@Override
 	public int compareTo(Doacao o) {
-		String datas1[] = new String[3];
-		String datas2[] = new String[3];
-		
-		datas1 = data.split("/");
-		datas2 = o.getData().split("/");
-		
-		int dia1 = Integer.parseInt(datas1[0]); 
-		int mes1 = Integer.parseInt(datas1[1]); 
-		int ano1 = Integer.parseInt(datas1[2]); 
-		
-		int dia2 = Integer.parseInt(datas2[0]); 
-		int mes2 = Integer.parseInt(datas2[1]); 
-		int ano2 = Integer.parseInt(datas2[2]);
-		
-		if (ano1 < ano2) return -1;
-		
-		else if (ano1 > ano2) return 1;
-		
-		else if (mes1 < mes2) return -1;
-		
-		else if (mes1 > mes2) return 1;
-		
-		else if (dia1 < dia2) return -1;
-		
-		else if (dia1 > dia2) return 1;
-		
-		else return descricaoItemDoado.compareTo(o.getDescricaoItemDoado());
+		if (diaEpoch != o.diaEpoch) return Integer.compare(diaEpoch, o.diaEpoch);
+
+		else if (!descricaoItemDoado.equals(o.descricaoItemDoado)) return descricaoItemDoado.compareTo(o.descricaoItemDoado);
+
+		else return Long.compare(id, o.id);
 	}
-	
-	
+
+
 }
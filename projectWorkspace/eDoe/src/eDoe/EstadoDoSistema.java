@@ -0,0 +1,575 @@
+package eDoe;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+import util.Numeros;
+/**
+ * Estado persistente do sistema(usuarios com seus itens, doacoes, descritores e o contador de ids de itens) e o
+ *   formato binario em que ele e salvo. O arquivo comeca com uma assinatura e a versao do formato, seguidas de
+ *   secoes no formato: tipo, tamanho, conteudo e CRC32 do conteudo. A primeira secao e um dicionario com todos os
+ *   textos distintos do estado; as demais guardam apenas referencias a ele e numeros, ambos em tamanho variavel(veja util.Numeros).
+ *   Secoes de tipo desconhecido sao ignoradas na leitura, o que permite acrescentar secoes sem mudar a versao.
+ */
+public class EstadoDoSistema {
+	/**
+	 * Assinatura que abre todo arquivo do sistema, os bytes de "EDoe"
+	 */
+	public static final int ASSINATURA = 0x45446F65;
+	/**
+	 * Versao do formato gravada por esta classe
+	 */
+	public static final int VERSAO = 1;
+	/**
+	 * Tipo que marca o fim das secoes
+	 */
+	private static final int SECAO_FIM = 0;
+	/**
+	 * Tipo da secao com o dicionario de textos
+	 */
+	private static final int SECAO_DICIONARIO = 1;
+	/**
+	 * Tipo da secao com os usuarios e seus itens
+	 */
+	private static final int SECAO_USUARIOS = 2;
+	/**
+	 * Tipo da secao com as doacoes, em ordem de registro
+	 */
+	private static final int SECAO_DOACOES = 3;
+	/**
+	 * Tipo da secao com os descritores
+	 */
+	private static final int SECAO_DESCRITORES = 4;
+	/**
+	 * Tipo da secao com o contador de ids de itens
+	 */
+	private static final int SECAO_CONTADORES = 5;
+	/**
+	 * Tipo da secao com a geracao do diario de operacoes ja contida no estado
+	 */
+	private static final int SECAO_DIARIO = 6;
+	/**
+	 * Tipo da secao com os ids dos usuarios removidos, presente apenas nos estados parciais(veja aplica)
+	 */
+	private static final int SECAO_USUARIOS_REMOVIDOS = 7;
+	/**
+	 * Usuarios do sistema, em ordem de cadastro
+	 */
+	private Collection<Usuario> usuarios;
+	/**
+	 * Doacoes do sistema, em ordem de registro
+	 */
+	private List<Doacao> doacoes;
+	/**
+	 * Descritores do sistema
+	 */
+	private Collection<Descritor> descritores;
+	/**
+	 * Id que sera dado ao proximo item cadastrado
+	 */
+	private int idItens;
+	/**
+	 * Maior geracao do diario de operacoes cujas operacoes ja estao contidas no estado
+	 */
+	private long geracaoDoDiario;
+	/**
+	 * Ids dos usuarios removidos, em um estado parcial que guarda apenas as mudancas feitas desde outro estado
+	 */
+	private Collection<String> usuariosRemovidos;
+	/**
+	 * Quantidade de usuarios, doacoes e descritores ja gravados pela gravacao em andamento, para acompanhar o seu progresso
+	 */
+	private volatile long registrosGravados;
+	/**
+	 * Construtor que constroi o estado a partir das colecoes do sistema, sem copia-las
+	 * @param usuarios usuarios do sistema, em ordem de cadastro
+	 * @param doacoes doacoes do sistema, em ordem de registro
+	 * @param descritores descritores do sistema
+	 * @param idItens id que sera dado ao proximo item cadastrado
+	 */
+	public EstadoDoSistema(Collection<Usuario> usuarios, List<Doacao> doacoes, Collection<Descritor> descritores, int idItens) {
+		this(usuarios, doacoes, descritores, idItens, 0);
+	}
+	/**
+	 * Construtor que constroi o estado a partir das colecoes do sistema, sem copia-las, e da geracao do diario de
+	 * operacoes que ele ja contem
+	 * @param usuarios usuarios do sistema, em ordem de cadastro
+	 * @param doacoes doacoes do sistema, em ordem de registro
+	 * @param descritores descritores do sistema
+	 * @param idItens id que sera dado ao proximo item cadastrado
+	 * @param geracaoDoDiario maior geracao do diario cujas operacoes ja estao no estado, ou 0 caso nenhuma esteja
+	 */
+	public EstadoDoSistema(Collection<Usuario> usuarios, List<Doacao> doacoes, Collection<Descritor> descritores, int idItens, long geracaoDoDiario) {
+		this(usuarios, doacoes, descritores, idItens, geracaoDoDiario, new ArrayList<String>());
+	}
+	/**
+	 * Construtor de um estado parcial, que guarda apenas as mudancas feitas no sistema desde outro estado e e aplicado
+	 * sobre ele por aplica
+	 * @param usuarios usuarios cadastrados ou alterados, com todos os seus itens, em ordem de cadastro
+	 * @param doacoes doacoes registradas, em ordem de registro
+	 * @param descritores descritores cadastrados ou com quantidade alterada
+	 * @param idItens id que sera dado ao proximo item cadastrado
+	 * @param geracaoDoDiario maior geracao do diario cujas operacoes ja estao no estado
+	 * @param usuariosRemovidos ids dos usuarios removidos, inclusive dos que foram cadastrados de novo depois
+	 */
+	public EstadoDoSistema(Collection<Usuario> usuarios, List<Doacao> doacoes, Collection<Descritor> descritores, int idItens, long geracaoDoDiario, Collection<String> usuariosRemovidos) {
+		this.usuarios = usuarios;
+		this.doacoes = doacoes;
+		this.descritores = descritores;
+		this.idItens = idItens;
+		this.geracaoDoDiario = geracaoDoDiario;
+		this.usuariosRemovidos = usuariosRemovidos;
+	}
+	/**
+	 * Retorna os usuarios do estado
+	 * @return os usuarios, em ordem de cadastro
+	 */
+	public Collection<Usuario> getUsuarios() {
+		return this.usuarios;
+	}
+	/**
+	 * Retorna as doacoes do estado
+	 * @return as doacoes, em ordem de registro
+	 */
+	public List<Doacao> getDoacoes() {
+		return this.doacoes;
+	}
+	/**
+	 * Retorna os descritores do estado
+	 * @return os descritores
+	 */
+	public Collection<Descritor> getDescritores() {
+		return this.descritores;
+	}
+	/**
+	 * Retorna o contador de ids de itens do estado
+	 * @return o id que sera dado ao proximo item cadastrado
+	 */
+	public int getIdItens() {
+		return this.idItens;
+	}
+	/**
+	 * Retorna a maior geracao do diario de operacoes cujas operacoes ja estao no estado
+	 * @return a geracao, ou 0 caso nenhuma esteja
+	 */
+	public long getGeracaoDoDiario() {
+		return this.geracaoDoDiario;
+	}
+	/**
+	 * Retorna os ids dos usuarios removidos de um estado parcial
+	 * @return os ids dos usuarios removidos, vazio caso o estado seja completo
+	 */
+	public Collection<String> getUsuariosRemovidos() {
+		return this.usuariosRemovidos;
+	}
+	/**
+	 * Retorna a quantidade de registros(usuarios, doacoes e descritores) do estado
+	 * @return a quantidade de registros
+	 */
+	public long getTotalDeRegistros() {
+		return (long) this.usuarios.size() + this.doacoes.size() + this.descritores.size();
+	}
+	/**
+	 * Retorna quantos registros a gravacao do estado ja gravou, podendo ser chamado por outra thread durante a gravacao
+	 * @return a quantidade de registros gravados
+	 */
+	public long getRegistrosGravados() {
+		return this.registrosGravados;
+	}
+	/**
+	 * Retorna o estado resultante de aplicar sobre este estado as mudancas de um estado parcial: os usuarios removidos
+	 * saem do estado, os usuarios do parcial substituem os de mesmo id(ou entram no fim, caso sejam novos ou tenham sido
+	 * removidos), as doacoes do parcial sao acrescentadas, os descritores do parcial substituem os de mesma descricao e
+	 * o contador de ids e a geracao do diario passam a ser os do parcial. Nenhum dos dois estados e alterado.
+	 * @param parcial estado parcial com as mudancas feitas desde este estado
+	 * @return o estado resultante
+	 */
+	public EstadoDoSistema aplica(EstadoDoSistema parcial) {
+		Map<String,Usuario> usuarios = new LinkedHashMap<String,Usuario>();
+		for (Usuario usuario : this.usuarios) {
+			usuarios.put(usuario.getId(), usuario);
+		}
+		for (String removido : parcial.usuariosRemovidos) {
+			usuarios.remove(removido);
+		}
+		for (Usuario usuario : parcial.usuarios) {
+			usuarios.put(usuario.getId(), usuario);
+		}
+
+		List<Doacao> doacoes = new ArrayList<Doacao>(this.doacoes.size() + parcial.doacoes.size());
+		doacoes.addAll(this.doacoes);
+		doacoes.addAll(parcial.doacoes);
+
+		Map<String,Descritor> descritores = new TreeMap<String,Descritor>();
+		for (Descritor descritor : this.descritores) {
+			descritores.put(descritor.getDescricao(), descritor);
+		}
+		for (Descritor descritor : parcial.descritores) {
+			descritores.put(descritor.getDescricao(), descritor);
+		}
+
+		return new EstadoDoSistema(usuarios.values(), doacoes, descritores.values(), parcial.idItens, parcial.geracaoDoDiario);
+	}
+	/**
+	 * Grava o estado em um arquivo. O estado e gravado primeiro em um arquivo temporario, que so substitui o arquivo
+	 *   passado depois de completo, de forma que uma falha na gravacao nunca deixa um arquivo pela metade
+	 * @param caminho caminho do arquivo
+	 * @throws IOException caso o arquivo nao possa ser gravado
+	 */
+	public void grava(String caminho) throws IOException {
+		File arquivo = new File(caminho);
+		File temporario = new File(caminho + ".tmp");
+
+		try (DataOutputStream saida = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporario), 1 << 16))) {
+			grava(saida);
+		}
+		Files.move(temporario.toPath(), arquivo.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+	/**
+	 * Grava o estado na saida passada, no formato descrito na classe
+	 * @param saida saida que recebera o estado
+	 * @throws IOException caso a saida nao possa ser escrita
+	 */
+	public void grava(DataOutputStream saida) throws IOException {
+		Dicionario dicionario = new Dicionario();
+		long gravados = 0;
+		this.registrosGravados = 0;
+
+		ByteArrayOutputStream usuariosGravados = new ByteArrayOutputStream();
+		DataOutputStream secao = new DataOutputStream(usuariosGravados);
+		Numeros.escreve(secao, this.usuarios.size());
+		for (Usuario usuario : this.usuarios) {
+			Numeros.escreve(secao, dicionario.referencia(usuario.getId()));
+			Numeros.escreve(secao, dicionario.referencia(usuario.getNome()));
+			Numeros.escreve(secao, dicionario.referencia(usuario.getEmail()));
+			Numeros.escreve(secao, dicionario.referencia(usuario.getCelular()));
+			Numeros.escreve(secao, dicionario.referencia(usuario.getClasse()));
+			Numeros.escreve(secao, dicionario.referencia(usuario.getStatus()));
+			Numeros.escreve(secao, usuario.quantidadeDeItens());
+			for (Item item : usuario.getItens().values()) {
+				Numeros.escreve(secao, item.getId());
+				Numeros.escreve(secao, dicionario.referencia(item.getDescricao()));
+				Numeros.escreve(secao, dicionario.referencia(item.getTags()));
+				Numeros.escreve(secao, item.getQuant());
+			}
+			this.registrosGravados = ++gravados;
+		}
+
+		ByteArrayOutputStream doacoesGravadas = new ByteArrayOutputStream();
+		secao = new DataOutputStream(doacoesGravadas);
+		Numeros.escreve(secao, this.doacoes.size());
+		for (Doacao doacao : this.doacoes) {
+			Numeros.escreve(secao, doacao.getId());
+			Numeros.escreve(secao, dicionario.referencia(doacao.getData()));
+			Numeros.escreve(secao, dicionario.referencia(doacao.getDescricaoItemDoado()));
+			Numeros.escreve(secao, dicionario.referencia(doacao.getDoador()));
+			Numeros.escreve(secao, dicionario.referencia(doacao.getReceptor()));
+			Numeros.escreve(secao, doacao.getQuantidade());
+			this.registrosGravados = ++gravados;
+		}
+
+		ByteArrayOutputStream descritoresGravados = new ByteArrayOutputStream();
+		secao = new DataOutputStream(descritoresGravados);
+		Numeros.escreve(secao, this.descritores.size());
+		for (Descritor descritor : this.descritores) {
+			Numeros.escreve(secao, dicionario.referencia(descritor.getDescricao()));
+			Numeros.escreve(secao, descritor.getQuant());
+			this.registrosGravados = ++gravados;
+		}
+
+		ByteArrayOutputStream contadoresGravados = new ByteArrayOutputStream();
+		secao = new DataOutputStream(contadoresGravados);
+		Numeros.escreve(secao, this.idItens);
+
+		ByteArrayOutputStream removidosGravados = new ByteArrayOutputStream();
+		secao = new DataOutputStream(removidosGravados);
+		Numeros.escreve(secao, this.usuariosRemovidos.size());
+		for (String removido : this.usuariosRemovidos) {
+			Numeros.escreve(secao, dicionario.referencia(removido));
+		}
+
+		ByteArrayOutputStream diarioGravado = new ByteArrayOutputStream();
+		secao = new DataOutputStream(diarioGravado);
+		Numeros.escreve(secao, this.geracaoDoDiario);
+
+		saida.writeInt(ASSINATURA);
+		saida.writeInt(VERSAO);
+		escreveSecao(saida, SECAO_DICIONARIO, dicionario.grava());
+		escreveSecao(saida, SECAO_USUARIOS, usuariosGravados);
+		escreveSecao(saida, SECAO_DOACOES, doacoesGravadas);
+		escreveSecao(saida, SECAO_DESCRITORES, descritoresGravados);
+		escreveSecao(saida, SECAO_CONTADORES, contadoresGravados);
+		escreveSecao(saida, SECAO_DIARIO, diarioGravado);
+		if (!this.usuariosRemovidos.isEmpty()) {
+			escreveSecao(saida, SECAO_USUARIOS_REMOVIDOS, removidosGravados);
+		}
+		saida.writeInt(SECAO_FIM);
+		saida.flush();
+	}
+	/**
+	 * Le um estado gravado por grava(String)
+	 * @param caminho caminho do arquivo
+	 * @return o estado lido
+	 * @throws IOException caso o arquivo nao possa ser lido ou nao seja um arquivo do sistema valido
+	 */
+	public static EstadoDoSistema le(String caminho) throws IOException {
+		try (DataInputStream entrada = new DataInputStream(new BufferedInputStream(new FileInputStream(caminho), 1 << 16))) {
+			return le(entrada);
+		}
+	}
+	/**
+	 * Le um estado gravado por grava(DataOutputStream)
+	 * @param entrada entrada de onde o estado e lido
+	 * @return o estado lido
+	 * @throws IOException caso a entrada nao possa ser lida ou nao contenha um estado valido
+	 */
+	public static EstadoDoSistema le(DataInputStream entrada) throws IOException {
+		if (entrada.readInt() != ASSINATURA) {
+			throw new IOException("Arquivo do sistema invalido: assinatura desconhecida.");
+		}
+		int versao = entrada.readInt();
+		if (versao < 1 || versao > VERSAO) {
+			throw new IOException("Arquivo do sistema invalido: versao " + versao + " nao suportada.");
+		}
+
+		String[] textos = new String[0];
+		List<Usuario> usuarios = new ArrayList<Usuario>();
+		List<Doacao> doacoes = new ArrayList<Doacao>();
+		List<Descritor> descritores = new ArrayList<Descritor>();
+		int idItens = 0;
+		long geracaoDoDiario = 0;
+		List<String> usuariosRemovidos = new ArrayList<String>();
+
+		for (int tipo = entrada.readInt(); tipo != SECAO_FIM; tipo = entrada.readInt()) {
+			DataInputStream secao = new DataInputStream(new ByteArrayInputStream(leSecao(entrada)));
+
+			if (tipo == SECAO_DICIONARIO) {
+				textos = Dicionario.le(secao);
+			}
+			else if (tipo == SECAO_USUARIOS) {
+				int quantidade = (int) Numeros.le(secao);
+				for (int i = 0; i < quantidade; i++) {
+					Usuario usuario = new Usuario(texto(textos, secao), texto(textos, secao), texto(textos, secao), texto(textos, secao), texto(textos, secao), texto(textos, secao));
+					int itens = (int) Numeros.le(secao);
+					for (int j = 0; j < itens; j++) {
+						int id = (int) Numeros.le(secao);
+						String descricao = texto(textos, secao);
+						String tags = texto(textos, secao);
+						usuario.adicionaItem(new Item(descricao, (int) Numeros.le(secao), tags, id));
+					}
+					usuarios.add(usuario);
+				}
+			}
+			else if (tipo == SECAO_DOACOES) {
+				int quantidade = (int) Numeros.le(secao);
+				for (int i = 0; i < quantidade; i++) {
+					long id = Numeros.le(secao);
+					doacoes.add(new Doacao(id, texto(textos, secao), texto(textos, secao), texto(textos, secao), texto(textos, secao), (int) Numeros.le(secao)));
+				}
+			}
+			else if (tipo == SECAO_DESCRITORES) {
+				int quantidade = (int) Numeros.le(secao);
+				for (int i = 0; i < quantidade; i++) {
+					descritores.add(new Descritor(texto(textos, secao), (int) Numeros.le(secao)));
+				}
+			}
+			else if (tipo == SECAO_CONTADORES) {
+				idItens = (int) Numeros.le(secao);
+			}
+			else if (tipo == SECAO_DIARIO) {
+				geracaoDoDiario = Numeros.le(secao);
+			}
+			else if (tipo == SECAO_USUARIOS_REMOVIDOS) {
+				int quantidade = (int) Numeros.le(secao);
+				for (int i = 0; i < quantidade; i++) {
+					usuariosRemovidos.add(texto(textos, secao));
+				}
+			}
+		}
+
+		return new EstadoDoSistema(usuarios, doacoes, descritores, idItens, geracaoDoDiario, usuariosRemovidos);
+	}
+	/**
+	 * Le o estado salvo no formato antigo, em que usuarios.txt, Doacoes.txt, Descritores.txt e NdeItens.txt guardavam
+	 *   cada parte do estado com a serializacao do Java. Usado apenas para migrar sistemas salvos antes do formato binario;
+	 *   as doacoes recebem ids sequenciais na ordem do TreeMap antigo, que e a mesma da listagem
+	 * @param diretorio diretorio dos arquivos
+	 * @return o estado lido
+	 * @throws IOException caso algum arquivo nao possa ser lido
+	 * @throws ClassNotFoundException caso algum arquivo guarde uma classe desconhecida
+	 */
+	@SuppressWarnings("unchecked")
+	public static EstadoDoSistema leFormatoAntigo(String diretorio) throws IOException, ClassNotFoundException {
+		List<Usuario> usuarios;
+		try (ObjectInputStream entrada = new ObjectInputStream(new FileInputStream(new File(diretorio, "usuarios.txt")))) {
+			usuarios = (ArrayList<Usuario>) entrada.readObject();
+		}
+
+		List<Doacao> doacoes = new ArrayList<Doacao>();
+		try (ObjectInputStream entrada = new ObjectInputStream(new FileInputStream(new File(diretorio, "Doacoes.txt")))) {
+			for (Map.Entry<Doacao,String> doacao : ((TreeMap<Doacao,String>) entrada.readObject()).entrySet()) {
+				doacoes.add(doacaoDoFormatoAntigo(doacoes.size(), doacao.getKey(), doacao.getValue()));
+			}
+		}
+
+		Collection<Descritor> descritores;
+		try (ObjectInputStream entrada = new ObjectInputStream(new FileInputStream(new File(diretorio, "Descritores.txt")))) {
+			descritores = ((TreeMap<String,Descritor>) entrada.readObject()).values();
+		}
+
+		int idItens;
+		try (ObjectInputStream entrada = new ObjectInputStream(new FileInputStream(new File(diretorio, "NdeItens.txt")))) {
+			idItens = (Integer) entrada.readObject();
+		}
+
+		return new EstadoDoSistema(usuarios, doacoes, descritores, idItens);
+	}
+	/**
+	 * Monta uma doacao do formato antigo, em que Doacoes.txt guardava um TreeMap da doacao(apenas data e descricao do
+	 *   item) para o texto da listagem, de onde saem o doador, a quantidade e o receptor
+	 * @param id id sequencial dado a doacao
+	 * @param chave doacao guardada como chave, com a data e a descricao do item
+	 * @param texto texto da doacao no formato de Doacao.toString()
+	 * @return a doacao completa
+	 * @throws IOException caso o texto nao esteja no formato esperado
+	 */
+	private static Doacao doacaoDoFormatoAntigo(long id, Doacao chave, String texto) throws IOException {
+		String inicio = chave.getData() + " - doador: ";
+		String item = ", item: " + chave.getDescricaoItemDoado() + ", quantidade: ";
+		int fimDoDoador = texto.indexOf(item, inicio.length());
+		int fimDaQuantidade = texto.indexOf(", receptor: ", fimDoDoador + item.length());
+		if (!texto.startsWith(inicio) || fimDoDoador < 0 || fimDaQuantidade < 0) {
+			throw new IOException("Arquivo do sistema invalido: doacao em formato desconhecido.");
+		}
+
+		try {
+			String doador = texto.substring(inicio.length(), fimDoDoador);
+			int quantidade = Integer.parseInt(texto.substring(fimDoDoador + item.length(), fimDaQuantidade));
+			String receptor = texto.substring(fimDaQuantidade + ", receptor: ".length());
+			return new Doacao(id, chave.getData(), chave.getDescricaoItemDoado(), doador, receptor, quantidade);
+		} catch (NumberFormatException e) {
+			throw new IOException("Arquivo do sistema invalido: doacao em formato desconhecido.", e);
+		}
+	}
+	/**
+	 * Escreve uma secao: o tipo, o tamanho, o conteudo e o CRC32 do conteudo
+	 */
+	private static void escreveSecao(DataOutputStream saida, int tipo, ByteArrayOutputStream conteudo) throws IOException {
+		CRC32 crc = new CRC32();
+		byte[] bytes = conteudo.toByteArray();
+		crc.update(bytes, 0, bytes.length);
+
+		saida.writeInt(tipo);
+		saida.writeInt(bytes.length);
+		saida.write(bytes);
+		saida.writeInt((int) crc.getValue());
+	}
+	/**
+	 * Le o conteudo de uma secao cujo tipo ja foi lido, conferindo o seu CRC32
+	 */
+	private static byte[] leSecao(DataInputStream entrada) throws IOException {
+		int tamanho = entrada.readInt();
+		if (tamanho < 0) {
+			throw new IOException("Arquivo do sistema invalido: secao de tamanho negativo.");
+		}
+		byte[] bytes = new byte[tamanho];
+		entrada.readFully(bytes);
+
+		CRC32 crc = new CRC32();
+		crc.update(bytes, 0, bytes.length);
+		if (entrada.readInt() != (int) crc.getValue()) {
+			throw new IOException("Arquivo do sistema invalido: secao corrompida.");
+		}
+		return bytes;
+	}
+	/**
+	 * Le uma referencia ao dicionario e retorna o texto referenciado
+	 */
+	private static String texto(String[] textos, DataInput entrada) throws IOException {
+		long referencia = Numeros.le(entrada);
+		if (referencia == 0) {
+			return null;
+		}
+		if (referencia < 0 || referencia > textos.length) {
+			throw new IOException("Arquivo do sistema invalido: referencia fora do dicionario.");
+		}
+		return textos[(int) referencia - 1];
+	}
+	/**
+	 * Dicionario dos textos distintos de um estado sendo gravado. A referencia 0 representa null e as demais sao a
+	 *   posicao do texto no dicionario mais um
+	 */
+	private static class Dicionario {
+		/**
+		 * Referencia de cada texto ja visto
+		 */
+		private Map<String,Integer> referencias = new HashMap<String,Integer>();
+		/**
+		 * Textos em ordem de referencia
+		 */
+		private List<String> textos = new ArrayList<String>();
+		/**
+		 * Retorna a referencia de um texto, acrescentando-o ao dicionario caso ele ainda nao esteja nele
+		 */
+		int referencia(String texto) {
+			if (texto == null) {
+				return 0;
+			}
+			Integer referencia = this.referencias.get(texto);
+			if (referencia == null) {
+				this.textos.add(texto);
+				referencia = this.textos.size();
+				this.referencias.put(texto, referencia);
+			}
+			return referencia;
+		}
+		/**
+		 * Grava o dicionario: a quantidade de textos e, para cada um, o tamanho e os bytes em UTF-8
+		 */
+		ByteArrayOutputStream grava() throws IOException {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream saida = new DataOutputStream(bytes);
+			Numeros.escreve(saida, this.textos.size());
+			for (String texto : this.textos) {
+				byte[] utf8 = texto.getBytes(StandardCharsets.UTF_8);
+				Numeros.escreve(saida, utf8.length);
+				saida.write(utf8);
+			}
+			return bytes;
+		}
+		/**
+		 * Le os textos de um dicionario gravado
+		 */
+		static String[] le(DataInputStream entrada) throws IOException {
+			int quantidade = (int) Numeros.le(entrada);
+			String[] textos = new String[quantidade];
+			for (int i = 0; i < quantidade; i++) {
+				byte[] utf8 = new byte[(int) Numeros.le(entrada)];
+				entrada.readFully(utf8);
+				textos[i] = new String(utf8, StandardCharsets.UTF_8);
+			}
+			return textos;
+		}
+	}
+}
@@ -1,8 +1,10 @@
 package eDoe;
 
 import java.io.IOException;
+import java.util.List;
 
 import easyaccept.EasyAccept;
+import util.Pagina;
 
 public class Facade {
 	private Controller c;
@@ -25,6 +27,10 @@ public class Facade {
 		return c.pesquisaUsuarioPorNome(nome);
 	}
 	
+	public void pesquisaUsuarioPorNome(String nome, Appendable saida) throws IOException {
+		c.pesquisaUsuarioPorNome(nome, saida);
+	}
+	
 	public String atualizaUsuario(String id, String nome, String email, String celular) {
 		return c.atualizaUsuario(id,nome,email,celular);
 	}
@@ -57,14 +63,34 @@ public class Facade {
 		return c.listaDescritorDeItensParaDoacao();
 	}
 	
+	public void listaDescritorDeItensParaDoacao(Appendable saida) throws IOException {
+		c.listaDescritorDeItensParaDoacao(saida);
+	}
+	
 	public String listaItensParaDoacao() {
 		return c.listaItensParaDoacao();
 	}
 	
+	public void listaItensParaDoacao(Appendable saida) throws IOException {
+		c.listaItensParaDoacao(saida);
+	}
+	
+	public Pagina listaItensParaDoacao(int tamanhoDaPagina, String cursor) {
+		return c.listaItensParaDoacao(tamanhoDaPagina, cursor);
+	}
+	
 	public String pesquisaItemParaDoacaoPorDescricao(String desc) {
 		return c.pesquisaItemParaDoacaoPorDescricao(desc);
 	}
 	
+	public void pesquisaItemParaDoacaoPorDescricao(String desc, Appendable saida) throws IOException {
+		c.pesquisaItemParaDoacaoPorDescricao(desc, saida);
+	}
+	
+	public Pagina pesquisaItemParaDoacaoPorDescricao(String desc, int tamanhoDaPagina, String cursor) {
+		return c.pesquisaItemParaDoacaoPorDescricao(desc, tamanhoDaPagina, cursor);
+	}
+	
 	public int adicionaItemNecessario(String idReceptor, String descricaoItem, int quantidade, String tags) {
 		return c.adicionaItem(idReceptor,descricaoItem,quantidade,tags);
 	}
@@ -73,6 +99,14 @@ public class Facade {
 		return c.listaItensNecessarios();
 	}
 	
+	public void listaItensNecessarios(Appendable saida) throws IOException {
+		c.listaItensNecessarios(saida);
+	}
+	
+	public Pagina listaItensNecessarios(int tamanhoDaPagina, String cursor) {
+		return c.listaItensNecessarios(tamanhoDaPagina, cursor);
+	}
+	
 	public String atualizaItemNecessario(String idReceptor,int idItem, int novaQuantidade, String novasTags) {
 		return c.atualizaItem(idItem, idReceptor, novaQuantidade, novasTags);
 	}
@@ -85,6 +119,18 @@ public class Facade {
 		return c.match(idReceptor, idItemNecessario);
 	}
 	
+	public void match(String idReceptor, int idItemNecessario, Appendable saida) throws IOException {
+		c.match(idReceptor, idItemNecessario, saida);
+	}
+	
+	public String match(String idReceptor, int idItemNecessario, int k) {
+		return c.match(idReceptor, idItemNecessario, k);
+	}
+	
+	public void configuraDiario(String politica, int intervaloEmMilissegundos) {
+		c.configuraDiario(politica, intervaloEmMilissegundos);
+	}
+	
 	public String realizaDoacao(int idItemNec, int idItemDoado, String data) {
 		return c.realizaDoacao(idItemNec, idItemDoado, data);
 	}
@@ -93,6 +139,22 @@ public class Facade {
 		return c.listaDoacoes();
 	}
 	
+	public void listaDoacoes(Appendable saida) throws IOException {
+		c.listaDoacoes(saida);
+	}
+	
+	public List<String> realizaDoacoes(List<PedidoDeDoacao> pedidos) {
+		return c.realizaDoacoes(pedidos);
+	}
+	
+	public String alocaDoacoes(String modo, String data) {
+		return c.alocaDoacoes(modo, data);
+	}
+	
+	public Pagina listaDoacoes(int tamanhoDaPagina, String cursor) {
+		return c.listaDoacoes(tamanhoDaPagina, cursor);
+	}
+	
 	public void finalizaSistema() throws IOException {
 		c.finalizaSistema();
 	}
@@ -101,6 +163,18 @@ public class Facade {
 		c.iniciaSistema();
 	}
 	
+	public void checkpoint() throws IOException {
+		c.checkpoint();
+	}
+	
+	public void configuraCheckpointPeriodico(int intervaloEmMilissegundos) {
+		c.configuraCheckpointPeriodico(intervaloEmMilissegundos);
+	}
+	
+	public String metricasDeCheckpoint() {
+		return c.metricasDeCheckpoint();
+	}
+	
 	public static void main(String[] args) {
 		args = new String[] {"eDoe.Facade","EasyAcceptTestes/use_case_1.txt","EasyAcceptTestes/use_case_2.txt","EasyAcceptTestes/use_case_3.txt","EasyAcceptTestes/use_case_4.txt","EasyAcceptTestes/use_case_5.txt","EasyAcceptTestes/use_case_6.txt","EasyAcceptTestes/use_case_7.txt"};
 		EasyAccept.main(args);
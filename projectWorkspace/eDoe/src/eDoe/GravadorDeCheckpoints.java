@@ -0,0 +1,206 @@
+package eDoe;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import util.Diario;
+/**
+ * Grava em segundo plano os checkpoints capturados pelo controlador, um de cada vez e na ordem da captura, e guarda as
+ *   metricas deles(veja MetricasDeCheckpoint). Para cada checkpoint ele fecha o diario de operacoes da geracao
+ *   capturada, grava o delta(ou a base, caso o checkpoint seja completo) e so entao apaga os diarios dessa geracao.
+ * <p>
+ * Caso a gravacao de um delta falhe, as mudancas dele nao estao em nenhum arquivo alem dos diarios, que nao sao
+ *   apagados; os deltas seguintes ja capturados sao descartados, ja que nao poderiam ser aplicados sem ele, e o
+ *   controlador passa a capturar checkpoints completos ate que um seja gravado.
+ */
+public class GravadorDeCheckpoints {
+	/**
+	 * Arquivos onde os checkpoints sao gravados
+	 */
+	private final ArquivosDoSistema arquivos;
+	/**
+	 * Executor que grava os checkpoints, com uma unica thread
+	 */
+	private final ExecutorService gravador;
+	/**
+	 * Executor que dispara os checkpoints periodicos
+	 */
+	private final ScheduledExecutorService agendador;
+	/**
+	 * Agendamento dos checkpoints periodicos, ou null caso eles estejam desligados
+	 */
+	private ScheduledFuture<?> agendamento;
+	/**
+	 * Gravacao do ultimo checkpoint capturado
+	 */
+	private Future<?> ultimaGravacao;
+	/**
+	 * Quantidade de checkpoints gravados
+	 */
+	private final AtomicLong concluidos;
+	/**
+	 * Quantidade de checkpoints que falharam
+	 */
+	private final AtomicLong falhas;
+	/**
+	 * Quantidade de checkpoints capturados e ainda nao gravados
+	 */
+	private final AtomicInteger pendentes;
+	/**
+	 * Estado sendo gravado, ou null caso nenhum esteja
+	 */
+	private volatile EstadoDoSistema emAndamento;
+	/**
+	 * Duracao da ultima captura, em microssegundos
+	 */
+	private volatile long duracaoDaUltimaCaptura;
+	/**
+	 * Duracao da ultima gravacao, em milissegundos
+	 */
+	private volatile long duracaoDaUltimaGravacao;
+	/**
+	 * Mensagem da ultima falha
+	 */
+	private volatile String ultimaFalha;
+	/**
+	 * Indica se uma gravacao falhou desde o ultimo checkpoint completo gravado
+	 */
+	private volatile boolean precisaDeBase;
+	/**
+	 * Construtor que constroi o gravador a partir dos arquivos onde os checkpoints serao gravados
+	 * @param arquivos arquivos do sistema
+	 */
+	public GravadorDeCheckpoints(ArquivosDoSistema arquivos) {
+		this.arquivos = arquivos;
+		this.gravador = Executors.newSingleThreadExecutor(tarefa -> {
+			Thread thread = new Thread(tarefa, "gravador-de-checkpoints");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.agendador = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+			Thread thread = new Thread(tarefa, "agendador-de-checkpoints");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.concluidos = new AtomicLong();
+		this.falhas = new AtomicLong();
+		this.pendentes = new AtomicInteger();
+	}
+	/**
+	 * Informa se o proximo checkpoint deve ser completo: caso ainda nao exista uma base ou uma gravacao tenha falhado
+	 * @return true caso o proximo checkpoint deva guardar o estado completo
+	 */
+	public boolean precisaDeBase() {
+		return this.precisaDeBase || !this.arquivos.existeBase();
+	}
+	/**
+	 * Pede a gravacao em segundo plano de um checkpoint capturado
+	 * @param estado estado capturado: completo, ou parcial com as mudancas desde o checkpoint anterior
+	 * @param completo indica se o estado e completo e deve ser gravado como base
+	 * @param diarioAntigo diario de operacoes da geracao capturada, que ja nao recebe registros
+	 * @param duracaoDaCaptura duracao da captura, em nanossegundos
+	 * @return a gravacao, que termina quando o checkpoint estiver gravado
+	 */
+	public synchronized Future<?> grava(EstadoDoSistema estado, boolean completo, Diario diarioAntigo, long duracaoDaCaptura) {
+		this.duracaoDaUltimaCaptura = TimeUnit.NANOSECONDS.toMicros(duracaoDaCaptura);
+		this.pendentes.incrementAndGet();
+		this.ultimaGravacao = this.gravador.submit(() -> {
+			gravaAgora(estado, completo, diarioAntigo);
+			return null;
+		});
+		return this.ultimaGravacao;
+	}
+	/**
+	 * Grava um checkpoint, na thread do gravador
+	 */
+	private void gravaAgora(EstadoDoSistema estado, boolean completo, Diario diarioAntigo) throws IOException {
+		long inicio = System.nanoTime();
+		this.emAndamento = estado;
+		try {
+			diarioAntigo.close();
+			if (!completo && this.precisaDeBase) {
+				throw new IOException("Checkpoint descartado: um checkpoint anterior falhou.");
+			}
+
+			if (completo) {
+				this.arquivos.gravaBase(estado);
+				this.precisaDeBase = false;
+			}
+			else {
+				this.arquivos.gravaDelta(estado);
+			}
+			this.arquivos.apagaDiariosAte(estado.getGeracaoDoDiario());
+
+			this.concluidos.incrementAndGet();
+			this.duracaoDaUltimaGravacao = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+		} catch (IOException | RuntimeException e) {
+			this.precisaDeBase = true;
+			registraFalha(e);
+			throw e;
+		} finally {
+			this.emAndamento = null;
+			this.pendentes.decrementAndGet();
+		}
+	}
+	/**
+	 * Registra nas metricas a falha de um checkpoint
+	 * @param falha excecao que causou a falha
+	 */
+	public void registraFalha(Exception falha) {
+		this.falhas.incrementAndGet();
+		this.ultimaFalha = falha.getMessage();
+	}
+	/**
+	 * Espera a gravacao de todos os checkpoints ja capturados. Falhas de gravacao nao sao repassadas, ja que ficam nas
+	 * metricas.
+	 * @throws IOException caso a espera seja interrompida
+	 */
+	public void aguarda() throws IOException {
+		Future<?> ultima;
+		synchronized (this) {
+			ultima = this.ultimaGravacao;
+		}
+		if (ultima == null) {
+			return;
+		}
+		try {
+			ultima.get();
+		} catch (ExecutionException e) {
+			return;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Espera pelos checkpoints interrompida.", e);
+		}
+	}
+	/**
+	 * Agenda uma tarefa de checkpoint periodica, substituindo a anterior
+	 * @param intervaloEmMilissegundos intervalo entre o fim de uma execucao e o inicio da proxima, ou 0 para desligar
+	 * @param checkpoint tarefa que captura um checkpoint
+	 */
+	public synchronized void agenda(long intervaloEmMilissegundos, Runnable checkpoint) {
+		if (this.agendamento != null) {
+			this.agendamento.cancel(false);
+			this.agendamento = null;
+		}
+		if (intervaloEmMilissegundos > 0) {
+			this.agendamento = this.agendador.scheduleWithFixedDelay(checkpoint, intervaloEmMilissegundos, intervaloEmMilissegundos, TimeUnit.MILLISECONDS);
+		}
+	}
+	/**
+	 * Retorna um retrato das metricas dos checkpoints
+	 * @return as metricas
+	 */
+	public MetricasDeCheckpoint getMetricas() {
+		EstadoDoSistema emAndamento = this.emAndamento;
+		return new MetricasDeCheckpoint(this.concluidos.get(), this.falhas.get(), this.pendentes.get(), emAndamento == null ? 0 : emAndamento.getRegistrosGravados(), emAndamento == null ? 0 : emAndamento.getTotalDeRegistros(),
+				this.duracaoDaUltimaCaptura, this.duracaoDaUltimaGravacao, this.ultimaFalha);
+	}
+}
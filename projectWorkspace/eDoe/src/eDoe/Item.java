@@ -1,6 +1,12 @@
 package eDoe;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
+
+import util.ConjuntoDeTags;
+import util.DicionarioDeTags;
 
 /**
  * Item que é armazenado por usuario e representa um item doado ou um item necessario dependendo se o usuario for doador ou receptor
@@ -8,6 +14,11 @@ import java.io.Serializable;
  *
  */
 public class Item implements Comparable<Item>, Serializable{
+	/**
+	 * Versao de serializacao do item, fixada no valor calculado para a versao original da classe para que os arquivos
+	 * salvos por ela continuem legiveis. Os campos acrescentados depois sao transient e reconstruidos em readObject.
+	 */
+	private static final long serialVersionUID = -5981239222801319850L;
 	/**
 	 * Descricao do item
 	 */
@@ -20,6 +31,27 @@ public class Item implements Comparable<Item>, Serializable{
 	 * Tags do item no formato tag1,tag2,tag3,etc...
 	 */
 	private String Tags;
+	/**
+	 * Tags do item ja separadas, usadas apenas na representacao textual
+	 */
+	private transient String[] listaTags;
+	/**
+	 * Identificadores das tags do item no dicionario de tags, na mesma ordem das tags
+	 */
+	private transient int[] idsDasTags;
+	/**
+	 * Identificadores das tags do item no dicionario de tags desconsiderando maiusculas e minusculas,
+	 * na mesma ordem das tags
+	 */
+	private transient int[] idsDasTagsIgnorandoCaixa;
+	/**
+	 * Conjunto compacto dos identificadores das tags do item, usado para contar as tags em comum com outro item
+	 */
+	private transient ConjuntoDeTags conjuntoDeTags;
+	/**
+	 * Dicionario que da os identificadores das tags, ou null enquanto o item nao pertencer a nenhum controlador
+	 */
+	private transient DicionarioDeTags dicionarioDeTags;
 	/**
 	 * Id unico do item
 	 */
@@ -32,10 +64,47 @@ public class Item implements Comparable<Item>, Serializable{
 	 * @param id Id unico do item
 	 */
 	public Item(String descricao, int quantidade, String tags, int id) {
+		this(descricao, quantidade, tags, id, null);
+	}
+	/**
+	 * Construtor de item, constroi o item a partir de uma descricao,quantidade,tags, id e do dicionario de tags do
+	 * controlador ao qual ele pertence
+	 * @param descricao Descricao do item
+	 * @param quantidade Quantidade do item
+	 * @param tags Tags do item no formato tag1,tag2,tag3,etc...
+	 * @param id Id unico do item
+	 * @param dicionarioDeTags dicionario que da os identificadores das tags
+	 */
+	public Item(String descricao, int quantidade, String tags, int id, DicionarioDeTags dicionarioDeTags) {
 		this.descricao = descricao;
 		this.quantidade = quantidade;
-		this.Tags = tags;
 		this.id = id;
+		this.dicionarioDeTags = dicionarioDeTags;
+		setTags(tags);
+	}
+	/**
+	 * Retorna uma copia do item como ele esta agora, usada pelos checkpoints para gravar o item enquanto o original
+	 *  continua sendo alterado. As tags separadas e os seus identificadores sao compartilhados com a copia, ja que o
+	 *  item troca os vetores inteiros ao mudar de tags em vez de altera-los.
+	 * @return a copia do item
+	 */
+	public Item copia() {
+		return new Item(this);
+	}
+	/**
+	 * Construtor de copia usado por copia()
+	 * @param original item copiado
+	 */
+	private Item(Item original) {
+		this.descricao = original.descricao;
+		this.quantidade = original.quantidade;
+		this.id = original.id;
+		this.Tags = original.Tags;
+		this.listaTags = original.listaTags;
+		this.idsDasTags = original.idsDasTags;
+		this.idsDasTagsIgnorandoCaixa = original.idsDasTagsIgnorandoCaixa;
+		this.conjuntoDeTags = original.conjuntoDeTags;
+		this.dicionarioDeTags = original.dicionarioDeTags;
 	}
 	/**
 	 * Representacao textual de Item no formato "id" - "descricao", tags: ["tags"], quantidade: "quantidade"
@@ -43,15 +112,22 @@ public class Item implements Comparable<Item>, Serializable{
 	 */
 	@Override
 	public String toString() {
-		String[] listaTags = this.Tags.split(",");
-		String tags = "";
-		tags += this.id + " - " + this.descricao + ", tags: [";
-		for (int i = 0; i < listaTags.length; i++) {
-			tags += listaTags[i] + ", ";
+		StringBuilder retorno = new StringBuilder();
+		try {
+			escreveEm(retorno);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
 		}
-		String retorno = tags.substring(0,tags.length()-2);
-		retorno += "], quantidade: " + this.quantidade;
-		return retorno;
+		return retorno.toString();
+	}
+	/**
+	 * Escreve a representacao textual de item, no formato "id" - "descricao", tags: ["tags"], quantidade: "quantidade", na saida passada
+	 * @param saida saida que recebera a representacao
+	 * @throws IOException caso a saida nao possa ser escrita
+	 */
+	public void escreveEm(Appendable saida) throws IOException {
+		saida.append(String.valueOf(this.id)).append(" - ");
+		escreveDescricaoETagsEQuantidadesEm(saida);
 	}
 	/**
 	 * hashCode de item baseado no id
@@ -84,15 +160,93 @@ public class Item implements Comparable<Item>, Serializable{
 	 * @return a descricao, as tags e a quantidade do item, no formato: "descricao", tags: ["tags"], quantidade: "quantidade"
 	 */
 	public String getDescricaoETagsEQuantidades() {
-		String[] listaTags = this.Tags.split(",");
-		String tags = "";
-		tags += this.descricao + ", tags: [";
-		for (int i = 0; i < listaTags.length; i++) {
-			tags += listaTags[i] + ", ";
+		StringBuilder retorno = new StringBuilder();
+		try {
+			escreveDescricaoETagsEQuantidadesEm(retorno);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
 		}
-		String retorno = tags.substring(0,tags.length()-2);
-		retorno += "], quantidade: " + this.quantidade;
-		return retorno;
+		return retorno.toString();
+	}
+	/**
+	 * Escreve a descricao, as tags e a quantidade do item na saida passada, no formato: "descricao", tags: ["tags"], quantidade: "quantidade"
+	 * @param saida saida que recebera a representacao
+	 * @throws IOException caso a saida nao possa ser escrita
+	 */
+	public void escreveDescricaoETagsEQuantidadesEm(Appendable saida) throws IOException {
+		escreveDescricaoETagsEQuantidades(saida, this.descricao, this.listaTags, this.quantidade);
+	}
+	/**
+	 * Escreve uma descricao, tags ja separadas e uma quantidade no formato de escreveDescricaoETagsEQuantidadesEm, usado
+	 * tambem pelos retratos de itens
+	 * @param saida saida que recebera a representacao
+	 * @param descricao descricao do item
+	 * @param listaTags tags separadas do item
+	 * @param quantidade quantidade do item
+	 * @throws IOException caso a saida nao possa ser escrita
+	 */
+	static void escreveDescricaoETagsEQuantidades(Appendable saida, String descricao, String[] listaTags, int quantidade) throws IOException {
+		saida.append(descricao);
+		if (listaTags.length == 0) {
+			saida.append(", tags:");
+		}
+		else {
+			saida.append(", tags: [").append(listaTags[0]);
+			for (int i = 1; i < listaTags.length; i++) {
+				saida.append(", ").append(listaTags[i]);
+			}
+		}
+		saida.append("], quantidade: ").append(String.valueOf(quantidade));
+	}
+	/**
+	 * Retorna um retrato imutavel do estado atual do item junto com o seu dono
+	 * @param dono usuario que possui o item
+	 * @return o retrato do item
+	 */
+	public RetratoDeItem retrato(Usuario dono) {
+		return new RetratoDeItem(this.id, this.descricao, this.listaTags, this.quantidade, dono.getNome(), dono.getId());
+	}
+	/**
+	 * Calcula os pontos de match referentes as tags entre este item(o item necessario) e um candidato a doacao,
+	 *   sem criar nenhum objeto: cada tag deste item presente no candidato vale 5 pontos e cada posicao em que
+	 *   as tags dos dois itens sao iguais(ignorando maiusculas e minusculas) vale mais 5 pontos. Quando este item
+	 *   nao tem tags repetidas as tags em comum sao contadas pela intersecao dos conjuntos de tags. Os dois itens devem
+	 *   usar o mesmo dicionario de tags.
+	 * @param candidatoADoacao item que esta sendo avaliado com relacao a este item
+	 * @return os pontos de match das tags
+	 */
+	public int pontosDeMatchDasTags(Item candidatoADoacao) {
+		int pontos = 0;
+		
+		if (this.conjuntoDeTags.tamanho() == this.idsDasTags.length) {
+			pontos += 5 * this.conjuntoDeTags.tamanhoDaIntersecao(candidatoADoacao.conjuntoDeTags);
+		}
+		
+		else {
+			for (int i = 0; i < this.idsDasTags.length; i++) {
+				if (candidatoADoacao.conjuntoDeTags.contem(this.idsDasTags[i])) {
+					pontos += 5;
+				}
+			}
+		}
+		
+		int tagsEmComum = Math.min(this.idsDasTagsIgnorandoCaixa.length, candidatoADoacao.idsDasTagsIgnorandoCaixa.length);
+		
+		for (int i = 0; i < tagsEmComum; i++) {
+			if (this.idsDasTagsIgnorandoCaixa[i] == candidatoADoacao.idsDasTagsIgnorandoCaixa[i]) {
+				pontos += 5;
+			}
+		}
+		
+		return pontos;
+	}
+	/**
+	 * Retorna o maior valor que pontosDeMatchDasTags pode devolver para este item: 5 pontos por tag presente no
+	 *   candidato e mais 5 por posicao igual
+	 * @return os pontos maximos de match das tags
+	 */
+	public int pontosMaximosDeMatchDasTags() {
+		return 5 * this.idsDasTags.length + 5 * this.idsDasTagsIgnorandoCaixa.length;
 	}
 	/**
 	 * Retorna o id
@@ -123,11 +277,45 @@ public class Item implements Comparable<Item>, Serializable{
 		this.quantidade = quant;
 	}
 	/**
-	 * Muda as tags para o valor passado
+	 * Muda as tags para o valor passado, separando-as e registrando seus identificadores no dicionario de tags, caso o
+	 * item ja tenha um
 	 * @param tags novas tagas
 	 */
 	public void setTags(String tags) {
 		this.Tags = tags;
+		this.listaTags = (tags == null ? "" : tags).split(",");
+		identificaTags();
+	}
+	/**
+	 * Passa a usar o dicionario de tags de um controlador, registrando nele as tags do item. Usado para os itens
+	 * construidos fora do controlador, como os lidos dos arquivos do sistema.
+	 * @param dicionarioDeTags dicionario de tags do controlador
+	 */
+	public void usaDicionarioDeTags(DicionarioDeTags dicionarioDeTags) {
+		this.dicionarioDeTags = dicionarioDeTags;
+		identificaTags();
+	}
+	/**
+	 * Calcula os identificadores das tags no dicionario de tags, caso o item tenha um
+	 */
+	private void identificaTags() {
+		if (this.dicionarioDeTags == null) {
+			this.idsDasTags = null;
+			this.idsDasTagsIgnorandoCaixa = null;
+			this.conjuntoDeTags = null;
+			return;
+		}
+		
+		int[] idsDasTags = new int[this.listaTags.length];
+		int[] idsDasTagsIgnorandoCaixa = new int[this.listaTags.length];
+		for (int i = 0; i < this.listaTags.length; i++) {
+			idsDasTags[i] = this.dicionarioDeTags.idDaTag(this.listaTags[i]);
+			idsDasTagsIgnorandoCaixa[i] = this.dicionarioDeTags.idDaTagIgnorandoCaixa(this.listaTags[i]);
+		}
+		
+		this.idsDasTags = idsDasTags;
+		this.idsDasTagsIgnorandoCaixa = idsDasTagsIgnorandoCaixa;
+		this.conjuntoDeTags = new ConjuntoDeTags(idsDasTags);
 	}
 	/**
 	 * Retorna a descricao
@@ -158,7 +346,18 @@ public class Item implements Comparable<Item>, Serializable{
 		return this.quantidade;
 	}
 	/**
-	 * Compara os itens naturalmente pela quantidade
+	 * Reconstroi as tags separadas ao ler um item salvo. Os identificadores das tags sao calculados quando o item
+	 * passa a usar o dicionario de tags de um controlador(veja usaDicionarioDeTags).
+	 * @param entrada stream de onde o item e lido
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	private void readObject(ObjectInputStream entrada) throws IOException, ClassNotFoundException {
+		entrada.defaultReadObject();
+		setTags(this.Tags);
+	}
+	/**
+	 * Compara os itens naturalmente pela quantidade(maior quantidade primeiro), depois pela descricao e por ultimo pelo id
 	 */
 	@Override
 	public int compareTo(Item i) {
@@ -166,8 +365,12 @@ public class Item implements Comparable<Item>, Serializable{
 		
 		else if (this.getQuant()<i.getQuant()) return 1;
 		
-		else {
+		else if (!this.getDescricao().equals(i.getDescricao())) {
 			return this.getDescricao().compareTo(i.getDescricao());
-		}	
+		}
+		
+		else {
+			return Integer.compare(this.getId(), i.getId());
+		}
 	}
 }
@@ -0,0 +1,127 @@
+package eDoe;
+/**
+ * Retrato imutavel das metricas dos checkpoints em segundo plano do controlador: quantos terminaram ou falharam,
+ *   quantos ainda vao ser gravados, o progresso da gravacao em andamento e a duracao da ultima captura(feita com o
+ *   sistema travado) e da ultima gravacao(feita em segundo plano).
+ */
+public class MetricasDeCheckpoint {
+	/**
+	 * Quantidade de checkpoints gravados
+	 */
+	private final long concluidos;
+	/**
+	 * Quantidade de checkpoints que falharam
+	 */
+	private final long falhas;
+	/**
+	 * Quantidade de checkpoints capturados e ainda nao gravados, incluindo o que esta sendo gravado
+	 */
+	private final int pendentes;
+	/**
+	 * Registros ja gravados pelo checkpoint em andamento
+	 */
+	private final long registrosGravados;
+	/**
+	 * Total de registros do checkpoint em andamento, ou 0 caso nenhum esteja sendo gravado
+	 */
+	private final long totalDeRegistros;
+	/**
+	 * Duracao da captura do ultimo checkpoint, em microssegundos
+	 */
+	private final long duracaoDaUltimaCaptura;
+	/**
+	 * Duracao da gravacao do ultimo checkpoint gravado, em milissegundos
+	 */
+	private final long duracaoDaUltimaGravacao;
+	/**
+	 * Mensagem da ultima falha, ou null caso nenhum checkpoint tenha falhado
+	 */
+	private final String ultimaFalha;
+	/**
+	 * Construtor que constroi o retrato a partir dos valores das metricas
+	 * @param concluidos quantidade de checkpoints gravados
+	 * @param falhas quantidade de checkpoints que falharam
+	 * @param pendentes quantidade de checkpoints ainda nao gravados
+	 * @param registrosGravados registros ja gravados pelo checkpoint em andamento
+	 * @param totalDeRegistros total de registros do checkpoint em andamento
+	 * @param duracaoDaUltimaCaptura duracao da ultima captura, em microssegundos
+	 * @param duracaoDaUltimaGravacao duracao da ultima gravacao, em milissegundos
+	 * @param ultimaFalha mensagem da ultima falha, ou null
+	 */
+	MetricasDeCheckpoint(long concluidos, long falhas, int pendentes, long registrosGravados, long totalDeRegistros, long duracaoDaUltimaCaptura, long duracaoDaUltimaGravacao, String ultimaFalha) {
+		this.concluidos = concluidos;
+		this.falhas = falhas;
+		this.pendentes = pendentes;
+		this.registrosGravados = registrosGravados;
+		this.totalDeRegistros = totalDeRegistros;
+		this.duracaoDaUltimaCaptura = duracaoDaUltimaCaptura;
+		this.duracaoDaUltimaGravacao = duracaoDaUltimaGravacao;
+		this.ultimaFalha = ultimaFalha;
+	}
+	/**
+	 * Retorna a quantidade de checkpoints gravados
+	 * @return a quantidade de checkpoints gravados
+	 */
+	public long getConcluidos() {
+		return this.concluidos;
+	}
+	/**
+	 * Retorna a quantidade de checkpoints que falharam
+	 * @return a quantidade de falhas
+	 */
+	public long getFalhas() {
+		return this.falhas;
+	}
+	/**
+	 * Retorna a quantidade de checkpoints capturados e ainda nao gravados
+	 * @return a quantidade de checkpoints pendentes
+	 */
+	public int getPendentes() {
+		return this.pendentes;
+	}
+	/**
+	 * Retorna quantos registros o checkpoint em andamento ja gravou
+	 * @return os registros gravados
+	 */
+	public long getRegistrosGravados() {
+		return this.registrosGravados;
+	}
+	/**
+	 * Retorna o total de registros do checkpoint em andamento
+	 * @return o total de registros, ou 0 caso nenhum checkpoint esteja sendo gravado
+	 */
+	public long getTotalDeRegistros() {
+		return this.totalDeRegistros;
+	}
+	/**
+	 * Retorna a duracao da captura do ultimo checkpoint
+	 * @return a duracao em microssegundos
+	 */
+	public long getDuracaoDaUltimaCaptura() {
+		return this.duracaoDaUltimaCaptura;
+	}
+	/**
+	 * Retorna a duracao da gravacao do ultimo checkpoint gravado
+	 * @return a duracao em milissegundos
+	 */
+	public long getDuracaoDaUltimaGravacao() {
+		return this.duracaoDaUltimaGravacao;
+	}
+	/**
+	 * Retorna a mensagem da ultima falha
+	 * @return a mensagem, ou null caso nenhum checkpoint tenha falhado
+	 */
+	public String getUltimaFalha() {
+		return this.ultimaFalha;
+	}
+	/**
+	 * Representacao das metricas no formato "concluidos: "concluidos", falhas: "falhas", pendentes: "pendentes",
+	 *   progresso: "registrosGravados"/"totalDeRegistros", ultima captura: "duracao"us, ultima gravacao: "duracao"ms"
+	 * @return a representacao das metricas
+	 */
+	@Override
+	public String toString() {
+		return "concluidos: " + this.concluidos + ", falhas: " + this.falhas + ", pendentes: " + this.pendentes + ", progresso: " + this.registrosGravados + "/" + this.totalDeRegistros
+				+ ", ultima captura: " + this.duracaoDaUltimaCaptura + "us, ultima gravacao: " + this.duracaoDaUltimaGravacao + "ms";
+	}
+}
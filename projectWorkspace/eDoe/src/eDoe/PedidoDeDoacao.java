@@ -0,0 +1,51 @@
+package eDoe;
+/**
+ * Classe que guarda um pedido de doacao de um lote de doacoes: o item necessario, o item que sera doado e a data
+ *   em que a doacao deve ser realizada, os mesmos parametros de realizaDoacao do controlador
+ */
+public class PedidoDeDoacao {
+	/**
+	 * Id do item necessario
+	 */
+	private int idNecessario;
+	/**
+	 * Id do item que sera doado
+	 */
+	private int idDoado;
+	/**
+	 * Data da doacao no formato dd/MM/yyyy
+	 */
+	private String data;
+	/**
+	 * Construtor que constroi o pedido a partir do id do item necessario, do id do item doado e da data da doacao
+	 * @param idNecessario id do item necessario
+	 * @param idDoado id do item que sera doado
+	 * @param data data da doacao no formato dd/MM/yyyy
+	 */
+	public PedidoDeDoacao(int idNecessario, int idDoado, String data) {
+		this.idNecessario = idNecessario;
+		this.idDoado = idDoado;
+		this.data = data;
+	}
+	/**
+	 * Metodo que retorna o id do item necessario
+	 * @return o id do item necessario
+	 */
+	public int getIdNecessario() {
+		return this.idNecessario;
+	}
+	/**
+	 * Metodo que retorna o id do item que sera doado
+	 * @return o id do item que sera doado
+	 */
+	public int getIdDoado() {
+		return this.idDoado;
+	}
+	/**
+	 * Metodo que retorna a data da doacao
+	 * @return a data da doacao no formato dd/MM/yyyy
+	 */
+	public String getData() {
+		return this.data;
+	}
+}
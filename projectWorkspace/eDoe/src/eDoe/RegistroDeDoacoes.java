@@ -0,0 +1,205 @@
+package eDoe;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+/**
+ * Livro de registro das doacoes realizadas no sistema. As doacoes sao guardadas apenas por acrescimo, em segmentos
+ *   de tamanho fixo e na ordem em que foram realizadas, e cada uma recebe um id sequencial. Um indice ordenado por
+ *   data, descricao e id e mantido para a listagem das doacoes. O registro pode ser usado por varias threads: o
+ *   acrescimo e sincronizado e o indice ordenado e uma ConcurrentSkipListSet, que pode ser percorrida durante
+ *   novos registros.
+ */
+public class RegistroDeDoacoes {
+	/**
+	 * Quantidade de doacoes guardadas em cada segmento
+	 */
+	private static final int TAMANHO_DO_SEGMENTO = 1024;
+	/**
+	 * Segmentos com as doacoes em ordem de registro
+	 */
+	private List<Doacao[]> segmentos;
+	/**
+	 * Quantidade de doacoes registradas
+	 */
+	private int tamanho;
+	/**
+	 * Id que sera dado a proxima doacao registrada
+	 */
+	private long proximoId;
+	/**
+	 * Doacoes ordenadas por data, descricao e id
+	 */
+	private ConcurrentSkipListSet<Doacao> ordenadas;
+	/**
+	 * Quantidade de doacoes registradas ate o ultimo checkpoint do controlador
+	 */
+	private int tamanhoNoUltimoCheckpoint;
+	/**
+	 * Construtor que constroi o registro vazio
+	 */
+	public RegistroDeDoacoes() {
+		this.segmentos = new ArrayList<Doacao[]>();
+		this.tamanho = 0;
+		this.proximoId = 0;
+		this.ordenadas = new ConcurrentSkipListSet<Doacao>();
+		this.tamanhoNoUltimoCheckpoint = 0;
+	}
+	/**
+	 * Registra uma nova doacao, dando a ela o proximo id sequencial
+	 * @param data data da doacao no formato dd/MM/yyyy
+	 * @param descricaoItemDoado descricao do item doado
+	 * @param doador doador no formato "nome"/"id"
+	 * @param receptor receptor no formato "nome"/"id"
+	 * @param quantidade quantidade de itens doados
+	 * @return a doacao registrada
+	 */
+	public synchronized Doacao registra(String data, String descricaoItemDoado, String doador, String receptor, int quantidade) {
+		return registra(-1, data, descricaoItemDoado, doador, receptor, quantidade);
+	}
+	/**
+	 * Registra uma nova doacao com um id ja definido, como o id guardado no diario de operacoes do controlador
+	 * @param id id da doacao, ou -1 para usar o proximo id sequencial
+	 * @param data data da doacao no formato dd/MM/yyyy
+	 * @param descricaoItemDoado descricao do item doado
+	 * @param doador doador no formato "nome"/"id"
+	 * @param receptor receptor no formato "nome"/"id"
+	 * @param quantidade quantidade de itens doados
+	 * @return a doacao registrada
+	 */
+	public synchronized Doacao registra(long id, String data, String descricaoItemDoado, String doador, String receptor, int quantidade) {
+		Doacao doacao = new Doacao(id < 0 ? this.proximoId : id, data, descricaoItemDoado, doador, receptor, quantidade);
+		acrescenta(doacao);
+		return doacao;
+	}
+	/**
+	 * Reserva ids sequenciais para doacoes que ainda serao registradas com eles, como as doacoes anotadas no diario de
+	 * operacoes antes de serem efetuadas
+	 * @param quantidade quantidade de ids reservados
+	 * @return o primeiro id reservado; os demais o seguem
+	 */
+	public synchronized long reservaIds(int quantidade) {
+		long primeiro = this.proximoId;
+		this.proximoId += quantidade;
+		return primeiro;
+	}
+	/**
+	 * Acrescenta ao final do registro uma doacao que ja possui id, como as doacoes lidas de um arquivo salvo
+	 * @param doacao doacao a ser acrescentada
+	 */
+	public synchronized void acrescenta(Doacao doacao) {
+		if (this.tamanho % TAMANHO_DO_SEGMENTO == 0) {
+			this.segmentos.add(new Doacao[TAMANHO_DO_SEGMENTO]);
+		}
+		this.segmentos.get(this.tamanho / TAMANHO_DO_SEGMENTO)[this.tamanho % TAMANHO_DO_SEGMENTO] = doacao;
+		doacao.setPosicaoNoRegistro(this.tamanho);
+		this.tamanho += 1;
+		this.proximoId = Math.max(this.proximoId, doacao.getId() + 1);
+		this.ordenadas.add(doacao);
+	}
+	/**
+	 * Retorna a doacao na posicao passada da ordem de registro
+	 * @param posicao posicao da doacao
+	 * @return a doacao na posicao
+	 */
+	public synchronized Doacao getDoacao(int posicao) {
+		return this.segmentos.get(posicao / TAMANHO_DO_SEGMENTO)[posicao % TAMANHO_DO_SEGMENTO];
+	}
+	/**
+	 * Retorna a quantidade de doacoes registradas
+	 * @return a quantidade de doacoes
+	 */
+	public synchronized int tamanho() {
+		return this.tamanho;
+	}
+	/**
+	 * Retorna uma visao das doacoes em ordem de registro, sem copia-las. A visao acompanha o registro e deve ser
+	 * percorrida sem registros simultaneos
+	 * @return as doacoes em ordem de registro
+	 */
+	public List<Doacao> emOrdemDeRegistro() {
+		return new AbstractList<Doacao>() {
+			@Override
+			public Doacao get(int posicao) {
+				return getDoacao(posicao);
+			}
+
+			@Override
+			public int size() {
+				return tamanho();
+			}
+		};
+	}
+	/**
+	 * Retorna uma visao das doacoes registradas depois do ultimo checkpoint, em ordem de registro. Como o registro so
+	 * recebe acrescimos, elas sao as unicas mudancas do registro desde entao.
+	 * @return as doacoes registradas depois do ultimo checkpoint
+	 */
+	public synchronized List<Doacao> desdeOUltimoCheckpoint() {
+		return emOrdemDeRegistro().subList(this.tamanhoNoUltimoCheckpoint, this.tamanho);
+	}
+	/**
+	 * Retorna uma visao das doacoes registradas ate o ultimo checkpoint, em ordem de registro. Como o registro so
+	 * recebe acrescimos, a visao nao muda e pode ser percorrida durante novos registros.
+	 * @return as doacoes registradas ate o ultimo checkpoint
+	 */
+	public synchronized List<Doacao> ateOUltimoCheckpoint() {
+		return emOrdemDeRegistro().subList(0, this.tamanhoNoUltimoCheckpoint);
+	}
+	/**
+	 * Marca todas as doacoes registradas ate agora como ja guardadas em um checkpoint
+	 */
+	public synchronized void marcaCheckpoint() {
+		this.tamanhoNoUltimoCheckpoint = this.tamanho;
+	}
+	/**
+	 * Retorna as doacoes em ordem de data, descricao e id
+	 * @return as doacoes ordenadas
+	 */
+	public NavigableSet<Doacao> emOrdem() {
+		return Collections.unmodifiableNavigableSet(this.ordenadas);
+	}
+	/**
+	 * Retorna um retrato das doacoes registradas ate agora, em ordem de data, descricao e id. O retrato custa O(1): como
+	 *   o registro so cresce e cada doacao entra no indice ordenado no mesmo acrescimo que lhe da a posicao, basta
+	 *   guardar o tamanho do registro e ignorar, ao percorrer o indice, as doacoes em posicoes posteriores. Ids
+	 *   reservados para doacoes ainda nao registradas nao entram no retrato, e o percurso termina assim que todas as
+	 *   doacoes do retrato forem devolvidas.
+	 * @return as doacoes registradas ate o momento da chamada, ordenadas
+	 */
+	public synchronized Iterable<Doacao> retrato() {
+		int marca = this.tamanho;
+		return () -> new Iterator<Doacao>() {
+			private final Iterator<Doacao> doacoes = ordenadas.iterator();
+			private int restantes = marca;
+			private Doacao proxima;
+
+			@Override
+			public boolean hasNext() {
+				while (this.proxima == null && this.restantes > 0) {
+					Doacao doacao = this.doacoes.next();
+					if (doacao.getPosicaoNoRegistro() < marca) {
+						this.proxima = doacao;
+					}
+				}
+				return this.proxima != null;
+			}
+
+			@Override
+			public Doacao next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				Doacao doacao = this.proxima;
+				this.proxima = null;
+				this.restantes -= 1;
+				return doacao;
+			}
+		};
+	}
+}
@@ -0,0 +1,64 @@
+package eDoe;
+
+import java.io.IOException;
+/**
+ * Retrato imutavel de um item e do seu dono em um instante, usado pelos relatorios que percorrem muitos itens: o
+ *   retrato e tirado rapidamente com os indices travados para leitura e escrito depois, sem travas,
+ *   enquanto o sistema continua recebendo escritas. As tags separadas sao compartilhadas com o item, ja que ele
+ *   troca o vetor inteiro ao mudar de tags em vez de altera-lo.
+ */
+public class RetratoDeItem {
+	/**
+	 * Id do item
+	 */
+	private final int id;
+	/**
+	 * Descricao do item
+	 */
+	private final String descricao;
+	/**
+	 * Tags separadas do item
+	 */
+	private final String[] listaTags;
+	/**
+	 * Quantidade do item no instante do retrato
+	 */
+	private final int quantidade;
+	/**
+	 * Nome do dono do item no instante do retrato
+	 */
+	private final String nomeDoDono;
+	/**
+	 * Id do dono do item
+	 */
+	private final String idDoDono;
+	/**
+	 * Construtor que constroi o retrato a partir dos campos do item e do seu dono
+	 * @param id id do item
+	 * @param descricao descricao do item
+	 * @param listaTags tags separadas do item, que nao podem ser alteradas depois
+	 * @param quantidade quantidade do item
+	 * @param nomeDoDono nome do dono do item
+	 * @param idDoDono id do dono do item
+	 */
+	RetratoDeItem(int id, String descricao, String[] listaTags, int quantidade, String nomeDoDono, String idDoDono) {
+		this.id = id;
+		this.descricao = descricao;
+		this.listaTags = listaTags;
+		this.quantidade = quantidade;
+		this.nomeDoDono = nomeDoDono;
+		this.idDoDono = idDoDono;
+	}
+	/**
+	 * Escreve o item seguido do seu dono na saida passada, no mesmo formato das listagens do controlador:
+	 *   "id" - "descricao", tags: ["tags"], quantidade: "quantidade""rotulo""nomeDoDono"/"idDoDono"
+	 * @param rotulo texto que separa o item do seu dono, como ", doador: "
+	 * @param saida saida que recebera a representacao
+	 * @throws IOException caso a saida nao possa ser escrita
+	 */
+	public void escreveComDonoEm(String rotulo, Appendable saida) throws IOException {
+		saida.append(String.valueOf(this.id)).append(" - ");
+		Item.escreveDescricaoETagsEQuantidades(saida, this.descricao, this.listaTags, this.quantidade);
+		saida.append(rotulo).append(this.nomeDoDono).append("/").append(this.idDoDono);
+	}
+}
@@ -1,14 +1,23 @@
 package eDoe;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeSet;
 /**
  * Classe que serve para representar um usuario do sistema,seja doador ou receptor.
  * @author Daniel de Matos Figueredo.
  *
  */
 public class Usuario implements Serializable{
+	/**
+	 * Versao de serializacao do usuario, fixada no valor calculado para a versao original da classe para que os
+	 * arquivos salvos por ela continuem legiveis. Os campos acrescentados depois sao transient e reconstruidos em readObject.
+	 */
+	private static final long serialVersionUID = -8519628171869461893L;
 	/**
 	 * String que representa o nome do usuario
 	 */
@@ -37,6 +46,15 @@ public class Usuario implements Serializable{
 	 * Mapa cuja chave equivale a um id e cujo valor equivale ao item que e identificado por aquele id
 	 */
 	private Map<Integer, Item> itens;
+	/**
+	 * Indice dos itens do usuario pela descricao(em letras minusculas) e pelas tags, cujo valor sao os ids dos itens
+	 * com aquela descricao e aquelas tags. Usado para descobrir em tempo constante se o usuario ja possui um item igual
+	 */
+	private transient Map<String, Map<String, TreeSet<Integer>>> itensPorDescricaoETags;
+	/**
+	 * Visao somente de leitura do mapa de itens, criada uma unica vez e devolvida por getItens
+	 */
+	private transient Map<Integer, Item> itensSomenteLeitura;
 	/**
 	 * Construtor da classe de Usuario, constroi com base nos valores passados de nome, id, email, celular,
 	 * classe, status e apos isso e construido um HashMap para o atributo itens
@@ -55,7 +73,8 @@ public class Usuario implements Serializable{
 		this.classe=classe;
 		this.status=status;
 		this.itens=new HashMap<>();
-		
+		this.itensPorDescricaoETags=new HashMap<>();
+		this.itensSomenteLeitura=Collections.unmodifiableMap(this.itens);
 	}	
 	/**
 	 * Metodo que retorna a representacao em String de um item que o usuario contem, baseado no id do item
@@ -74,7 +93,136 @@ public class Usuario implements Serializable{
 	 * @param id id do item a ser adicionado
 	 */
 	public void adicionaItem(String descricaoItem, int quantidade, String tags, int id) {
-		itens.put(id, new Item(descricaoItem, quantidade, tags, id));
+		adicionaItem(new Item(descricaoItem, quantidade, tags, id));
+	}
+	/**
+	 * Metodo que retorna uma copia do usuario e dos seus itens como eles estao agora, usada pelos checkpoints para
+	 * gravar o usuario enquanto o original continua sendo alterado
+	 * @return a copia do usuario
+	 */
+	public Usuario copia() {
+		Usuario copia = new Usuario(this.id, this.nome, this.email, this.celular, this.classe, this.status);
+		for (Item item : this.itens.values()) {
+			copia.adicionaItem(item.copia());
+		}
+		return copia;
+	}
+	/**
+	 * Metodo que adiciona um item ja construido ao mapa do atributo itens e ao indice de descricao e tags
+	 * @param item item a ser adicionado
+	 */
+	public void adicionaItem(Item item) {
+		Item anterior = itens.put(item.getId(), item);
+		if (anterior != null) {
+			desindexaItem(anterior);
+		}
+		indexaItem(item);
+	}
+	/**
+	 * Metodo que remove um item do usuario com base no id do item
+	 * @param id id do item a ser removido
+	 * @return o item removido, ou null caso o usuario nao possua o item
+	 */
+	public Item removeItem(int id) {
+		Item removido = itens.remove(id);
+		if (removido != null) {
+			desindexaItem(removido);
+		}
+		return removido;
+	}
+	/**
+	 * Metodo que muda as tags de um item do usuario, mantendo o indice de descricao e tags atualizado
+	 * @param id id do item a ser modificado
+	 * @param tags novas tags do item
+	 */
+	public void mudaTagsDoItem(int id, String tags) {
+		desindexaItem(itens.get(id));
+		itens.get(id).setTags(tags);
+		indexaItem(itens.get(id));
+	}
+	/**
+	 * Metodo que procura um item do usuario pelo id
+	 * @param id id do item procurado
+	 * @return o item com o id passado, ou null caso o usuario nao o possua
+	 */
+	public Item buscaItem(int id) {
+		return itens.get(id);
+	}
+	/**
+	 * Metodo que informa se o usuario possui o item com o id passado
+	 * @param id id do item
+	 * @return true caso o usuario possua o item
+	 */
+	public boolean possuiItem(int id) {
+		return itens.containsKey(id);
+	}
+	/**
+	 * Metodo que retorna a quantidade de itens do usuario
+	 * @return a quantidade de itens
+	 */
+	public int quantidadeDeItens() {
+		return itens.size();
+	}
+	/**
+	 * Metodo que procura um item do usuario com a descricao(sem diferenciar maiusculas de minusculas) e as tags passadas
+	 * @param descricaoItem descricao do item procurado
+	 * @param tags tags do item procurado
+	 * @return o item de menor id com a descricao e as tags passadas, ou null caso o usuario nao possua nenhum
+	 */
+	public Item buscaItem(String descricaoItem, String tags) {
+		Map<String, TreeSet<Integer>> itensDaDescricao = itensPorDescricaoETags.get(descricaoItem.toLowerCase());
+		
+		if (tags == null || itensDaDescricao == null || !itensDaDescricao.containsKey(tags)) {
+			return null;
+		}
+		return itens.get(itensDaDescricao.get(tags).first());
+	}
+	/**
+	 * Metodo que adiciona um item ao indice de descricao e tags
+	 * @param item item a ser indexado
+	 */
+	private void indexaItem(Item item) {
+		String descricao = item.getDescricao().toLowerCase();
+		
+		if (!itensPorDescricaoETags.containsKey(descricao)) {
+			itensPorDescricaoETags.put(descricao, new HashMap<>());
+		}
+		if (!itensPorDescricaoETags.get(descricao).containsKey(item.getTags())) {
+			itensPorDescricaoETags.get(descricao).put(item.getTags(), new TreeSet<>());
+		}
+		itensPorDescricaoETags.get(descricao).get(item.getTags()).add(item.getId());
+	}
+	/**
+	 * Metodo que retira um item do indice de descricao e tags
+	 * @param item item a ser retirado do indice
+	 */
+	private void desindexaItem(Item item) {
+		String descricao = item.getDescricao().toLowerCase();
+		Map<String, TreeSet<Integer>> itensDaDescricao = itensPorDescricaoETags.get(descricao);
+		
+		if (itensDaDescricao != null && itensDaDescricao.containsKey(item.getTags())) {
+			itensDaDescricao.get(item.getTags()).remove(item.getId());
+			if (itensDaDescricao.get(item.getTags()).isEmpty()) {
+				itensDaDescricao.remove(item.getTags());
+			}
+			if (itensDaDescricao.isEmpty()) {
+				itensPorDescricaoETags.remove(descricao);
+			}
+		}
+	}
+	/**
+	 * Metodo que reconstroi o indice de descricao e tags ao ler um usuario salvo
+	 * @param entrada stream de onde o usuario e lido
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	private void readObject(ObjectInputStream entrada) throws IOException, ClassNotFoundException {
+		entrada.defaultReadObject();
+		itensSomenteLeitura = Collections.unmodifiableMap(itens);
+		itensPorDescricaoETags = new HashMap<>();
+		for (Item item : itens.values()) {
+			indexaItem(item);
+		}
 	}
 	/**
 	 * Metodo que muda a quantidade e as tags de um item , com base no id do item que sera modificado
@@ -86,7 +234,7 @@ public class Usuario implements Serializable{
 	 */
 	public String atualizaItemParaDoacao(int id, int quantidade, String tags) {
 		itens.get(id).setQuant(quantidade);
-		itens.get(id).setTags(tags);
+		mudaTagsDoItem(id, tags);
 		
 		return itens.get(id).toString();
 	}
@@ -154,11 +302,13 @@ public class Usuario implements Serializable{
 		this.celular = celular;
 	}
 	/**
-	 * Metodo que retorna o mapa dos itens de usuario
+	 * Metodo que retorna uma visao somente de leitura do mapa dos itens de usuario(os itens sao adicionados e removidos
+	 * pelos metodos adicionaItem e removeItem). Para procurar um item pelo id, buscaItem e possuiItem evitam passar
+	 * pela visao.
 	 * @return os itens de usuario no formato de mapa
 	 */
 	public Map<Integer, Item> getItens() {
-		return itens;
+		return itensSomenteLeitura;
 	}
 	/**
 	 * Hashcode do usuario baseado em seu id
@@ -0,0 +1,289 @@
+package util;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+/**
+ * Classe que calcula um plano de doacoes para um grupo de itens com a mesma descricao: dados as quantidades
+ *   necessarias, as quantidades disponiveis para doacao e os pontos de match entre cada item necessario e cada
+ *   item doado, decide quanto de cada item doado vai para cada item necessario buscando maximizar a soma de
+ *   pontos de match multiplicados pela quantidade doada. A classe nao guarda estado entre chamadas e pode ser
+ *   usada por varias threads ao mesmo tempo.
+ */
+public class AlocadorDeDoacoes {
+	/**
+	 * Modo que doa primeiro os pares de maior ponto de match. E o mais rapido, mas nao garante o melhor plano
+	 */
+	public static final String GULOSO = "GULOSO";
+	/**
+	 * Modo em que cada unidade necessaria disputa as unidades doadas em um leilao. Garante o melhor plano, mas o
+	 *   custo cresce com as quantidades dos itens; grupos com muitas unidades usam o fluxo de custo minimo
+	 */
+	public static final String LEILAO = "LEILAO";
+	/**
+	 * Modo que resolve o grupo como um fluxo de custo minimo. Garante o melhor plano e o custo depende apenas da
+	 *   quantidade de itens, nao das suas quantidades
+	 */
+	public static final String FLUXO_DE_CUSTO_MINIMO = "FLUXO_DE_CUSTO_MINIMO";
+	/**
+	 * Maior quantidade de pares(item necessario, item doado) aceita em um grupo. Todos os modos guardam ao menos um
+	 *   valor por par, entao grupos maiores sao recusados em vez de esgotar a memoria
+	 */
+	public static final int MAXIMO_DE_PARES = 1 << 22;
+	/**
+	 * Maior quantidade de unidades(a maior entre as unidades necessarias e as doadas) que o leilao aceita. O leilao
+	 *   guarda uma posicao por unidade e cada lance percorre todas as unidades doadas, entao acima desse limite o
+	 *   grupo e resolvido pelo fluxo de custo minimo, que chega ao mesmo valor otimo com custo independente das
+	 *   quantidades
+	 */
+	public static final int MAXIMO_DE_UNIDADES_NO_LEILAO = 2048;
+	/**
+	 * Modo usado pelo alocador
+	 */
+	private String modo;
+	/**
+	 * Construtor que constroi o alocador a partir do modo de alocacao
+	 * @param modo um dos modos GULOSO, LEILAO ou FLUXO_DE_CUSTO_MINIMO
+	 */
+	public AlocadorDeDoacoes(String modo) {
+		this.modo = modo;
+	}
+	/**
+	 * Informa se um modo de alocacao e conhecido
+	 * @param modo modo a ser verificado
+	 * @return true caso o modo seja GULOSO, LEILAO ou FLUXO_DE_CUSTO_MINIMO
+	 */
+	public static boolean modoValido(String modo) {
+		return GULOSO.equals(modo) || LEILAO.equals(modo) || FLUXO_DE_CUSTO_MINIMO.equals(modo);
+	}
+	/**
+	 * Verifica se um grupo cabe no alocador, o que deve ser feito antes de montar os pontos de match do grupo
+	 * @param necessarios quantidade de itens necessarios do grupo
+	 * @param doados quantidade de itens doados do grupo
+	 */
+	public static void validaTamanhoDoGrupo(int necessarios, int doados) {
+		if ((long) necessarios * doados > MAXIMO_DE_PARES) throw new IllegalArgumentException("Entrada invalida: grupo de itens grande demais para a alocacao.");
+	}
+	/**
+	 * Calcula o plano de doacoes de um grupo
+	 * @param necessidades quantidade de cada item necessario
+	 * @param ofertas quantidade de cada item doado
+	 * @param pontos pontos de match entre o item necessario i e o item doado j
+	 * @return a quantidade do item doado j que vai para o item necessario i
+	 */
+	public int[][] aloca(int[] necessidades, int[] ofertas, int[][] pontos) {
+		validaTamanhoDoGrupo(necessidades.length, ofertas.length);
+		
+		if (this.modo.equals(LEILAO) && Math.max(soma(necessidades), soma(ofertas)) <= MAXIMO_DE_UNIDADES_NO_LEILAO) {
+			return alocaPorLeilao(necessidades, ofertas, pontos);
+		}
+		if (this.modo.equals(LEILAO) || this.modo.equals(FLUXO_DE_CUSTO_MINIMO)) {
+			return alocaPorFluxo(necessidades, ofertas, pontos);
+		}
+		return alocaGuloso(necessidades, ofertas, pontos);
+	}
+	/**
+	 * Ordena todos os pares pelo ponto de match(o maior vem primeiro, e em caso de empate o menor indice de item
+	 *   necessario e depois de item doado) e doa em cada par o maximo que ainda for possivel. Como o grupo tem no
+	 *   maximo MAXIMO_DE_PARES pares, n * m cabe em um int
+	 */
+	private int[][] alocaGuloso(int[] necessidades, int[] ofertas, int[][] pontos) {
+		int n = necessidades.length;
+		int m = ofertas.length;
+		int[] faltam = Arrays.copyOf(necessidades, n);
+		int[] restam = Arrays.copyOf(ofertas, m);
+		int[][] plano = new int[n][m];
+
+		long[] pares = new long[n * m];
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < m; j++) {
+				pares[i * m + j] = ((long) (Integer.MAX_VALUE - pontos[i][j]) << 32) | (i * m + j);
+			}
+		}
+		Arrays.sort(pares);
+
+		for (long par : pares) {
+			int indice = (int) par;
+			int i = indice / m;
+			int j = indice % m;
+			int quantidade = Math.min(faltam[i], restam[j]);
+			if (quantidade > 0) {
+				plano[i][j] += quantidade;
+				faltam[i] -= quantidade;
+				restam[j] -= quantidade;
+			}
+		}
+		return plano;
+	}
+	/**
+	 * Leilao de Bertsekas sobre as unidades: cada unidade necessaria sem doacao da um lance na unidade doada de maior
+	 *   valor liquido(pontos menos preco), aumentando o preco dela pela diferenca para a segunda melhor mais um.
+	 *   Os pontos sao multiplicados pela quantidade de unidades mais um, o que torna o incremento minimo pequeno o
+	 *   bastante para o resultado ser otimo. Unidades doadas ficticias de valor zero completam as ofertas quando ha
+	 *   mais unidades necessarias que doadas.
+	 */
+	private int[][] alocaPorLeilao(int[] necessidades, int[] ofertas, int[][] pontos) {
+		int n = necessidades.length;
+		int m = ofertas.length;
+		int[] itemDoLicitante = expandeEmUnidades(necessidades);
+		int[] itemDoObjeto = expandeEmUnidades(ofertas);
+		int licitantes = itemDoLicitante.length;
+		int objetos = Math.max(itemDoObjeto.length, licitantes);
+		long escala = licitantes + 1;
+
+		long[] precos = new long[objetos];
+		int[] donoDoObjeto = new int[objetos];
+		Arrays.fill(donoDoObjeto, -1);
+		int[] objetoDoLicitante = new int[licitantes];
+
+		ArrayDeque<Integer> semDoacao = new ArrayDeque<Integer>();
+		for (int b = 0; b < licitantes; b++) {
+			semDoacao.add(b);
+		}
+
+		while (!semDoacao.isEmpty()) {
+			int b = semDoacao.poll();
+			int i = itemDoLicitante[b];
+			int melhor = -1;
+			long melhorValor = Long.MIN_VALUE;
+			long segundoValor = Long.MIN_VALUE;
+
+			for (int o = 0; o < objetos; o++) {
+				long valor = (o < itemDoObjeto.length ? pontos[i][itemDoObjeto[o]] * escala : 0) - precos[o];
+				if (valor > melhorValor) {
+					segundoValor = melhorValor;
+					melhorValor = valor;
+					melhor = o;
+				} else if (valor > segundoValor) {
+					segundoValor = valor;
+				}
+			}
+
+			precos[melhor] += (segundoValor == Long.MIN_VALUE ? 0 : melhorValor - segundoValor) + 1;
+			if (donoDoObjeto[melhor] >= 0) {
+				semDoacao.add(donoDoObjeto[melhor]);
+			}
+			donoDoObjeto[melhor] = b;
+			objetoDoLicitante[b] = melhor;
+		}
+
+		int[][] plano = new int[n][m];
+		for (int b = 0; b < licitantes; b++) {
+			if (objetoDoLicitante[b] < itemDoObjeto.length) {
+				plano[itemDoLicitante[b]][itemDoObjeto[objetoDoLicitante[b]]] += 1;
+			}
+		}
+		return plano;
+	}
+	/**
+	 * Soma as quantidades sem estourar o int
+	 */
+	private static long soma(int[] quantidades) {
+		long total = 0;
+		for (int quantidade : quantidades) {
+			total += quantidade;
+		}
+		return total;
+	}
+	/**
+	 * Transforma quantidades por item em uma lista de unidades, cada uma guardando o indice do seu item. So e chamado
+	 *   com no maximo MAXIMO_DE_UNIDADES_NO_LEILAO unidades
+	 */
+	private int[] expandeEmUnidades(int[] quantidades) {
+		int[] unidades = new int[(int) soma(quantidades)];
+		int posicao = 0;
+		for (int i = 0; i < quantidades.length; i++) {
+			Arrays.fill(unidades, posicao, posicao + quantidades[i], i);
+			posicao += quantidades[i];
+		}
+		return unidades;
+	}
+	/**
+	 * Fluxo de custo minimo por caminhos aumentantes mais curtos: a fonte liga cada item necessario com capacidade
+	 *   igual a sua quantidade, cada item necessario liga cada item doado com custo igual a menos os pontos de match,
+	 *   e cada item doado liga o destino com capacidade igual a sua quantidade. O fluxo e aumentado pelo caminho de
+	 *   menor custo, encontrado com Bellman-Ford, enquanto esse custo for negativo.
+	 */
+	private int[][] alocaPorFluxo(int[] necessidades, int[] ofertas, int[][] pontos) {
+		int n = necessidades.length;
+		int m = ofertas.length;
+		int fonte = n + m;
+		int destino = n + m + 1;
+		int vertices = n + m + 2;
+		int arestas = (int) (2 * ((long) n + m + (long) n * m));
+
+		int[] origem = new int[arestas];
+		int[] alvo = new int[arestas];
+		int[] capacidade = new int[arestas];
+		int[] custo = new int[arestas];
+		int total = 0;
+
+		for (int i = 0; i < n; i++) {
+			total = adicionaAresta(origem, alvo, capacidade, custo, total, fonte, i, necessidades[i], 0);
+		}
+		for (int j = 0; j < m; j++) {
+			total = adicionaAresta(origem, alvo, capacidade, custo, total, n + j, destino, ofertas[j], 0);
+		}
+		int primeiraArestaDoPar = total;
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < m; j++) {
+				total = adicionaAresta(origem, alvo, capacidade, custo, total, i, n + j, Integer.MAX_VALUE, -pontos[i][j]);
+			}
+		}
+
+		long[] distancia = new long[vertices];
+		int[] arestaAnterior = new int[vertices];
+		while (true) {
+			Arrays.fill(distancia, Long.MAX_VALUE);
+			Arrays.fill(arestaAnterior, -1);
+			distancia[fonte] = 0;
+
+			boolean mudou = true;
+			for (int rodada = 0; rodada < vertices && mudou; rodada++) {
+				mudou = false;
+				for (int a = 0; a < total; a++) {
+					if (capacidade[a] > 0 && distancia[origem[a]] != Long.MAX_VALUE && distancia[origem[a]] + custo[a] < distancia[alvo[a]]) {
+						distancia[alvo[a]] = distancia[origem[a]] + custo[a];
+						arestaAnterior[alvo[a]] = a;
+						mudou = true;
+					}
+				}
+			}
+
+			if (distancia[destino] == Long.MAX_VALUE || distancia[destino] >= 0) {
+				break;
+			}
+
+			int gargalo = Integer.MAX_VALUE;
+			for (int v = destino; v != fonte; v = origem[arestaAnterior[v]]) {
+				gargalo = Math.min(gargalo, capacidade[arestaAnterior[v]]);
+			}
+			for (int v = destino; v != fonte; v = origem[arestaAnterior[v]]) {
+				capacidade[arestaAnterior[v]] -= gargalo;
+				capacidade[arestaAnterior[v] ^ 1] += gargalo;
+			}
+		}
+
+		int[][] plano = new int[n][m];
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < m; j++) {
+				plano[i][j] = capacidade[primeiraArestaDoPar + 2 * (i * m + j) + 1];
+			}
+		}
+		return plano;
+	}
+	/**
+	 * Adiciona uma aresta e a sua aresta reversa, de capacidade zero e custo oposto, na posicao seguinte
+	 * @return a quantidade de arestas depois da adicao
+	 */
+	private int adicionaAresta(int[] origem, int[] alvo, int[] capacidade, int[] custo, int total, int de, int para, int cap, int c) {
+		origem[total] = de;
+		alvo[total] = para;
+		capacidade[total] = cap;
+		custo[total] = c;
+		origem[total + 1] = para;
+		alvo[total + 1] = de;
+		capacidade[total + 1] = 0;
+		custo[total + 1] = -c;
+		return total + 2;
+	}
+}
@@ -0,0 +1,99 @@
+package util;
+
+import java.util.Arrays;
+/**
+ * Conjunto compacto de identificadores de tags(ver DicionarioDeTags), usado para calcular rapidamente quantas tags
+ *   dois itens possuem em comum. Quando os identificadores estao proximos entre si o conjunto e guardado como um
+ *   mapa de bits que cobre apenas as palavras de 64 bits ocupadas, e a intersecao e a contagem de bits do AND
+ *   entre as palavras; quando estao espalhados ele e guardado como um array ordenado, evitando mapas de bits grandes
+ *   e quase vazios.
+ */
+public class ConjuntoDeTags {
+	/**
+	 * Quantidade maxima de palavras de 64 bits que um conjunto pode ocupar para ser guardado como mapa de bits
+	 */
+	private static final int MAXIMO_DE_PALAVRAS = 4;
+	/**
+	 * Indice da primeira palavra representada no mapa de bits
+	 */
+	private int primeiraPalavra;
+	/**
+	 * Palavras do mapa de bits, ou null caso o conjunto seja guardado como array ordenado
+	 */
+	private long[] palavras;
+	/**
+	 * Identificadores distintos do conjunto em ordem crescente
+	 */
+	private int[] ids;
+	/**
+	 * Construtor que constroi o conjunto a partir dos identificadores passados, que podem estar repetidos e fora de ordem
+	 * @param idsDasTags identificadores das tags
+	 */
+	public ConjuntoDeTags(int[] idsDasTags) {
+		int[] ordenados = idsDasTags.clone();
+		Arrays.sort(ordenados);
+
+		int distintos = 0;
+		for (int i = 0; i < ordenados.length; i++) {
+			if (i == 0 || ordenados[i] != ordenados[i-1]) {
+				ordenados[distintos++] = ordenados[i];
+			}
+		}
+		this.ids = Arrays.copyOf(ordenados, distintos);
+
+		if (distintos > 0 && (this.ids[distintos-1] >>> 6) - (this.ids[0] >>> 6) < MAXIMO_DE_PALAVRAS) {
+			this.primeiraPalavra = this.ids[0] >>> 6;
+			this.palavras = new long[(this.ids[distintos-1] >>> 6) - this.primeiraPalavra + 1];
+			for (int id : this.ids) {
+				this.palavras[(id >>> 6) - this.primeiraPalavra] |= 1L << id;
+			}
+		}
+	}
+	/**
+	 * Retorna a quantidade de identificadores distintos no conjunto
+	 * @return a quantidade de identificadores distintos
+	 */
+	public int tamanho() {
+		return this.ids.length;
+	}
+	/**
+	 * Verifica se um identificador pertence ao conjunto
+	 * @param id identificador procurado
+	 * @return true se o identificador pertence ao conjunto, false caso contrario
+	 */
+	public boolean contem(int id) {
+		if (this.palavras != null) {
+			int palavra = (id >>> 6) - this.primeiraPalavra;
+			return palavra >= 0 && palavra < this.palavras.length && (this.palavras[palavra] & (1L << id)) != 0;
+		}
+		return Arrays.binarySearch(this.ids, id) >= 0;
+	}
+	/**
+	 * Calcula quantos identificadores este conjunto possui em comum com outro, sem criar nenhum objeto
+	 * @param outro conjunto a ser comparado
+	 * @return a quantidade de identificadores em comum
+	 */
+	public int tamanhoDaIntersecao(ConjuntoDeTags outro) {
+		if (this.palavras != null && outro.palavras != null) {
+			int inicio = Math.max(this.primeiraPalavra, outro.primeiraPalavra);
+			int fim = Math.min(this.primeiraPalavra + this.palavras.length, outro.primeiraPalavra + outro.palavras.length);
+			int emComum = 0;
+
+			for (int palavra = inicio; palavra < fim; palavra++) {
+				emComum += Long.bitCount(this.palavras[palavra - this.primeiraPalavra] & outro.palavras[palavra - outro.primeiraPalavra]);
+			}
+			return emComum;
+		}
+
+		ConjuntoDeTags menor = this.ids.length <= outro.ids.length ? this : outro;
+		ConjuntoDeTags maior = menor == this ? outro : this;
+		int emComum = 0;
+
+		for (int id : menor.ids) {
+			if (maior.contem(id)) {
+				emComum++;
+			}
+		}
+		return emComum;
+	}
+}
@@ -0,0 +1,67 @@
+package util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+/**
+ * Classe que codifica e decodifica os cursores opacos das listagens paginadas. Um cursor guarda os campos da chave
+ *   do ultimo elemento de uma pagina, cada um precedido do seu tamanho, codificados em Base64.
+ */
+public class Cursor {
+	/**
+	 * Construtor privado, a classe possui apenas metodos estaticos
+	 */
+	private Cursor() {
+
+	}
+	/**
+	 * Codifica os campos passados em um cursor opaco
+	 * @param campos campos da chave do ultimo elemento da pagina
+	 * @return o cursor
+	 */
+	public static String codifica(String... campos) {
+		StringBuilder cursor = new StringBuilder();
+		for (String campo : campos) {
+			cursor.append(campo.length()).append(':').append(campo);
+		}
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.toString().getBytes(StandardCharsets.UTF_8));
+	}
+	/**
+	 * Decodifica um cursor opaco, lancando uma excecao caso ele nao tenha sido gerado por codifica com a quantidade de campos esperada
+	 * @param cursor cursor a ser decodificado
+	 * @param quantidadeDeCampos quantidade de campos esperada
+	 * @return os campos do cursor
+	 */
+	public static String[] decodifica(String cursor, int quantidadeDeCampos) {
+		try {
+			String texto = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+			String[] campos = new String[quantidadeDeCampos];
+			int posicao = 0;
+
+			for (int i = 0; i < quantidadeDeCampos; i++) {
+				int separador = texto.indexOf(':', posicao);
+				int tamanho = Integer.parseInt(texto.substring(posicao, separador));
+				campos[i] = texto.substring(separador + 1, separador + 1 + tamanho);
+				posicao = separador + 1 + tamanho;
+			}
+
+			if (posicao != texto.length()) {
+				throw new IllegalArgumentException();
+			}
+			return campos;
+		} catch (RuntimeException e) {
+			throw new IllegalArgumentException("Entrada invalida: cursor invalido.");
+		}
+	}
+	/**
+	 * Decodifica um campo numerico de um cursor
+	 * @param campo campo a ser decodificado
+	 * @return o valor do campo
+	 */
+	public static long campoNumerico(String campo) {
+		try {
+			return Long.parseLong(campo);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Entrada invalida: cursor invalido.");
+		}
+	}
+}
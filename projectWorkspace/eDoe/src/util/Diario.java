@@ -0,0 +1,466 @@
+package util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+/**
+ * Diario(journal) de escrita antecipada: arquivo em que cada operacao que altera o sistema e acrescentada como um
+ *   registro binario, para que o estado desde o ultimo arquivo salvo possa ser reconstruido depois de uma queda. O
+ *   arquivo comeca com uma assinatura, a versao e a geracao do diario; cada registro guarda o seu tamanho, o CRC32 do
+ *   seu conteudo e o conteudo(o tipo da operacao e os seus campos, textos ou numeros).
+ * <p>
+ * Registrar uma operacao e dividido em duas etapas. registra apenas acrescenta o registro a um buffer e deve ser
+ *   chamado com as travas da operacao pegas e antes de aplica-la, o que faz a ordem do diario seguir a ordem em que
+ *   as operacoes foram aplicadas. confirma, chamado depois de soltar as travas, espera o registro chegar ao disco
+ *   conforme a politica de sincronizacao. As confirmacoes sao feitas em grupo: a primeira thread que encontra registros
+ *   pendentes grava todos de uma vez, com um unico force, e as que chegarem enquanto isso esperam pela proxima gravacao.
+ * <p>
+ * Caso uma gravacao falhe, os registros dela voltam para o inicio do buffer, e nao sao perdidos, e o diario passa a
+ *   recusar confirmacoes. O proximo registra tenta recupera-lo gravando de novo tudo o que esta pendente; enquanto a
+ *   recuperacao falhar, registra lanca a falha e nenhuma operacao nova e aplicada.
+ */
+public class Diario implements Closeable {
+	/**
+	 * Politica que so confirma um registro depois de forcar a sua gravacao no disco. Um unico force atende todos os
+	 *   registros pendentes, o que divide o seu custo entre as operacoes simultaneas
+	 */
+	public static final String SEMPRE = "SEMPRE";
+	/**
+	 * Politica que confirma um registro assim que ele e entregue ao sistema operacional e forca a gravacao no disco
+	 *   periodicamente, podendo perder as ultimas operacoes em uma queda da maquina
+	 */
+	public static final String PERIODICA = "PERIODICA";
+	/**
+	 * Politica que confirma um registro assim que ele e entregue ao sistema operacional e deixa a gravacao no disco a
+	 *   cargo dele
+	 */
+	public static final String NUNCA = "NUNCA";
+	/**
+	 * Assinatura que abre todo diario, os bytes de "EDoj"
+	 */
+	private static final int ASSINATURA = 0x45446F6A;
+	/**
+	 * Versao do formato do diario
+	 */
+	private static final int VERSAO = 1;
+	/**
+	 * Tamanho do cabecalho: assinatura, versao e geracao
+	 */
+	private static final int TAMANHO_DO_CABECALHO = 16;
+	/**
+	 * Marcadores do tipo de cada campo de um registro
+	 */
+	private static final int CAMPO_NULO = 0, CAMPO_TEXTO = 1, CAMPO_NUMERO = 2;
+	/**
+	 * Canal do arquivo do diario, posicionado no fim
+	 */
+	private final FileChannel canal;
+	/**
+	 * Geracao do diario, que indica quais arquivos salvos ja contem as suas operacoes
+	 */
+	private final long geracao;
+	/**
+	 * Politica de sincronizacao
+	 */
+	private final String politica;
+	/**
+	 * Executor que forca a gravacao periodica, ou null caso a politica nao seja PERIODICA
+	 */
+	private final ScheduledExecutorService sincronizador;
+	/**
+	 * Registros acrescentados e ainda nao gravados
+	 */
+	private ByteArrayOutputStream pendentes;
+	/**
+	 * Numero do ultimo registro acrescentado
+	 */
+	private long ultimoRegistrado;
+	/**
+	 * Numero do ultimo registro confirmado
+	 */
+	private long ultimoConfirmado;
+	/**
+	 * Indica se alguma thread esta gravando um grupo de registros
+	 */
+	private boolean gravando;
+	/**
+	 * Falha da ultima gravacao, ou null caso ela tenha dado certo. Enquanto houver uma falha as confirmacoes a
+	 * repassam, e apenas uma recuperacao grava os registros pendentes.
+	 */
+	private IOException falha;
+	/**
+	 * Construtor privado, diarios sao abertos por abre
+	 */
+	private Diario(FileChannel canal, long geracao, String politica, int intervaloEmMilissegundos) {
+		this.canal = canal;
+		this.geracao = geracao;
+		this.politica = politica;
+		this.pendentes = new ByteArrayOutputStream();
+
+		if (politica.equals(PERIODICA)) {
+			this.sincronizador = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+				Thread thread = new Thread(tarefa, "sincronizador-do-diario");
+				thread.setDaemon(true);
+				return thread;
+			});
+			this.sincronizador.scheduleWithFixedDelay(this::forcaGravacao, intervaloEmMilissegundos, intervaloEmMilissegundos, TimeUnit.MILLISECONDS);
+		}
+		else {
+			this.sincronizador = null;
+		}
+	}
+	/**
+	 * Informa se uma politica de sincronizacao e conhecida
+	 * @param politica politica a ser verificada
+	 * @return true caso a politica seja SEMPRE, PERIODICA ou NUNCA
+	 */
+	public static boolean politicaValida(String politica) {
+		return SEMPRE.equals(politica) || PERIODICA.equals(politica) || NUNCA.equals(politica);
+	}
+	/**
+	 * Abre o diario de um arquivo para continuar acrescentando registros. Caso o arquivo exista e seja de uma geracao
+	 *   maior ou igual a geracao minima, os seus registros sao repassados, em ordem, para quem os aplica, e um registro
+	 *   final incompleto ou corrompido(de uma gravacao interrompida) e descartado. Caso contrario o arquivo e recriado
+	 *   vazio com a geracao minima.
+	 * @param caminho caminho do arquivo do diario
+	 * @param geracaoMinima menor geracao cujos registros ainda nao estao no arquivo salvo do sistema
+	 * @param politica politica de sincronizacao
+	 * @param intervaloEmMilissegundos intervalo entre as sincronizacoes da politica PERIODICA
+	 * @param aplicador recebe os campos de cada registro, sendo o primeiro o tipo da operacao
+	 * @return o diario aberto
+	 * @throws IOException caso o arquivo nao possa ser lido ou escrito
+	 */
+	public static Diario abre(String caminho, long geracaoMinima, String politica, int intervaloEmMilissegundos, Consumer<Object[]> aplicador) throws IOException {
+		Path arquivo = Paths.get(caminho);
+		FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			long geracao = leGeracao(canal);
+
+			if (geracao >= geracaoMinima) {
+				canal.truncate(reproduz(canal, aplicador));
+			}
+			else {
+				geracao = geracaoMinima;
+				canal.truncate(0);
+				ByteBuffer cabecalho = ByteBuffer.allocate(TAMANHO_DO_CABECALHO);
+				cabecalho.putInt(ASSINATURA).putInt(VERSAO).putLong(geracao).flip();
+				escreveTudo(canal, cabecalho, 0);
+				canal.force(true);
+			}
+
+			canal.position(canal.size());
+			return new Diario(canal, geracao, politica, intervaloEmMilissegundos);
+		} catch (IOException | RuntimeException e) {
+			canal.close();
+			throw e;
+		}
+	}
+	/**
+	 * Retorna a geracao do diario
+	 * @return a geracao do diario
+	 */
+	public long getGeracao() {
+		return this.geracao;
+	}
+	/**
+	 * Acrescenta um registro ao buffer do diario, sem esperar pela gravacao. Caso a ultima gravacao tenha falhado, tenta
+	 * antes recuperar o diario(veja recupera).
+	 * @param campos campos do registro, textos, numeros(Integer ou Long) ou null; o primeiro e o tipo da operacao
+	 * @return o registro pendente, a ser confirmado depois de soltar as travas da operacao
+	 * @throws IOException caso o diario tenha falhado e nao possa ser recuperado; nesse caso o registro nao e acrescentado
+	 */
+	public RegistroPendente registra(Object... campos) throws IOException {
+		recupera();
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream conteudo = new DataOutputStream(bytes);
+		try {
+			Numeros.escreve(conteudo, campos.length);
+			for (Object campo : campos) {
+				if (campo == null) {
+					conteudo.writeByte(CAMPO_NULO);
+				}
+				else if (campo instanceof String) {
+					byte[] utf8 = ((String) campo).getBytes(StandardCharsets.UTF_8);
+					conteudo.writeByte(CAMPO_TEXTO);
+					Numeros.escreve(conteudo, utf8.length);
+					conteudo.write(utf8);
+				}
+				else {
+					conteudo.writeByte(CAMPO_NUMERO);
+					Numeros.escreve(conteudo, ((Number) campo).longValue());
+				}
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+
+		byte[] registro = bytes.toByteArray();
+		CRC32 crc = new CRC32();
+		crc.update(registro, 0, registro.length);
+
+		synchronized (this) {
+			DataOutputStream saida = new DataOutputStream(this.pendentes);
+			try {
+				saida.writeInt(registro.length);
+				saida.writeInt((int) crc.getValue());
+				saida.write(registro);
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+			long numero = ++this.ultimoRegistrado;
+			return () -> confirma(numero);
+		}
+	}
+	/**
+	 * Espera um registro chegar ao arquivo conforme a politica de sincronizacao, gravando o grupo de registros
+	 *   pendentes caso nenhuma outra thread esteja gravando
+	 * @param numero numero do registro
+	 * @throws IOException caso a gravacao falhe
+	 */
+	private void confirma(long numero) throws IOException {
+		while (true) {
+			byte[] grupo;
+			long ultimoDoGrupo;
+
+			synchronized (this) {
+				while (this.gravando && this.ultimoConfirmado < numero) {
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new IOException("Confirmacao do diario interrompida.", e);
+					}
+				}
+				if (this.ultimoConfirmado >= numero) {
+					return;
+				}
+				if (this.falha != null) {
+					throw this.falha;
+				}
+				this.gravando = true;
+				grupo = this.pendentes.toByteArray();
+				this.pendentes.reset();
+				ultimoDoGrupo = this.ultimoRegistrado;
+			}
+
+			gravaGrupo(grupo, ultimoDoGrupo, this.politica.equals(SEMPRE));
+		}
+	}
+	/**
+	 * Recupera o diario caso a ultima gravacao tenha falhado, gravando de novo todos os registros pendentes(inclusive
+	 *   os da gravacao que falhou) e forcando a sua gravacao no disco. Nao faz nada caso o diario nao esteja em falha.
+	 * @throws IOException caso a recuperacao falhe, deixando o diario em falha
+	 */
+	public void recupera() throws IOException {
+		byte[] grupo;
+		long ultimoDoGrupo;
+
+		synchronized (this) {
+			while (this.falha != null && this.gravando) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException("Recuperacao do diario interrompida.", e);
+				}
+			}
+			if (this.falha == null) {
+				return;
+			}
+			this.gravando = true;
+			grupo = this.pendentes.toByteArray();
+			this.pendentes.reset();
+			ultimoDoGrupo = this.ultimoRegistrado;
+		}
+
+		gravaGrupo(grupo, ultimoDoGrupo, true);
+	}
+	/**
+	 * Grava um grupo de registros retirado do buffer pela thread que marcou a gravacao. Caso a gravacao falhe, o grupo
+	 *   volta para o inicio do buffer, antes dos registros acrescentados nesse meio tempo, e o diario fica em falha.
+	 * @param grupo registros do grupo
+	 * @param ultimoDoGrupo numero do ultimo registro do grupo
+	 * @param forca indica se a gravacao deve ser forcada no disco
+	 * @throws IOException caso a gravacao falhe
+	 */
+	private void gravaGrupo(byte[] grupo, long ultimoDoGrupo, boolean forca) throws IOException {
+		IOException falhaDoGrupo = null;
+		try {
+			escreveTudo(this.canal, ByteBuffer.wrap(grupo), this.canal.position());
+			this.canal.position(this.canal.position() + grupo.length);
+			if (forca) {
+				this.canal.force(false);
+			}
+		} catch (IOException e) {
+			falhaDoGrupo = e;
+		}
+
+		synchronized (this) {
+			this.gravando = false;
+			if (falhaDoGrupo == null) {
+				this.ultimoConfirmado = ultimoDoGrupo;
+				this.falha = null;
+			}
+			else {
+				byte[] acrescentados = this.pendentes.toByteArray();
+				this.pendentes.reset();
+				this.pendentes.write(grupo, 0, grupo.length);
+				this.pendentes.write(acrescentados, 0, acrescentados.length);
+				this.falha = falhaDoGrupo;
+			}
+			notifyAll();
+		}
+		if (falhaDoGrupo != null) {
+			throw falhaDoGrupo;
+		}
+	}
+	/**
+	 * Grava os registros pendentes e fecha o diario
+	 * @throws IOException caso a gravacao ou o fechamento falhem
+	 */
+	@Override
+	public void close() throws IOException {
+		if (this.sincronizador != null) {
+			this.sincronizador.shutdown();
+		}
+		try {
+			recupera();
+			long ultimo;
+			synchronized (this) {
+				ultimo = this.ultimoRegistrado;
+			}
+			confirma(ultimo);
+			this.canal.force(false);
+		} finally {
+			this.canal.close();
+		}
+	}
+	/**
+	 * Forca a gravacao no disco do que ja foi entregue ao sistema operacional, usado pela politica PERIODICA
+	 */
+	private void forcaGravacao() {
+		try {
+			this.canal.force(false);
+		} catch (IOException e) {
+			synchronized (this) {
+				this.falha = e;
+			}
+		}
+	}
+	/**
+	 * Le a geracao do cabecalho de um diario, retornando -1 caso o arquivo esteja vazio ou nao seja um diario valido
+	 */
+	private static long leGeracao(FileChannel canal) throws IOException {
+		if (canal.size() < TAMANHO_DO_CABECALHO) {
+			return -1;
+		}
+		ByteBuffer cabecalho = ByteBuffer.allocate(TAMANHO_DO_CABECALHO);
+		leTudo(canal, cabecalho, 0);
+		cabecalho.flip();
+		if (cabecalho.getInt() != ASSINATURA || cabecalho.getInt() != VERSAO) {
+			return -1;
+		}
+		return cabecalho.getLong();
+	}
+	/**
+	 * Repassa os registros validos do diario para o aplicador
+	 * @return a posicao logo depois do ultimo registro valido
+	 */
+	private static long reproduz(FileChannel canal, Consumer<Object[]> aplicador) throws IOException {
+		long posicao = TAMANHO_DO_CABECALHO;
+		long tamanho = canal.size();
+		ByteBuffer cabecalhoDoRegistro = ByteBuffer.allocate(8);
+
+		while (posicao + 8 <= tamanho) {
+			cabecalhoDoRegistro.clear();
+			leTudo(canal, cabecalhoDoRegistro, posicao);
+			cabecalhoDoRegistro.flip();
+			int tamanhoDoRegistro = cabecalhoDoRegistro.getInt();
+			int crcDoRegistro = cabecalhoDoRegistro.getInt();
+			if (tamanhoDoRegistro < 0 || posicao + 8 + tamanhoDoRegistro > tamanho) {
+				break;
+			}
+
+			ByteBuffer registro = ByteBuffer.allocate(tamanhoDoRegistro);
+			leTudo(canal, registro, posicao + 8);
+			CRC32 crc = new CRC32();
+			crc.update(registro.array(), 0, tamanhoDoRegistro);
+			if ((int) crc.getValue() != crcDoRegistro) {
+				break;
+			}
+
+			registro.flip();
+			aplicador.accept(leCampos(registro));
+			posicao += 8 + tamanhoDoRegistro;
+		}
+		return posicao;
+	}
+	/**
+	 * Le os campos de um registro
+	 */
+	private static Object[] leCampos(ByteBuffer registro) {
+		List<Object> campos = new ArrayList<Object>();
+		long quantidade = Numeros.le(registro);
+		for (long i = 0; i < quantidade; i++) {
+			int tipo = registro.get();
+			if (tipo == CAMPO_TEXTO) {
+				byte[] utf8 = new byte[(int) Numeros.le(registro)];
+				registro.get(utf8);
+				campos.add(new String(utf8, StandardCharsets.UTF_8));
+			}
+			else if (tipo == CAMPO_NUMERO) {
+				campos.add(Numeros.le(registro));
+			}
+			else {
+				campos.add(null);
+			}
+		}
+		return campos.toArray();
+	}
+	/**
+	 * Escreve todo o buffer no canal a partir de uma posicao
+	 */
+	private static void escreveTudo(FileChannel canal, ByteBuffer buffer, long posicao) throws IOException {
+		while (buffer.hasRemaining()) {
+			posicao += canal.write(buffer, posicao);
+		}
+	}
+	/**
+	 * Preenche todo o buffer com o conteudo do canal a partir de uma posicao
+	 */
+	private static void leTudo(FileChannel canal, ByteBuffer buffer, long posicao) throws IOException {
+		while (buffer.hasRemaining()) {
+			int lidos = canal.read(buffer, posicao);
+			if (lidos < 0) {
+				throw new IOException("Fim inesperado do diario.");
+			}
+			posicao += lidos;
+		}
+	}
+	/**
+	 * Registro acrescentado ao diario e ainda nao confirmado
+	 */
+	public interface RegistroPendente {
+		/**
+		 * Espera o registro chegar ao arquivo conforme a politica de sincronizacao do diario. Registros de um diario ja
+		 *   fechado estao sempre confirmados
+		 * @throws IOException caso a gravacao falhe
+		 */
+		void confirma() throws IOException;
+	}
+}
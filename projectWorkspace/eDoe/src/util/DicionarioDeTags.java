@@ -0,0 +1,64 @@
+package util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+/**
+ * Dicionario das tags dos itens de um controlador. Cada tag distinta recebe um identificador inteiro pequeno na
+ *   primeira vez em que aparece, permitindo que os itens guardem suas tags como arrays de inteiros e que a comparacao
+ *   entre tags seja feita sem criar novas Strings. So itens que usam o mesmo dicionario podem ter as tags comparadas;
+ *   o controlador descarta o seu dicionario junto com os itens ao ser finalizado e monta outro ao iniciar.
+ */
+public class DicionarioDeTags {
+	/**
+	 * Mapa que associa cada tag ja vista ao seu identificador
+	 */
+	private final Map<String,Integer> ids;
+	/**
+	 * Construtor que constroi um dicionario vazio
+	 */
+	public DicionarioDeTags() {
+		this.ids = new ConcurrentHashMap<String,Integer>();
+	}
+	/**
+	 * Retorna o identificador de uma tag, cadastrando a tag no dicionario caso ela ainda nao exista
+	 * @param tag tag a ser procurada
+	 * @return o identificador da tag
+	 */
+	public int idDaTag(String tag) {
+		Integer id = this.ids.get(tag);
+
+		if (id == null) {
+			synchronized (this.ids) {
+				id = this.ids.get(tag);
+				if (id == null) {
+					id = this.ids.size();
+					this.ids.put(tag, id);
+				}
+			}
+		}
+
+		return id;
+	}
+	/**
+	 * Retorna o identificador de uma tag desconsiderando letras maiusculas e minusculas, de forma que duas
+	 *   tags iguais segundo String.equalsIgnoreCase recebem o mesmo identificador
+	 * @param tag tag a ser procurada
+	 * @return o identificador da tag sem diferenciar maiusculas de minusculas
+	 */
+	public int idDaTagIgnorandoCaixa(String tag) {
+		char[] caracteres = tag.toCharArray();
+
+		for (int i = 0; i < caracteres.length; i++) {
+			caracteres[i] = Character.toLowerCase(Character.toUpperCase(caracteres[i]));
+		}
+
+		return idDaTag(new String(caracteres));
+	}
+	/**
+	 * Retorna a quantidade de tags distintas cadastradas
+	 * @return a quantidade de tags distintas
+	 */
+	public int tamanho() {
+		return this.ids.size();
+	}
+}
@@ -0,0 +1,159 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import eDoe.Item;
+/**
+ * Indice de trigramas sobre as descricoes distintas dos itens do sistema, usado para pesquisar itens cuja descricao
+ *   contem um termo sem percorrer todos os itens. Cada descricao guarda os seus itens ordenados pelo id, e cada
+ *   trigrama(sequencia de tres caracteres) guarda, em ordem alfabetica, as descricoes em que aparece.
+ */
+public class IndiceDeDescricoes {
+	/**
+	 * Mapa em ordem alfabetica que associa cada descricao distinta aos itens com aquela descricao, ordenados pelo id
+	 */
+	private TreeMap<String,TreeMap<Integer,Item>> itensPorDescricao;
+	/**
+	 * Mapa que associa cada trigrama as descricoes que o contem, em ordem alfabetica
+	 */
+	private Map<String,TreeSet<String>> descricoesPorTrigrama;
+	/**
+	 * Construtor que constroi o indice vazio
+	 */
+	public IndiceDeDescricoes() {
+		this.itensPorDescricao = new TreeMap<String,TreeMap<Integer,Item>>();
+		this.descricoesPorTrigrama = new HashMap<String,TreeSet<String>>();
+	}
+	/**
+	 * Adiciona um item ao indice
+	 * @param item item a ser adicionado
+	 */
+	public void adiciona(Item item) {
+		String descricao = item.getDescricao();
+
+		if (!this.itensPorDescricao.containsKey(descricao)) {
+			this.itensPorDescricao.put(descricao, new TreeMap<Integer,Item>());
+
+			String minuscula = descricao.toLowerCase();
+			for (int i = 0; i + 3 <= minuscula.length(); i++) {
+				String trigrama = minuscula.substring(i, i + 3);
+				if (!this.descricoesPorTrigrama.containsKey(trigrama)) {
+					this.descricoesPorTrigrama.put(trigrama, new TreeSet<String>());
+				}
+				this.descricoesPorTrigrama.get(trigrama).add(descricao);
+			}
+		}
+
+		this.itensPorDescricao.get(descricao).put(item.getId(), item);
+	}
+	/**
+	 * Remove um item do indice, retirando sua descricao dos trigramas caso nao reste nenhum item com ela
+	 * @param item item a ser removido
+	 */
+	public void remove(Item item) {
+		String descricao = item.getDescricao();
+		TreeMap<Integer,Item> itens = this.itensPorDescricao.get(descricao);
+
+		if (itens == null) {
+			return;
+		}
+
+		itens.remove(item.getId());
+
+		if (itens.isEmpty()) {
+			this.itensPorDescricao.remove(descricao);
+
+			String minuscula = descricao.toLowerCase();
+			for (int i = 0; i + 3 <= minuscula.length(); i++) {
+				TreeSet<String> descricoes = this.descricoesPorTrigrama.get(minuscula.substring(i, i + 3));
+				if (descricoes != null) {
+					descricoes.remove(descricao);
+					if (descricoes.isEmpty()) {
+						this.descricoesPorTrigrama.remove(minuscula.substring(i, i + 3));
+					}
+				}
+			}
+		}
+	}
+	/**
+	 * Pesquisa os itens cuja descricao contem o termo passado, sem diferenciar maiusculas de minusculas
+	 * @param pesquisa termo a ser pesquisado
+	 * @return os itens encontrados em ordem alfabetica de descricao e, para a mesma descricao, em ordem de id
+	 */
+	public List<Item> busca(String pesquisa) {
+		String termo = pesquisa.toLowerCase();
+		List<Item> encontrados = new ArrayList<Item>();
+
+		for (String descricao : descricoesCandidatas(termo)) {
+			if (descricao.toLowerCase().contains(termo)) {
+				encontrados.addAll(this.itensPorDescricao.get(descricao).values());
+			}
+		}
+
+		return encontrados;
+	}
+	/**
+	 * Pesquisa, a partir de uma posicao, os itens cuja descricao contem o termo passado, sem diferenciar maiusculas de minusculas
+	 * @param pesquisa termo a ser pesquisado
+	 * @param aPartirDaDescricao descricao do ultimo item ja devolvido, ou null para comecar do inicio
+	 * @param aPartirDoId id do ultimo item ja devolvido, ignorado caso aPartirDaDescricao seja null
+	 * @param limite quantidade maxima de itens devolvidos
+	 * @return no maximo limite itens encontrados depois da posicao passada, na mesma ordem de busca(String)
+	 */
+	public List<Item> busca(String pesquisa, String aPartirDaDescricao, int aPartirDoId, int limite) {
+		String termo = pesquisa.toLowerCase();
+		List<Item> encontrados = new ArrayList<Item>();
+		NavigableSet<String> candidatas = descricoesCandidatas(termo);
+
+		for (String descricao : aPartirDaDescricao == null ? candidatas : candidatas.tailSet(aPartirDaDescricao, true)) {
+			if (encontrados.size() == limite) {
+				break;
+			}
+			if (!descricao.toLowerCase().contains(termo)) {
+				continue;
+			}
+
+			TreeMap<Integer,Item> itens = this.itensPorDescricao.get(descricao);
+			for (Item item : descricao.equals(aPartirDaDescricao) ? itens.tailMap(aPartirDoId, false).values() : itens.values()) {
+				if (encontrados.size() == limite) {
+					break;
+				}
+				encontrados.add(item);
+			}
+		}
+
+		return encontrados;
+	}
+	/**
+	 * Retorna, em ordem alfabetica, as descricoes que podem conter o termo: as descricoes do trigrama menos frequente
+	 *   do termo, ou todas as descricoes caso o termo tenha menos de tres caracteres. O conjunto devolvido e o proprio
+	 *   conjunto do indice, sem copia, entao uma busca paginada comeca direto da posicao do cursor com tailSet.
+	 * @param termo termo pesquisado, ja em letras minusculas
+	 * @return as descricoes candidatas em ordem alfabetica
+	 */
+	private NavigableSet<String> descricoesCandidatas(String termo) {
+		if (termo.length() < 3) {
+			return this.itensPorDescricao.navigableKeySet();
+		}
+
+		NavigableSet<String> menor = null;
+		for (int i = 0; i + 3 <= termo.length(); i++) {
+			NavigableSet<String> descricoes = this.descricoesPorTrigrama.get(termo.substring(i, i + 3));
+			if (descricoes == null) {
+				return Collections.emptyNavigableSet();
+			}
+			if (menor == null || descricoes.size() < menor.size()) {
+				menor = descricoes;
+			}
+		}
+
+		return Collections.unmodifiableNavigableSet(menor);
+	}
+}
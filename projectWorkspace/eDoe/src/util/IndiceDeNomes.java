@@ -0,0 +1,103 @@
+package util;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import eDoe.Usuario;
+/**
+ * Indice secundario que associa cada nome aos usuarios que possuem aquele nome, mantidos na ordem em que foram
+ *   cadastrados no sistema. Usado pelo controlador para pesquisar usuarios por nome sem percorrer todos os usuarios.
+ */
+public class IndiceDeNomes {
+	/**
+	 * Mapa cuja chave e um nome e cujo valor sao os usuarios com aquele nome, ordenados pela ordem de cadastro
+	 */
+	private Map<String,NavigableMap<Long,Usuario>> usuariosPorNome;
+	/**
+	 * Mapa que associa o id de cada usuario indexado a sua ordem de cadastro
+	 */
+	private Map<String,Long> ordemDeCadastro;
+	/**
+	 * Ordem de cadastro que sera dada ao proximo usuario indexado
+	 */
+	private long proximaOrdem;
+	/**
+	 * Construtor que constroi o indice vazio
+	 */
+	public IndiceDeNomes() {
+		this.usuariosPorNome = new HashMap<String,NavigableMap<Long,Usuario>>();
+		this.ordemDeCadastro = new HashMap<String,Long>();
+		this.proximaOrdem = 0;
+	}
+	/**
+	 * Adiciona um usuario recem cadastrado ao indice, depois de todos os usuarios ja indexados
+	 * @param usuario usuario a ser adicionado
+	 */
+	public void adiciona(Usuario usuario) {
+		this.ordemDeCadastro.put(usuario.getId(), this.proximaOrdem);
+		insere(usuario.getNome(), this.proximaOrdem, usuario);
+		this.proximaOrdem += 1;
+	}
+	/**
+	 * Move um usuario ja indexado do seu nome antigo para o seu nome atual, mantendo sua ordem de cadastro
+	 * @param usuario usuario cujo nome foi modificado
+	 * @param nomeAntigo nome do usuario antes da modificacao
+	 */
+	public void renomeia(Usuario usuario, String nomeAntigo) {
+		long ordem = this.ordemDeCadastro.get(usuario.getId());
+		retira(nomeAntigo, ordem);
+		insere(usuario.getNome(), ordem, usuario);
+	}
+	/**
+	 * Remove um usuario do indice
+	 * @param usuario usuario a ser removido
+	 */
+	public void remove(Usuario usuario) {
+		Long ordem = this.ordemDeCadastro.remove(usuario.getId());
+		if (ordem != null) {
+			retira(usuario.getNome(), ordem);
+		}
+	}
+	/**
+	 * Retorna os usuarios com o nome pesquisado em ordem de cadastro
+	 * @param nome nome a ser pesquisado
+	 * @return os usuarios com o nome pesquisado, ou uma colecao vazia caso nao exista nenhum
+	 */
+	public Collection<Usuario> busca(String nome) {
+		NavigableMap<Long,Usuario> usuarios = this.usuariosPorNome.get(nome);
+		if (usuarios == null) {
+			return Collections.emptyList();
+		}
+		return Collections.unmodifiableCollection(usuarios.values());
+	}
+	/**
+	 * Insere um usuario na lista de usuarios de um nome
+	 * @param nome nome do usuario
+	 * @param ordem ordem de cadastro do usuario
+	 * @param usuario usuario a ser inserido
+	 */
+	private void insere(String nome, long ordem, Usuario usuario) {
+		if (!this.usuariosPorNome.containsKey(nome)) {
+			this.usuariosPorNome.put(nome, new TreeMap<Long,Usuario>());
+		}
+		this.usuariosPorNome.get(nome).put(ordem, usuario);
+	}
+	/**
+	 * Retira um usuario da lista de usuarios de um nome, descartando a lista caso ela fique vazia
+	 * @param nome nome do usuario
+	 * @param ordem ordem de cadastro do usuario
+	 */
+	private void retira(String nome, long ordem) {
+		NavigableMap<Long,Usuario> usuarios = this.usuariosPorNome.get(nome);
+		if (usuarios != null) {
+			usuarios.remove(ordem);
+			if (usuarios.isEmpty()) {
+				this.usuariosPorNome.remove(nome);
+			}
+		}
+	}
+}
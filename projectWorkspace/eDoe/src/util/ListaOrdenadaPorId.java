@@ -0,0 +1,103 @@
+package util;
+
+import java.util.Arrays;
+/**
+ * Lista de valores mantida em ordem crescente de um id inteiro, guardando os ids em um array de int sem boxing.
+ *   Como os ids de itens sao dados em ordem crescente pelo sistema, a insercao normalmente e feita no final
+ *   da lista em tempo constante; a busca por id e feita por busca binaria.
+ *
+ * @param <T> tipo dos valores guardados
+ */
+public class ListaOrdenadaPorId<T> {
+	/**
+	 * Ids dos valores, em ordem crescente
+	 */
+	private int[] ids;
+	/**
+	 * Valores, na mesma posicao dos seus ids
+	 */
+	private Object[] valores;
+	/**
+	 * Quantidade de valores guardados
+	 */
+	private int tamanho;
+	/**
+	 * Construtor que constroi a lista vazia
+	 */
+	public ListaOrdenadaPorId() {
+		this.ids = new int[16];
+		this.valores = new Object[16];
+		this.tamanho = 0;
+	}
+	/**
+	 * Adiciona um valor a lista na posicao correspondente ao seu id, substituindo o valor anterior caso o id ja exista
+	 * @param id id do valor
+	 * @param valor valor a ser adicionado
+	 */
+	public void adiciona(int id, T valor) {
+		int posicao = this.tamanho > 0 && this.ids[this.tamanho-1] < id ? this.tamanho : posicaoDe(id);
+
+		if (posicao < this.tamanho && this.ids[posicao] == id) {
+			this.valores[posicao] = valor;
+			return;
+		}
+
+		if (this.tamanho == this.ids.length) {
+			this.ids = Arrays.copyOf(this.ids, this.tamanho * 2);
+			this.valores = Arrays.copyOf(this.valores, this.tamanho * 2);
+		}
+
+		System.arraycopy(this.ids, posicao, this.ids, posicao + 1, this.tamanho - posicao);
+		System.arraycopy(this.valores, posicao, this.valores, posicao + 1, this.tamanho - posicao);
+		this.ids[posicao] = id;
+		this.valores[posicao] = valor;
+		this.tamanho += 1;
+	}
+	/**
+	 * Remove o valor associado a um id, caso exista
+	 * @param id id do valor a ser removido
+	 */
+	public void remove(int id) {
+		int posicao = posicaoDe(id);
+
+		if (posicao < this.tamanho && this.ids[posicao] == id) {
+			System.arraycopy(this.ids, posicao + 1, this.ids, posicao, this.tamanho - posicao - 1);
+			System.arraycopy(this.valores, posicao + 1, this.valores, posicao, this.tamanho - posicao - 1);
+			this.tamanho -= 1;
+			this.valores[this.tamanho] = null;
+		}
+	}
+	/**
+	 * Retorna a posicao do id na lista ou, caso ele nao exista, a posicao do primeiro id maior que ele
+	 * @param id id procurado
+	 * @return a posicao do id ou do primeiro id maior que ele
+	 */
+	public int posicaoDe(int id) {
+		int posicao = Arrays.binarySearch(this.ids, 0, this.tamanho, id);
+		return posicao >= 0 ? posicao : -(posicao + 1);
+	}
+	/**
+	 * Retorna o valor na posicao passada
+	 * @param posicao posicao do valor
+	 * @return o valor na posicao
+	 */
+	@SuppressWarnings("unchecked")
+	public T valorNaPosicao(int posicao) {
+		return (T) this.valores[posicao];
+	}
+	/**
+	 * Retorna o id na posicao passada
+	 * @param posicao posicao do id
+	 * @return o id na posicao
+	 */
+	public int idNaPosicao(int posicao) {
+		return this.ids[posicao];
+	}
+	/**
+	 * Retorna a quantidade de valores da lista
+	 * @return a quantidade de valores
+	 */
+	public int tamanho() {
+		return this.tamanho;
+	}
+}
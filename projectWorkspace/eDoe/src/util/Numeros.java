@@ -0,0 +1,66 @@
+package util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+/**
+ * Codificacao de numeros em tamanho variavel usada nos arquivos do sistema: o numero e codificado em zigzag(para que
+ *   negativos pequenos tambem sejam curtos) e escrito em grupos de 7 bits, com o bit mais alto de cada byte indicando
+ *   se ha mais grupos. Numeros ate 63 ocupam um byte e numeros ate 8191, dois.
+ */
+public class Numeros {
+	/**
+	 * Construtor privado, a classe possui apenas metodos estaticos
+	 */
+	private Numeros() {
+
+	}
+	/**
+	 * Escreve um numero em tamanho variavel
+	 * @param saida saida que recebera o numero
+	 * @param valor numero a ser escrito
+	 * @throws IOException caso a saida nao possa ser escrita
+	 */
+	public static void escreve(DataOutput saida, long valor) throws IOException {
+		long zigzag = (valor << 1) ^ (valor >> 63);
+		while ((zigzag & ~0x7FL) != 0) {
+			saida.writeByte((int) ((zigzag & 0x7F) | 0x80));
+			zigzag >>>= 7;
+		}
+		saida.writeByte((int) zigzag);
+	}
+	/**
+	 * Le um numero escrito por escreve
+	 * @param entrada entrada de onde o numero e lido
+	 * @return o numero lido
+	 * @throws IOException caso a entrada nao possa ser lida ou o numero seja longo demais
+	 */
+	public static long le(DataInput entrada) throws IOException {
+		long zigzag = 0;
+		for (int deslocamento = 0; deslocamento < 64; deslocamento += 7) {
+			byte b = entrada.readByte();
+			zigzag |= (long) (b & 0x7F) << deslocamento;
+			if ((b & 0x80) == 0) {
+				return (zigzag >>> 1) ^ -(zigzag & 1);
+			}
+		}
+		throw new IOException("Numero muito longo.");
+	}
+	/**
+	 * Le um numero escrito por escreve a partir da posicao atual de um buffer
+	 * @param entrada buffer de onde o numero e lido
+	 * @return o numero lido
+	 */
+	public static long le(ByteBuffer entrada) {
+		long zigzag = 0;
+		for (int deslocamento = 0; deslocamento < 64; deslocamento += 7) {
+			byte b = entrada.get();
+			zigzag |= (long) (b & 0x7F) << deslocamento;
+			if ((b & 0x80) == 0) {
+				return (zigzag >>> 1) ^ -(zigzag & 1);
+			}
+		}
+		throw new IllegalArgumentException("Numero muito longo.");
+	}
+}
@@ -0,0 +1,52 @@
+package util;
+/**
+ * Classe que guarda uma pagina de uma listagem paginada do sistema: a representacao dos elementos da pagina,
+ *   separados por " | ", e o cursor opaco que deve ser passado para obter a proxima pagina
+ */
+public class Pagina {
+	/**
+	 * Representacao dos elementos da pagina separados por " | "
+	 */
+	private String conteudo;
+	/**
+	 * Cursor da proxima pagina, ou null caso esta seja a ultima pagina
+	 */
+	private String proximoCursor;
+	/**
+	 * Construtor que constroi a pagina a partir do seu conteudo e do cursor da proxima pagina
+	 * @param conteudo representacao dos elementos da pagina separados por " | "
+	 * @param proximoCursor cursor da proxima pagina, ou null caso esta seja a ultima pagina
+	 */
+	public Pagina(String conteudo, String proximoCursor) {
+		this.conteudo = conteudo;
+		this.proximoCursor = proximoCursor;
+	}
+	/**
+	 * Metodo que retorna a representacao dos elementos da pagina
+	 * @return a representacao dos elementos da pagina separados por " | "
+	 */
+	public String getConteudo() {
+		return this.conteudo;
+	}
+	/**
+	 * Metodo que retorna o cursor da proxima pagina
+	 * @return o cursor da proxima pagina, ou null caso esta seja a ultima pagina
+	 */
+	public String getProximoCursor() {
+		return this.proximoCursor;
+	}
+	/**
+	 * Metodo que informa se existe uma proxima pagina
+	 * @return true caso exista uma proxima pagina, false caso contrario
+	 */
+	public boolean temProximaPagina() {
+		return this.proximoCursor != null;
+	}
+	/**
+	 * Representacao textual da pagina, que e o seu conteudo
+	 */
+	@Override
+	public String toString() {
+		return this.conteudo;
+	}
+}
@@ -0,0 +1,73 @@
+package util;
+
+import java.util.function.Supplier;
+/**
+ * Retrato imutavel de dados protegidos por uma TravaVersionada, refeito apenas quando a versao da trava muda. O
+ *   retrato e tirado com a trava de leitura e guardado junto com a versao em que foi tirado; enquanto nenhum escritor
+ *   pegar a trava, os leitores seguintes recebem o mesmo retrato sem travar nada. Como so o retrato e compartilhado, e
+ *   nunca as estruturas de onde ele foi copiado, um leitor nunca ve um escritor pela metade.
+ */
+public class RetratoVersionado<T> {
+	/**
+	 * Trava que protege os dados retratados
+	 */
+	private final TravaVersionada trava;
+	/**
+	 * Funcao que tira o retrato, chamada com a trava de leitura pega. O valor que ela devolve nao pode ser alterado
+	 * depois.
+	 */
+	private final Supplier<T> tiraRetrato;
+	/**
+	 * Ultimo retrato tirado, ou null caso nenhum tenha sido
+	 */
+	private volatile Retrato<T> ultimo;
+	/**
+	 * Construtor que constroi o retrato a partir da trava dos dados e da funcao que tira o retrato
+	 * @param trava trava que protege os dados retratados
+	 * @param tiraRetrato funcao que copia os dados, chamada com a trava de leitura pega
+	 */
+	public RetratoVersionado(TravaVersionada trava, Supplier<T> tiraRetrato) {
+		this.trava = trava;
+		this.tiraRetrato = tiraRetrato;
+	}
+	/**
+	 * Retorna o retrato da versao atual dos dados, reaproveitando o ultimo caso nenhum escritor tenha pego a trava
+	 * desde que ele foi tirado. Um escritor que pede o retrato recebe um novo, que nao e guardado, ja que ainda pode
+	 * alterar os dados sem mudar a versao.
+	 * @return o retrato atual
+	 */
+	public T atual() {
+		Retrato<T> ultimo = this.ultimo;
+		if (ultimo != null && ultimo.versao == this.trava.versao()) {
+			return ultimo.valor;
+		}
+
+		this.trava.leitura().lock();
+		try {
+			if (this.trava.escritaPelaThreadAtual()) {
+				return this.tiraRetrato.get();
+			}
+			long versao = this.trava.versao();
+			ultimo = this.ultimo;
+			if (ultimo == null || ultimo.versao != versao) {
+				ultimo = new Retrato<T>(versao, this.tiraRetrato.get());
+				this.ultimo = ultimo;
+			}
+			return ultimo.valor;
+		} finally {
+			this.trava.leitura().unlock();
+		}
+	}
+	/**
+	 * Valor de um retrato e a versao em que ele foi tirado
+	 */
+	private static final class Retrato<T> {
+		private final long versao;
+		private final T valor;
+
+		Retrato(long versao, T valor) {
+			this.versao = versao;
+			this.valor = valor;
+		}
+	}
+}
@@ -0,0 +1,113 @@
+package util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+/**
+ * Trava de leitura e escrita reentrante(uma ReentrantReadWriteLock) que numera as escritas: cada vez que a trava de
+ *   escrita e pega, a versao do que ela protege aumenta. Leitores nunca percorrem sem trava as estruturas protegidas;
+ *   em vez disso tiram delas, com a trava de leitura, retratos imutaveis marcados com a versao(veja
+ *   RetratoVersionado), que podem ser reaproveitados sem trava nenhuma enquanto a versao nao mudar.
+ */
+public class TravaVersionada {
+	/**
+	 * Trava usada pelos escritores e pelos leitores
+	 */
+	private final ReentrantReadWriteLock trava;
+	/**
+	 * Versao do que a trava protege, alterada apenas por quem possui a trava de escrita
+	 */
+	private volatile long versao;
+	/**
+	 * Trava de escrita que tambem muda a versao
+	 */
+	private final Lock escrita;
+	/**
+	 * Construtor que constroi a trava destravada
+	 */
+	public TravaVersionada() {
+		this.trava = new ReentrantReadWriteLock();
+		this.escrita = new Escrita();
+	}
+	/**
+	 * Retorna a trava de leitura
+	 * @return a trava de leitura
+	 */
+	public Lock leitura() {
+		return this.trava.readLock();
+	}
+	/**
+	 * Retorna a trava de escrita, reentrante como a de uma ReentrantReadWriteLock
+	 * @return a trava de escrita
+	 */
+	public Lock escrita() {
+		return this.escrita;
+	}
+	/**
+	 * Retorna a versao atual do que a trava protege. Um retrato tirado com a trava de leitura na versao v continua
+	 * atual enquanto a versao for v.
+	 * @return a versao atual
+	 */
+	public long versao() {
+		return this.versao;
+	}
+	/**
+	 * Informa se a thread atual possui a trava de escrita, caso em que ainda pode alterar os dados sem mudar a versao
+	 * @return true caso a thread atual possua a trava de escrita
+	 */
+	public boolean escritaPelaThreadAtual() {
+		return this.trava.isWriteLockedByCurrentThread();
+	}
+	/**
+	 * Muda a versao logo depois da trava de escrita ser pega, antes de qualquer alteracao
+	 */
+	private void entra() {
+		this.versao += 1;
+	}
+	/**
+	 * Trava de escrita que envolve a da ReentrantReadWriteLock e muda a versao. Condicoes nao sao oferecidas, ja que
+	 * um escritor que esperasse nelas soltaria a trava sem mudar a versao.
+	 */
+	private class Escrita implements Lock {
+		@Override
+		public void lock() {
+			trava.writeLock().lock();
+			entra();
+		}
+
+		@Override
+		public void lockInterruptibly() throws InterruptedException {
+			trava.writeLock().lockInterruptibly();
+			entra();
+		}
+
+		@Override
+		public boolean tryLock() {
+			if (trava.writeLock().tryLock()) {
+				entra();
+				return true;
+			}
+			return false;
+		}
+
+		@Override
+		public boolean tryLock(long tempo, TimeUnit unidade) throws InterruptedException {
+			if (trava.writeLock().tryLock(tempo, unidade)) {
+				entra();
+				return true;
+			}
+			return false;
+		}
+
+		@Override
+		public void unlock() {
+			trava.writeLock().unlock();
+		}
+
+		@Override
+		public Condition newCondition() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
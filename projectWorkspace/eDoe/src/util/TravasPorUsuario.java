@@ -0,0 +1,114 @@
+package util;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+/**
+ * Conjunto fixo de travas de leitura e escrita divididas por faixas de id de usuario. Cada usuario pertence a uma
+ *   faixa, calculada a partir do hash do seu id, e operacoes sobre usuarios de faixas diferentes nao disputam a
+ *   mesma trava. Operacoes que envolvem mais de um usuario travam as faixas sempre em ordem crescente, o que evita
+ *   deadlocks entre elas.
+ */
+public class TravasPorUsuario {
+	/**
+	 * Travas de cada faixa
+	 */
+	private final ReentrantReadWriteLock[] faixas;
+	/**
+	 * Construtor que constroi o conjunto com uma quantidade de faixas, arredondada para a proxima potencia de dois
+	 * @param quantidadeDeFaixas quantidade minima de faixas
+	 */
+	public TravasPorUsuario(int quantidadeDeFaixas) {
+		int tamanho = 1;
+		while (tamanho < quantidadeDeFaixas) {
+			tamanho *= 2;
+		}
+		this.faixas = new ReentrantReadWriteLock[tamanho];
+		for (int i = 0; i < tamanho; i++) {
+			this.faixas[i] = new ReentrantReadWriteLock();
+		}
+	}
+	/**
+	 * Retorna a faixa de um usuario
+	 * @param idUsuario id do usuario, que pode ser nulo
+	 * @return o indice da faixa do usuario
+	 */
+	public int faixaDe(String idUsuario) {
+		if (idUsuario == null) {
+			return 0;
+		}
+		int h = idUsuario.hashCode();
+		return (h ^ (h >>> 16)) & (this.faixas.length - 1);
+	}
+	/**
+	 * Retorna a trava de leitura da faixa de um usuario
+	 * @param idUsuario id do usuario
+	 * @return a trava de leitura
+	 */
+	public Lock leitura(String idUsuario) {
+		return this.faixas[faixaDe(idUsuario)].readLock();
+	}
+	/**
+	 * Retorna a trava de escrita da faixa de um usuario
+	 * @param idUsuario id do usuario
+	 * @return a trava de escrita
+	 */
+	public Lock escrita(String idUsuario) {
+		return this.faixas[faixaDe(idUsuario)].writeLock();
+	}
+	/**
+	 * Trava para escrita as faixas de varios usuarios, em ordem crescente de faixa e uma unica vez por faixa
+	 * @param idsDosUsuarios ids dos usuarios
+	 */
+	public void travaEscrita(Collection<String> idsDosUsuarios) {
+		for (int faixa : faixasOrdenadas(idsDosUsuarios)) {
+			this.faixas[faixa].writeLock().lock();
+		}
+	}
+	/**
+	 * Destrava as faixas travadas por travaEscrita, em ordem decrescente de faixa
+	 * @param idsDosUsuarios os mesmos ids passados para travaEscrita
+	 */
+	public void destravaEscrita(Collection<String> idsDosUsuarios) {
+		int[] ordenadas = faixasOrdenadas(idsDosUsuarios);
+		for (int i = ordenadas.length - 1; i >= 0; i--) {
+			this.faixas[ordenadas[i]].writeLock().unlock();
+		}
+	}
+	/**
+	 * Trava para escrita todas as faixas, em ordem crescente, para operacoes sobre o sistema inteiro
+	 */
+	public void travaTodas() {
+		for (ReentrantReadWriteLock faixa : this.faixas) {
+			faixa.writeLock().lock();
+		}
+	}
+	/**
+	 * Destrava todas as faixas travadas por travaTodas, em ordem decrescente
+	 */
+	public void destravaTodas() {
+		for (int i = this.faixas.length - 1; i >= 0; i--) {
+			this.faixas[i].writeLock().unlock();
+		}
+	}
+	/**
+	 * Retorna as faixas distintas dos usuarios em ordem crescente
+	 */
+	private int[] faixasOrdenadas(Collection<String> idsDosUsuarios) {
+		int[] faixasDosUsuarios = new int[idsDosUsuarios.size()];
+		int i = 0;
+		for (String id : idsDosUsuarios) {
+			faixasDosUsuarios[i++] = faixaDe(id);
+		}
+		Arrays.sort(faixasDosUsuarios);
+
+		int distintas = 0;
+		for (int j = 0; j < faixasDosUsuarios.length; j++) {
+			if (j == 0 || faixasDosUsuarios[j] != faixasDosUsuarios[j - 1]) {
+				faixasDosUsuarios[distintas++] = faixasDosUsuarios[j];
+			}
+		}
+		return Arrays.copyOf(faixasDosUsuarios, distintas);
+	}
+}
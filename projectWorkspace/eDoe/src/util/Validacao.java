@@ -1,8 +1,11 @@
 package util;
 
+import java.util.List;
 import java.util.Map;
 
 import eDoe.Descritor;
+import eDoe.Doacao;
+import eDoe.PedidoDeDoacao;
 import eDoe.Usuario;
 /**
  * Classe criada para guardar as validacoes do controlador com o objetivo de aumentar a coesao
@@ -150,7 +153,7 @@ public class Validacao {
 		
 		if (!usuarios.containsKey(idUsuario)) {throw new IllegalArgumentException("Usuario nao encontrado: " + idUsuario + ".");}
 		
-		if (!usuarios.get(idUsuario).getItens().containsKey(id)) {throw new IllegalArgumentException("Item nao encontrado: " + id + ".");}
+		if (!usuarios.get(idUsuario).possuiItem(id)) {throw new IllegalArgumentException("Item nao encontrado: " + id + ".");}
 		
 	}
 	/**
@@ -166,11 +169,11 @@ public class Validacao {
 		
 		if (!usuarios.containsKey(idUsuario)) {throw new IllegalArgumentException("Usuario nao encontrado: " + idUsuario + ".");}
 		
-		if (usuarios.get(idUsuario).getItens().size() == 0) {
+		if (usuarios.get(idUsuario).quantidadeDeItens() == 0) {
 			throw new IllegalArgumentException("O Usuario nao possui itens cadastrados.");
 		}
 		
-		if (!usuarios.get(idUsuario).getItens().containsKey(id)) {throw new IllegalArgumentException("Item nao encontrado: " + id + ".");}
+		if (!usuarios.get(idUsuario).possuiItem(id)) {throw new IllegalArgumentException("Item nao encontrado: " + id + ".");}
 		
 	}
 	/**
@@ -184,7 +187,7 @@ public class Validacao {
 		
 		if (!usuarios.containsKey(idDoador)) {throw new IllegalArgumentException("Usuario nao encontrado: " + idDoador + ".");}
 		
-		if (!usuarios.get(idDoador).getItens().containsKey(id)) {throw new IllegalArgumentException("Item nao encontrado: " + id + ".");}
+		if (!usuarios.get(idDoador).possuiItem(id)) {throw new IllegalArgumentException("Item nao encontrado: " + id + ".");}
 		
 	}
 	/**
@@ -217,7 +220,7 @@ public class Validacao {
 		
 		if (idItemNecessario < 0) {throw new IllegalArgumentException("Entrada invalida: id do item nao pode ser negativo.");}
 		
-		if (!usuarios.get(idReceptor).getItens().containsKey(idItemNecessario)) {throw new IllegalArgumentException("Item nao encontrado: " + idItemNecessario + ".");}
+		if (!usuarios.get(idReceptor).possuiItem(idItemNecessario)) {throw new IllegalArgumentException("Item nao encontrado: " + idItemNecessario + ".");}
 	}
 	/**
 	 * Metodo que verifica a existencia de possiveis erros na execucao de realizaDoacao
@@ -230,10 +233,85 @@ public class Validacao {
 		
 		if (idNecessario < 0) throw new IllegalArgumentException("Entrada invalida: id do item nao pode ser negativo.");
 		
+		validaData(data);
+	}
+	/**
+	 * Metodo que verifica se a data de uma doacao esta no formato dd/MM/yyyy. A data e verificada antes da doacao ser
+	 * anotada no diario de operacoes, ja que uma data que nao pode ser convertida impediria o diario de ser refeito.
+	 * @param data data da doacao
+	 */
+	private void validaData(String data) {
 		if (data==null) throw new IllegalArgumentException("Entrada invalida: data nao pode ser vazia ou nula.");
 		
 		if (data.trim().equals("")) throw new IllegalArgumentException("Entrada invalida: data nao pode ser vazia ou nula.");
 		
+		try {
+			Doacao.converteParaDiaEpoch(data);
+		} catch (RuntimeException e) {
+			throw new IllegalArgumentException("Entrada invalida: data invalida.");
+		}
+	}
+	/**
+	 * Metodo que verifica a existencia de possiveis erros na lista de pedidos de realizaDoacoes
+	 * @param pedidos lista de pedidos de doacao
+	 */
+	public void validaRealizaDoacoes(List<PedidoDeDoacao> pedidos) {
+		if (pedidos == null) throw new IllegalArgumentException("Entrada invalida: lista de pedidos de doacao nao pode ser nula.");
+		
+	}
+	/**
+	 * Metodo que verifica a existencia de possiveis erros em um pedido de doacao de realizaDoacoes
+	 * @param pedido pedido de doacao
+	 */
+	public void validaPedidoDeDoacao(PedidoDeDoacao pedido) {
+		if (pedido == null) throw new IllegalArgumentException("Entrada invalida: pedido de doacao nao pode ser nulo.");
+		
+		validaRealizaDoacao(pedido.getIdNecessario(), pedido.getIdDoado(), pedido.getData());
+	}
+	/**
+	 * Metodo que verifica a existencia de possiveis erros na configuracao do diario de operacoes
+	 * @param politica politica de sincronizacao do diario
+	 * @param intervaloEmMilissegundos intervalo entre as sincronizacoes da politica PERIODICA
+	 */
+	public void validaConfiguraDiario(String politica, int intervaloEmMilissegundos) {
+		if (politica == null || politica.trim().equals("")) throw new IllegalArgumentException("Entrada invalida: politica do diario nao pode ser vazia ou nula.");
+		
+		if (!Diario.politicaValida(politica)) throw new IllegalArgumentException("Entrada invalida: politica do diario invalida.");
+		
+		if (intervaloEmMilissegundos <= 0) throw new IllegalArgumentException("Entrada invalida: intervalo do diario deve ser maior que zero.");
+	}
+	/**
+	 * Metodo que verifica a existencia de possiveis erros na execucao de configuraCheckpointPeriodico
+	 * @param intervaloEmMilissegundos intervalo entre os checkpoints periodicos, ou 0 para desliga-los
+	 */
+	public void validaConfiguraCheckpointPeriodico(int intervaloEmMilissegundos) {
+		if (intervaloEmMilissegundos < 0) throw new IllegalArgumentException("Entrada invalida: intervalo dos checkpoints nao pode ser negativo.");
+	}
+	/**
+	 * Metodo que verifica a existencia de possiveis erros na execucao de alocaDoacoes
+	 * @param modo modo de alocacao das doacoes
+	 * @param data data em que as doacoes irao acontecer
+	 */
+	public void validaAlocaDoacoes(String modo, String data) {
+		if (modo == null || !AlocadorDeDoacoes.modoValido(modo)) throw new IllegalArgumentException("Entrada invalida: modo de alocacao invalido.");
+		
+		validaData(data);
+	}
+	/**
+	 * Metodo que verifica a existencia de possiveis erros nos parametros de uma listagem paginada
+	 * @param tamanhoDaPagina quantidade maxima de elementos da pagina
+	 */
+	public void validaPaginacao(int tamanhoDaPagina) {
+		if (tamanhoDaPagina <= 0) throw new IllegalArgumentException("Entrada invalida: tamanho da pagina deve ser maior que zero.");
+		
+	}
+	/**
+	 * Metodo que verifica a existencia de possiveis erros na quantidade de itens pedida a um match
+	 * @param quantidadeDeItens quantidade maxima de itens devolvidos pelo match
+	 */
+	public void validaQuantidadeDoMatch(int quantidadeDeItens) {
+		if (quantidadeDeItens <= 0) throw new IllegalArgumentException("Entrada invalida: quantidade de itens do match deve ser maior que zero.");
+		
 	}
 	
 	
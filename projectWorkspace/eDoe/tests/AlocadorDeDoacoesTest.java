@@ -0,0 +1,107 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import util.AlocadorDeDoacoes;
+
+class AlocadorDeDoacoesTest {
+
+	@Test
+	void testModosOtimosSuperamOGuloso() {
+		int[] necessidades = {1, 1};
+		int[] ofertas = {1, 1};
+		int[][] pontos = {{30, 29}, {29, 20}};
+		
+		assertEquals(valor(new AlocadorDeDoacoes(AlocadorDeDoacoes.GULOSO).aloca(necessidades, ofertas, pontos), pontos), 50);
+		assertEquals(valor(new AlocadorDeDoacoes(AlocadorDeDoacoes.LEILAO).aloca(necessidades, ofertas, pontos), pontos), 58);
+		assertEquals(valor(new AlocadorDeDoacoes(AlocadorDeDoacoes.FLUXO_DE_CUSTO_MINIMO).aloca(necessidades, ofertas, pontos), pontos), 58);
+	}
+	
+	@Test
+	void testPlanosRespeitamAsQuantidades() {
+		Random aleatorio = new Random(42);
+		
+		for (int caso = 0; caso < 200; caso++) {
+			int n = 1 + aleatorio.nextInt(5);
+			int m = 1 + aleatorio.nextInt(5);
+			int[] necessidades = new int[n];
+			int[] ofertas = new int[m];
+			int[][] pontos = new int[n][m];
+			for (int i = 0; i < n; i++) {
+				necessidades[i] = 1 + aleatorio.nextInt(4);
+				for (int j = 0; j < m; j++) {
+					pontos[i][j] = 20 + 5 * aleatorio.nextInt(5);
+				}
+			}
+			for (int j = 0; j < m; j++) {
+				ofertas[j] = 1 + aleatorio.nextInt(4);
+			}
+			
+			int[][] guloso = new AlocadorDeDoacoes(AlocadorDeDoacoes.GULOSO).aloca(necessidades, ofertas, pontos);
+			int[][] leilao = new AlocadorDeDoacoes(AlocadorDeDoacoes.LEILAO).aloca(necessidades, ofertas, pontos);
+			int[][] fluxo = new AlocadorDeDoacoes(AlocadorDeDoacoes.FLUXO_DE_CUSTO_MINIMO).aloca(necessidades, ofertas, pontos);
+			
+			verificaQuantidades(guloso, necessidades, ofertas);
+			verificaQuantidades(leilao, necessidades, ofertas);
+			verificaQuantidades(fluxo, necessidades, ofertas);
+			
+			assertEquals(valor(leilao, pontos), valor(fluxo, pontos));
+			assertTrue(valor(guloso, pontos) <= valor(fluxo, pontos));
+		}
+	}
+	
+	@Test
+	void testLeilaoComMuitasUnidadesUsaOFluxo() {
+		int[] necessidades = {1000000, 3};
+		int[] ofertas = {2000000, 2};
+		int[][] pontos = {{20, 30}, {25, 40}};
+		
+		int[][] plano = new AlocadorDeDoacoes(AlocadorDeDoacoes.LEILAO).aloca(necessidades, ofertas, pontos);
+		verificaQuantidades(plano, necessidades, ofertas);
+		assertEquals(valor(plano, pontos), valor(new AlocadorDeDoacoes(AlocadorDeDoacoes.FLUXO_DE_CUSTO_MINIMO).aloca(necessidades, ofertas, pontos), pontos));
+	}
+	
+	@Test
+	void testGrupoGrandeDemaisRecusado() {
+		assertThrows(IllegalArgumentException.class, () -> {AlocadorDeDoacoes.validaTamanhoDoGrupo(70000, 70000);});
+		assertThrows(IllegalArgumentException.class, () -> {new AlocadorDeDoacoes(AlocadorDeDoacoes.GULOSO).aloca(new int[70000], new int[70000], new int[0][0]);});
+		AlocadorDeDoacoes.validaTamanhoDoGrupo(2048, 2048);
+	}
+	
+	private void verificaQuantidades(int[][] plano, int[] necessidades, int[] ofertas) {
+		int totalNecessario = 0;
+		int totalOfertado = 0;
+		int totalDoado = 0;
+		for (int i = 0; i < necessidades.length; i++) {
+			int doado = 0;
+			for (int j = 0; j < ofertas.length; j++) {
+				doado += plano[i][j];
+			}
+			assertTrue(doado <= necessidades[i]);
+			totalNecessario += necessidades[i];
+			totalDoado += doado;
+		}
+		for (int j = 0; j < ofertas.length; j++) {
+			int doado = 0;
+			for (int i = 0; i < necessidades.length; i++) {
+				doado += plano[i][j];
+			}
+			assertTrue(doado <= ofertas[j]);
+			totalOfertado += ofertas[j];
+		}
+		assertEquals(totalDoado, Math.min(totalNecessario, totalOfertado));
+	}
+	
+	private int valor(int[][] plano, int[][] pontos) {
+		int valor = 0;
+		for (int i = 0; i < plano.length; i++) {
+			for (int j = 0; j < plano[i].length; j++) {
+				valor += plano[i][j] * pontos[i][j];
+			}
+		}
+		return valor;
+	}
+
+}
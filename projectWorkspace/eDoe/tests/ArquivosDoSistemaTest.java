@@ -0,0 +1,96 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import eDoe.ArquivosDoSistema;
+import eDoe.Descritor;
+import eDoe.Doacao;
+import eDoe.EstadoDoSistema;
+import eDoe.Usuario;
+
+class ArquivosDoSistemaTest {
+
+	private File diretorio;
+	private ArquivosDoSistema arquivos;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		this.diretorio = Files.createTempDirectory("arquivos").toFile();
+		this.arquivos = new ArquivosDoSistema(new File(this.diretorio, "sistema.edoe").getPath(), new File(this.diretorio, "diario.edoe").getPath());
+
+		Usuario gustavo = new Usuario("111", "Gustavo", "gustavo.campos", "9999-9999", "PESSOA_FISICA", "doador");
+		gustavo.adicionaItem("cama", 5, "madeira", 0);
+		Usuario gabriel = new Usuario("222", "Gabriel", "gabriel.campos", "8888-8888", "IGREJA", "receptor");
+		Usuario daniel = new Usuario("333", "Daniel", "daniel.matos", "7777-7777", "IGREJA", "doador");
+		this.arquivos.gravaBase(new EstadoDoSistema(Arrays.asList(gustavo, gabriel, daniel), new ArrayList<Doacao>(), Arrays.asList(new Descritor("cama", 5), new Descritor("mesa")), 1, 1));
+	}
+
+	@AfterEach
+	void tearDown() {
+		for (File arquivo : this.diretorio.listFiles()) {
+			arquivo.delete();
+		}
+		this.diretorio.delete();
+	}
+
+	private String usuarios(EstadoDoSistema estado) {
+		StringBuilder ids = new StringBuilder();
+		for (Usuario usuario : estado.getUsuarios()) {
+			ids.append(usuario.getId()).append(":").append(usuario.getNome()).append(" ");
+		}
+		return ids.toString().trim();
+	}
+
+	private int deltas() {
+		return this.diretorio.list((pasta, nome) -> nome.endsWith(".delta")).length;
+	}
+
+	@Test
+	void testLeBaseComDeltas() throws IOException {
+		Usuario gustavo = new Usuario("111", "Gustavo Campos", "gustavo.campos", "9999-9999", "PESSOA_FISICA", "doador");
+		gustavo.adicionaItem("cama", 3, "madeira", 0);
+		Usuario gabriel = new Usuario("222", "Gabriel", "gabriel.campos", "8888-8888", "IGREJA", "receptor");
+		List<Doacao> doacoes = Arrays.asList(new Doacao(0, "05/03/2019", "cama", "Gustavo Campos/111", "Gabriel/222", 2));
+		this.arquivos.gravaDelta(new EstadoDoSistema(Arrays.asList(gustavo, gabriel), doacoes, Arrays.asList(new Descritor("cama", 3)), 1, 2, Arrays.asList("222")));
+
+		Usuario jose = new Usuario("444", "Jose", "jose", "6666-6666", "IGREJA", "doador");
+		this.arquivos.gravaDelta(new EstadoDoSistema(Arrays.asList(jose), new ArrayList<Doacao>(), new ArrayList<Descritor>(), 1, 3, Arrays.asList("333")));
+
+		EstadoDoSistema estado = this.arquivos.le();
+		assertEquals(usuarios(estado), "111:Gustavo Campos 222:Gabriel 444:Jose");
+		assertEquals(estado.getUsuarios().iterator().next().exibeItem(0), "0 - cama, tags: [madeira], quantidade: 3");
+		assertEquals(estado.getDoacoes().toString(), doacoes.toString());
+		assertEquals(estado.getDescritores().toString(), "[3 - cama, 0 - mesa]");
+		assertEquals(estado.getGeracaoDoDiario(), 3);
+		assertEquals(deltas(), 2);
+
+		this.arquivos.compacta();
+		assertEquals(deltas(), 0);
+		assertEquals(usuarios(this.arquivos.le()), "111:Gustavo Campos 222:Gabriel 444:Jose");
+		assertEquals(this.arquivos.le().getGeracaoDoDiario(), 3);
+	}
+
+	@Test
+	void testDeltasJaNaBaseIgnorados() throws IOException {
+		Usuario jose = new Usuario("444", "Jose", "jose", "6666-6666", "IGREJA", "doador");
+		this.arquivos.gravaDelta(new EstadoDoSistema(Arrays.asList(jose), new ArrayList<Doacao>(), new ArrayList<Descritor>(), 1, 1, Collections.<String>emptyList()));
+
+		assertEquals(usuarios(this.arquivos.le()), "111:Gustavo 222:Gabriel 333:Daniel");
+
+		this.arquivos.gravaDelta(new EstadoDoSistema(Arrays.asList(jose), new ArrayList<Doacao>(), new ArrayList<Descritor>(), 1, 2, Collections.<String>emptyList()));
+		this.arquivos.gravaBase(new EstadoDoSistema(new ArrayList<Usuario>(), new ArrayList<Doacao>(), new ArrayList<Descritor>(), 0, 2));
+		assertEquals(usuarios(this.arquivos.le()), "");
+		assertEquals(deltas(), 0);
+	}
+
+}
@@ -0,0 +1,37 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import util.ConjuntoDeTags;
+
+class ConjuntoDeTagsTest {
+
+	@Test
+	void testContem() {
+		ConjuntoDeTags c = new ConjuntoDeTags(new int[] {3, 70, 3});
+		assertTrue(c.contem(3));
+		assertTrue(c.contem(70));
+		assertFalse(c.contem(67));
+		assertFalse(c.contem(1000));
+		assertEquals(c.tamanho(), 2);
+	}
+	
+	@Test
+	void testTamanhoDaIntersecaoEntreMapasDeBits() {
+		ConjuntoDeTags c1 = new ConjuntoDeTags(new int[] {1, 2, 64, 130});
+		ConjuntoDeTags c2 = new ConjuntoDeTags(new int[] {2, 130, 131});
+		assertEquals(c1.tamanhoDaIntersecao(c2), 2);
+		assertEquals(c2.tamanhoDaIntersecao(c1), 2);
+	}
+	
+	@Test
+	void testTamanhoDaIntersecaoComIdsEspalhados() {
+		ConjuntoDeTags c1 = new ConjuntoDeTags(new int[] {5, 100000, 7});
+		ConjuntoDeTags c2 = new ConjuntoDeTags(new int[] {7, 100000});
+		ConjuntoDeTags c3 = new ConjuntoDeTags(new int[] {});
+		assertEquals(c1.tamanhoDaIntersecao(c2), 2);
+		assertEquals(c2.tamanhoDaIntersecao(c1), 2);
+		assertEquals(c1.tamanhoDaIntersecao(c3), 0);
+	}
+
+}
@@ -0,0 +1,107 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+import eDoe.Controller;
+
+class ControllerConcorrenciaTest {
+
+	private static final String[] DESCRICOES = {"cama", "sofa", "mesa"};
+	private static final String[] TAGS = {"madeira", "couro", "vidro", "solteiro"};
+	private static final String[] RECEPTORES = {"84473712044", "80643201009"};
+
+	@Test
+	void testDescritoresConsistentesSobConcorrencia() throws InterruptedException {
+		Controller c = new Controller();
+		c.lerReceptores("arquivos_sistema/novosReceptores.csv");
+		
+		int threads = 8;
+		for (int t = 0; t < threads; t++) {
+			c.adicionaDoador("doador" + t, "Doador " + t, "doador" + t + "@mail", "9999-9999", "PESSOA_FISICA");
+		}
+		
+		CountDownLatch inicio = new CountDownLatch(1);
+		AtomicReference<Throwable> erro = new AtomicReference<Throwable>();
+		List<Thread> trabalhadores = new ArrayList<Thread>();
+		
+		for (int t = 0; t < threads; t++) {
+			String doador = "doador" + t;
+			Random aleatorio = new Random(t);
+			Thread trabalhador = new Thread(() -> {
+				try {
+					inicio.await();
+					List<Integer> meusItens = new ArrayList<Integer>();
+					List<Integer> necessarios = new ArrayList<Integer>();
+					
+					for (int operacao = 0; operacao < 2000; operacao++) {
+						String descricao = DESCRICOES[aleatorio.nextInt(DESCRICOES.length)];
+						String tags = TAGS[aleatorio.nextInt(TAGS.length)];
+						try {
+							switch (aleatorio.nextInt(7)) {
+							case 0:
+							case 1:
+								meusItens.add(c.adicionaItem(doador, descricao, 1 + aleatorio.nextInt(5), tags));
+								break;
+							case 2:
+								if (!meusItens.isEmpty()) c.atualizaItem(meusItens.get(aleatorio.nextInt(meusItens.size())), doador, 1 + aleatorio.nextInt(5), "");
+								break;
+							case 3:
+								if (!meusItens.isEmpty()) c.removeItem(meusItens.remove(aleatorio.nextInt(meusItens.size())), doador);
+								break;
+							case 4:
+								necessarios.add(c.adicionaItem(RECEPTORES[aleatorio.nextInt(RECEPTORES.length)], descricao, 1 + aleatorio.nextInt(5), tags));
+								break;
+							case 5:
+								if (!meusItens.isEmpty() && !necessarios.isEmpty()) c.realizaDoacao(necessarios.get(aleatorio.nextInt(necessarios.size())), meusItens.get(aleatorio.nextInt(meusItens.size())), "01/01/2019");
+								break;
+							default:
+								c.listaItensParaDoacao();
+								c.listaDescritorDeItensParaDoacao();
+								c.pesquisaUsuarioPorId(doador);
+							}
+						} catch (IllegalArgumentException e) {
+							// itens removidos ou doados por outras threads
+						}
+					}
+				} catch (Throwable e) {
+					erro.compareAndSet(null, e);
+				}
+			});
+			trabalhadores.add(trabalhador);
+			trabalhador.start();
+		}
+		
+		inicio.countDown();
+		for (Thread trabalhador : trabalhadores) {
+			trabalhador.join();
+		}
+		assertNull(erro.get());
+		
+		Map<String,Integer> somaDosItens = new HashMap<String,Integer>();
+		Matcher item = Pattern.compile("\\d+ - (\\w+), tags: \\[[^\\]]*\\], quantidade: (\\d+), doador").matcher(c.listaItensParaDoacao());
+		while (item.find()) {
+			somaDosItens.merge(item.group(1), Integer.parseInt(item.group(2)), Integer::sum);
+		}
+		
+		Map<String,Integer> descritores = new HashMap<String,Integer>();
+		Matcher descritor = Pattern.compile("(\\d+) - (\\w+)").matcher(c.listaDescritorDeItensParaDoacao());
+		while (descritor.find()) {
+			descritores.put(descritor.group(2), Integer.parseInt(descritor.group(1)));
+		}
+		
+		for (String descricao : DESCRICOES) {
+			assertEquals(somaDosItens.getOrDefault(descricao, 0), descritores.getOrDefault(descricao, 0));
+		}
+	}
+
+}
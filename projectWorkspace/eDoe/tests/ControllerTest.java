@@ -1,8 +1,19 @@
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.jupiter.api.Test;
 
 import eDoe.Controller;
+import eDoe.PedidoDeDoacao;
+import util.Pagina;
 
 class ControllerTest {
 	
@@ -27,6 +38,19 @@ class ControllerTest {
 		assertEquals(c.pesquisaUsuarioPorNome("Daniel"), "Daniel/100, daniel.figueredo@ccc.ufcg.edu.br, 1010-2222, status: doador");
 	}
 	
+	@Test
+	void testPesquisaUsuarioPorNomeAposAtualizacoes() {
+		Controller c = new Controller();
+		c.adicionaDoador("100", "Daniel", "daniel@ccc", "1010-2222", "PESSOA_FISICA");
+		c.adicionaDoador("200", "Gustavo", "gustavo@ccc", "2020-2222", "PESSOA_FISICA");
+		c.adicionaDoador("300", "Daniel", "daniel@ufcg", "3030-2222", "IGREJA");
+		c.atualizaUsuario("200", "Daniel", null, null);
+		c.removeUsuario("300");
+		
+		assertEquals(c.pesquisaUsuarioPorNome("Daniel"), "Daniel/100, daniel@ccc, 1010-2222, status: doador | Daniel/200, gustavo@ccc, 2020-2222, status: doador");
+		assertThrows(IllegalArgumentException.class, ()->{c.pesquisaUsuarioPorNome("Gustavo");} );
+	}
+	
 	@Test
 	void testAtualizaUsuario() {
 		Controller c = new Controller();
@@ -50,6 +74,24 @@ class ControllerTest {
 		};
 	}
 	
+	@Test
+	void testRemoveUsuarioComItens() {
+		Controller c = new Controller();
+		c.lerReceptores("arquivos_sistema/novosReceptores.csv");
+		c.adicionaDoador("111", "Gustavo", "gustavo.campos", "9999-9999", "PESSOA_FISICA");
+		
+		c.adicionaItem("84473712044", "cama", 2, "madeira");
+		c.adicionaItem("111", "cama", 1, "madeira");
+		c.adicionaItem("111", "cama", 3, "solteiro");
+		c.removeUsuario("111");
+		
+		try {c.realizaDoacao(0, 1, "01/01/2000");
+		}catch(IllegalArgumentException exception) {
+			assertEquals(exception.getMessage(), "Item nao encontrado: 1.");
+		};
+		assertEquals(c.listaDescritorDeItensParaDoacao(), "0 - cama");
+	}
+	
 	@Test
 	void testAdicionaDescritor() {
 		Controller c = new Controller();
@@ -131,6 +173,51 @@ class ControllerTest {
 
 }
 	
+	@Test
+	void testListaItensParaDoacaoComItensEquivalentes() {
+		Controller c = new Controller();
+		
+		c.adicionaDoador("111", "Gustavo", "gustavo.campos", "9999-9999", "PESSOA_FISICA");
+		c.adicionaDoador("222", "Gabriel", "gabriel.campos", "8888-8888", "PESSOA_FISICA");
+		
+		c.adicionaItem("111", "cama", 1, "madeira");
+		c.adicionaItem("222", "cama", 1, "solteiro");
+		c.adicionaItem("222", "sofa", 2, "couro");
+		c.atualizaItem(2, "222", 1, null);
+		c.adicionaItem("111", "cama", 5, "madeira");
+		
+		assertEquals(c.listaItensParaDoacao(),"0 - cama, tags: [madeira], quantidade: 5, doador: Gustavo/111 | 1 - cama, tags: [solteiro], quantidade: 1, doador: Gabriel/222 | 2 - sofa, tags: [couro], quantidade: 1, doador: Gabriel/222");
+		assertEquals(c.listaDescritorDeItensParaDoacao(),"6 - cama | 1 - sofa");
+	}
+	
+	@Test
+	void testListagensEmWriter() throws IOException {
+		Controller c = new Controller();
+		
+		c.lerReceptores("arquivos_sistema/novosReceptores.csv");
+		c.adicionaDoador("111", "Gustavo", "gustavo.campos", "9999-9999", "PESSOA_FISICA");
+		c.adicionaItem("111", "cama", 2, "madeira,solteiro");
+		c.adicionaItem("111", "sofa", 1, "");
+		c.adicionaItem("84473712044", "cama", 1, "madeira");
+		
+		StringWriter itens = new StringWriter();
+		c.listaItensParaDoacao(itens);
+		assertEquals(itens.toString(), c.listaItensParaDoacao());
+		assertEquals(itens.toString(), "0 - cama, tags: [madeira, solteiro], quantidade: 2, doador: Gustavo/111 | 1 - sofa, tags: [], quantidade: 1, doador: Gustavo/111");
+		
+		StringWriter necessarios = new StringWriter();
+		c.listaItensNecessarios(necessarios);
+		assertEquals(necessarios.toString(), "2 - cama, tags: [madeira], quantidade: 1, Receptor: Murilo Luiz Brito/84473712044");
+		
+		StringWriter match = new StringWriter();
+		c.match("84473712044", 2, match);
+		assertEquals(match.toString(), c.match("84473712044", 2));
+		
+		StringWriter descritores = new StringWriter();
+		c.listaDescritorDeItensParaDoacao(descritores);
+		assertEquals(descritores.toString(), "2 - cama | 1 - sofa");
+	}
+	
 	@Test
 	void testPesquisaItemParaDoacaoPorDescricao() {
 		Controller c = new Controller();
@@ -192,6 +279,18 @@ class ControllerTest {
 		assertEquals(c.listaItensNecessarios(),"0 - cama, tags: [madeira], quantidade: 2, Receptor: Murilo Luiz Brito/84473712044 | 1 - carro, tags: [vermelho], quantidade: 1, Receptor: Murilo Luiz Brito/84473712044 | 2 - sofa, tags: [couro], quantidade: 3, Receptor: Tomas Otavio Lucas Teixeira/80643201009");
 	}
 	
+	@Test
+	void testListaItensNecessariosVazia() {
+		Controller c = new Controller();
+		
+		c.lerReceptores("arquivos_sistema/novosReceptores.csv");
+		assertEquals(c.listaItensNecessarios(),"");
+		
+		c.adicionaItem("84473712044", "cama", 2, "madeira");
+		c.removeItem(0, "84473712044");
+		assertEquals(c.listaItensNecessarios(),"");
+	}
+	
 	@Test
 	void testAtualizaItemNecessario() {
 		Controller c = new Controller();
@@ -297,6 +396,53 @@ class ControllerTest {
 		} catch(IllegalArgumentException exception) {};
 	}
 	
+	@Test
+	void testMatchComQuantidadeMaxima() {
+		Controller c = new Controller();
+		
+		c.lerReceptores("arquivos_sistema/novosReceptores.csv");
+		c.adicionaDoador("111", "Gustavo", "gustavo.campos", "9999-9999", "PESSOA_FISICA");
+		c.adicionaDoador("222", "Gabriel", "gabriel.campos", "8888-8888", "PESSOA_FISICA");
+		
+		c.adicionaItem("84473712044", "cama", 2, "madeira");
+		c.adicionaItem("111", "cama", 2, "pulavel");
+		c.adicionaItem("222", "cama", 1, "madeira");
+		c.adicionaItem("111", "cama", 1, "Madeira,solteiro");
+		c.adicionaItem("222", "cama", 3, "madeira,casal");
+		c.adicionaItem("111", "cama", 1, "madeira");
+		
+		String[] todos = c.match("84473712044", 0).split(" \\| ");
+		assertEquals(todos.length, 5);
+		for (int k = 1; k <= 6; k++) {
+			String esperado = String.join(" | ", Arrays.copyOfRange(todos, 0, Math.min(k, todos.length)));
+			assertEquals(esperado, c.match("84473712044", 0, k));
+		}
+		assertEquals(c.match("84473712044", 0, 2), "2 - cama, tags: [madeira], quantidade: 1, doador: Gabriel/222 | 4 - cama, tags: [madeira, casal], quantidade: 3, doador: Gabriel/222");
+		
+		assertThrows(IllegalArgumentException.class, () -> c.match("84473712044", 0, 0));
+	}
+	
+	@Test
+	void testMatchAposRemocaoDeItemDoado() {
+		Controller c = new Controller();
+		
+		c.lerReceptores("arquivos_sistema/novosReceptores.csv");
+		c.adicionaDoador("111", "Gustavo", "gustavo.campos", "9999-9999", "PESSOA_FISICA");
+		
+		c.adicionaItem("84473712044", "cama", 2, "madeira");
+		c.adicionaItem("111", "cama", 1, "madeira");
+		c.adicionaItem("111", "cama", 3, "solteiro");
+		c.adicionaItem("111", "sofa", 3, "madeira");
+		c.removeItem(1, "111");
+		
+		assertEquals(c.match("84473712044", 0), "2 - cama, tags: [solteiro], quantidade: 3, doador: Gustavo/111");
+		
+		c.realizaDoacao(0, 2, "01/01/2000");
+		c.adicionaItem("84473712044", "cama", 1, "madeira");
+		
+		assertEquals(c.match("84473712044", 4), "2 - cama, tags: [solteiro], quantidade: 1, doador: Gustavo/111");
+	}
+	
 	@Test
 	void testRealizaDoacao() {
 		Controller c = new Controller();
@@ -374,5 +520,232 @@ class ControllerTest {
 		
 		assertEquals(c.listaDoacoes(), "01/01/2000 - doador: Gustavo/111, item: cama, quantidade: 2, receptor: Murilo Luiz Brito/84473712044 | 01/01/2001 - doador: Gustavo/111, item: cama, quantidade: 1, receptor: Tomas Otavio Lucas Teixeira/80643201009 | 01/01/2001 - doador: Gabriel/222, item: carro, quantidade: 1, receptor: Murilo Luiz Brito/84473712044");
 	}
+	
+	@Test
+	void testRealizaDoacoes() {
+		Controller c = new Controller();
+		
+		c.lerReceptores("arquivos_sistema/novosReceptores.csv");
+		c.adicionaDoador("111", "Gustavo", "gustavo.campos", "9999-9999", "PESSOA_FISICA");
+		
+		c.adicionaItem("84473712044", "cama", 3, "madeira");
+		c.adicionaItem("111", "cama", 1, "madeira");
+		c.adicionaItem("111", "cama", 5, "solteiro");
+		c.adicionaItem("111", "sofa", 1, "couro");
+		
+		List<PedidoDeDoacao> invalidos = Arrays.asList(new PedidoDeDoacao(0, 1, "05/03/2019"), new PedidoDeDoacao(0, 1, "06/03/2019"));
+		assertThrows(IllegalArgumentException.class, () -> c.realizaDoacoes(invalidos));
+		assertThrows(IllegalArgumentException.class, () -> c.realizaDoacoes(Arrays.asList(new PedidoDeDoacao(0, 1, "05/03/2019"), new PedidoDeDoacao(0, 3, "05/03/2019"))));
+		assertThrows(IllegalArgumentException.class, () -> c.realizaDoacoes(Arrays.asList(new PedidoDeDoacao(0, 1, "05/03/2019"), new PedidoDeDoacao(0, 2, "data"))));
+		assertEquals(c.listaDoacoes(), "");
+		assertEquals(c.listaDescritorDeItensParaDoacao(), "6 - cama | 1 - sofa");
+		
+		List<String> realizadas = c.realizaDoacoes(Arrays.asList(new PedidoDeDoacao(0, 1, "05/03/2019"), new PedidoDeDoacao(0, 2, "06/03/2019")));
+		assertEquals(realizadas, Arrays.asList("05/03/2019 - doador: Gustavo/111, item: cama, quantidade: 1, receptor: Murilo Luiz Brito/84473712044", "06/03/2019 - doador: Gustavo/111, item: cama, quantidade: 2, receptor: Murilo Luiz Brito/84473712044"));
+		assertEquals(c.listaDescritorDeItensParaDoacao(), "3 - cama | 1 - sofa");
+		assertEquals(c.listaItensParaDoacao(), "2 - cama, tags: [solteiro], quantidade: 3, doador: Gustavo/111 | 3 - sofa, tags: [couro], quantidade: 1, doador: Gustavo/111");
+		assertEquals(c.listaItensNecessarios(), "");
+		assertEquals(c.realizaDoacoes(new ArrayList<PedidoDeDoacao>()), new ArrayList<String>());
+	}
+	
+	@Test
+	void testRelatoriosNaoBloqueiamEscritas() throws IOException {
+		Controller c = new Controller();
+		
+		c.lerReceptores("arquivos_sistema/novosReceptores.csv");
+		c.adicionaDoador("111", "Gustavo", "gustavo.campos", "9999-9999", "PESSOA_FISICA");
+		c.adicionaItem("84473712044", "cama", 3, "madeira");
+		c.adicionaItem("111", "cama", 5, "solteiro");
+		
+		StringBuilder itens = new StringBuilder();
+		c.listaItensParaDoacao(escritaDuranteRelatorio(itens, () -> {
+			c.adicionaItem("111", "sofa", 9, "couro");
+			c.realizaDoacao(0, 1, "05/03/2019");
+		}));
+		assertEquals(itens.toString(), "1 - cama, tags: [solteiro], quantidade: 5, doador: Gustavo/111");
+		assertEquals(c.listaItensParaDoacao(), "2 - sofa, tags: [couro], quantidade: 9, doador: Gustavo/111 | 1 - cama, tags: [solteiro], quantidade: 2, doador: Gustavo/111");
+		
+		StringBuilder doacoes = new StringBuilder();
+		c.listaDoacoes(escritaDuranteRelatorio(doacoes, () -> {
+			c.adicionaItem("84473712044", "cama", 1, "madeira");
+			c.realizaDoacao(3, 1, "01/01/2019");
+		}));
+		assertEquals(doacoes.toString(), "05/03/2019 - doador: Gustavo/111, item: cama, quantidade: 3, receptor: Murilo Luiz Brito/84473712044");
+		assertEquals(c.listaDoacoes(), "01/01/2019 - doador: Gustavo/111, item: cama, quantidade: 1, receptor: Murilo Luiz Brito/84473712044 | 05/03/2019 - doador: Gustavo/111, item: cama, quantidade: 3, receptor: Murilo Luiz Brito/84473712044");
+	}
+	
+	/**
+	 * Saida que executa uma escrita no controlador antes do primeiro texto recebido, ou seja, no meio de um relatorio
+	 */
+	private Appendable escritaDuranteRelatorio(StringBuilder destino, Runnable escrita) {
+		return new Appendable() {
+			private boolean escreveu = false;
+			
+			@Override
+			public Appendable append(CharSequence texto) {
+				antesDeEscrever();
+				destino.append(texto);
+				return this;
+			}
+			
+			@Override
+			public Appendable append(CharSequence texto, int inicio, int fim) {
+				antesDeEscrever();
+				destino.append(texto, inicio, fim);
+				return this;
+			}
+			
+			@Override
+			public Appendable append(char caractere) {
+				antesDeEscrever();
+				destino.append(caractere);
+				return this;
+			}
+			
+			private void antesDeEscrever() {
+				if (!this.escreveu) {
+					this.escreveu = true;
+					escrita.run();
+				}
+			}
+		};
+	}
+	
+	@Test
+	void testAlocaDoacoes() {
+		Controller c = new Controller();
+		
+		c.lerReceptores("arquivos_sistema/novosReceptores.csv");
+		c.lerReceptores("arquivos_sistema/atualizaReceptores.csv");
+		c.adicionaDoador("111", "Gustavo", "gustavo.campos", "9999-9999", "PESSOA_FISICA");
+		c.adicionaDoador("222", "Gabriel", "gabriel.campos", "8888-8888", "PESSOA_FISICA");
+		
+		c.adicionaItem("84473712044", "cama", 1, "madeira,solteiro");
+		c.adicionaItem("80643201009", "cama", 1, "madeira");
+		c.adicionaItem("80643201009", "sofa", 2, "couro");
+		c.adicionaItem("84473712044", "mesa", 1, "vidro");
+		c.adicionaItem("111", "cama", 1, "madeira,solteiro");
+		c.adicionaItem("222", "cama", 1, "madeira");
+		c.adicionaItem("222", "sofa", 5, "couro");
+		c.adicionaItem("111", "cadeira", 2, "");
+		
+		assertThrows(IllegalArgumentException.class, () -> c.alocaDoacoes("ALEATORIO", "01/01/2019"));
+		assertThrows(IllegalArgumentException.class, () -> c.alocaDoacoes("GULOSO", " "));
+		
+		assertEquals(c.alocaDoacoes("FLUXO_DE_CUSTO_MINIMO", "01/01/2019"), "01/01/2019 - doador: Gustavo/111, item: cama, quantidade: 1, receptor: Murilo Luiz Brito/84473712044 | 01/01/2019 - doador: Gabriel/222, item: cama, quantidade: 1, receptor: Tomas Otavio Lucas Teixeira/80643201009 | 01/01/2019 - doador: Gabriel/222, item: sofa, quantidade: 2, receptor: Tomas Otavio Lucas Teixeira/80643201009");
+		assertEquals(c.listaDescritorDeItensParaDoacao(), "2 - cadeira | 0 - cama | 3 - sofa");
+		assertEquals(c.listaItensNecessarios(), "3 - mesa, tags: [vidro], quantidade: 1, Receptor: Murilo Luiz Brito/84473712044");
+		assertEquals(c.alocaDoacoes("LEILAO", "02/01/2019"), "");
+	}
+	
+	@Test
+	void testListaDoacoesNoMesmoDiaComMesmaDescricao() {
+		Controller c = new Controller();
+		
+		c.lerReceptores("arquivos_sistema/novosReceptores.csv");
+		c.adicionaDoador("111", "Gustavo", "gustavo.campos", "9999-9999", "PESSOA_FISICA");
+		
+		c.adicionaItem("84473712044", "cama", 3, "madeira");
+		c.adicionaItem("111", "cama", 1, "madeira");
+		c.adicionaItem("111", "cama", 1, "solteiro");
+		c.adicionaItem("111", "sofa", 1, "couro");
+		c.adicionaItem("84473712044", "sofa", 1, "couro");
+		
+		c.realizaDoacao(0, 1, "05/03/2019");
+		c.realizaDoacao(0, 2, "05/03/2019");
+		c.realizaDoacao(4, 3, "28/02/2019");
+		
+		assertEquals(c.listaDoacoes(), "28/02/2019 - doador: Gustavo/111, item: sofa, quantidade: 1, receptor: Murilo Luiz Brito/84473712044 | 05/03/2019 - doador: Gustavo/111, item: cama, quantidade: 1, receptor: Murilo Luiz Brito/84473712044 | 05/03/2019 - doador: Gustavo/111, item: cama, quantidade: 1, receptor: Murilo Luiz Brito/84473712044");
+	}
+
+	@Test
+	void testListagensPaginadas() {
+		Controller c = new Controller();
+		
+		c.lerReceptores("arquivos_sistema/novosReceptores.csv");
+		c.adicionaDoador("111", "Gustavo", "gustavo.campos", "9999-9999", "PESSOA_FISICA");
+		
+		c.adicionaItem("111", "cama", 2, "madeira");
+		c.adicionaItem("111", "cama de casal", 2, "solteiro");
+		c.adicionaItem("111", "sofa", 3, "couro");
+		c.adicionaItem("111", "Cama elastica", 1, "pulavel");
+		c.adicionaItem("84473712044", "cama", 3, "madeira");
+		c.adicionaItem("84473712044", "sofa", 1, "couro");
+		c.adicionaItem("84473712044", "mesa", 1, "");
+		c.adicionaItem("111", "cama", 1, "solteiro");
+		c.realizaDoacao(4, 0, "05/03/2019");
+		c.realizaDoacao(5, 2, "28/02/2019");
+		c.realizaDoacao(4, 7, "05/03/2019");
+		
+		for (int tamanho = 1; tamanho <= 4; tamanho++) {
+			assertEquals(c.listaItensParaDoacao(), juntaPaginas(c, "itens", tamanho));
+			assertEquals(c.listaItensNecessarios(), juntaPaginas(c, "necessarios", tamanho));
+			assertEquals(c.listaDoacoes(), juntaPaginas(c, "doacoes", tamanho));
+			assertEquals(c.pesquisaItemParaDoacaoPorDescricao("cama"), juntaPaginas(c, "pesquisa", tamanho));
+		}
+		
+		Pagina ultima = c.listaItensNecessarios(10, null);
+		assertFalse(ultima.temProximaPagina());
+		assertEquals(c.listaItensNecessarios(), ultima.getConteudo());
+		
+		assertThrows(IllegalArgumentException.class, () -> c.listaItensParaDoacao(0, null));
+		assertThrows(IllegalArgumentException.class, () -> c.listaDoacoes(2, "cursor invalido"));
+		assertThrows(IllegalArgumentException.class, () -> c.listaItensNecessarios(2, c.listaDoacoes(1, null).getProximoCursor()));
+	}
+	
+	private String juntaPaginas(Controller c, String listagem, int tamanho) {
+		StringBuilder s = new StringBuilder();
+		String cursor = null;
+		do {
+			Pagina pagina;
+			if (listagem.equals("itens")) pagina = c.listaItensParaDoacao(tamanho, cursor);
+			else if (listagem.equals("necessarios")) pagina = c.listaItensNecessarios(tamanho, cursor);
+			else if (listagem.equals("doacoes")) pagina = c.listaDoacoes(tamanho, cursor);
+			else pagina = c.pesquisaItemParaDoacaoPorDescricao("cama", tamanho, cursor);
+			
+			if (s.length() > 0 && !pagina.getConteudo().isEmpty()) {
+				s.append(" | ");
+			}
+			s.append(pagina.getConteudo());
+			cursor = pagina.getProximoCursor();
+		} while (cursor != null);
+		return s.toString();
+	}
+	
+	@Test
+	void testDataInvalidaNaoEntraNoDiario() throws Exception {
+		File diretorio = new File("arquivos_sistema");
+		Path guardados = Files.createTempDirectory("arquivos_sistema");
+		for (File arquivo : diretorio.listFiles()) {
+			Files.move(arquivo.toPath(), guardados.resolve(arquivo.getName()));
+		}
+		try {
+			Controller c = new Controller();
+			c.iniciaSistema();
+			c.lerReceptores(guardados.resolve("novosReceptores.csv").toString());
+			c.adicionaDoador("111", "Gustavo", "gustavo.campos", "9999-9999", "PESSOA_FISICA");
+			int necessario = c.adicionaItem("84473712044", "cama", 2, "madeira");
+			int doado = c.adicionaItem("111", "cama", 1, "madeira");
+			
+			assertThrows(IllegalArgumentException.class, ()->{c.realizaDoacao(necessario, doado, "abc");} );
+			assertThrows(IllegalArgumentException.class, ()->{c.alocaDoacoes("GULOSO", "31-12-2020");} );
+			c.adicionaDoador("222", "Daniel", "daniel.figueredo", "1010-2222", "PESSOA_FISICA");
+			
+			Controller reiniciado = new Controller();
+			reiniciado.iniciaSistema();
+			assertEquals(reiniciado.exibeItem(doado, "111"), "1 - cama, tags: [madeira], quantidade: 1");
+			assertEquals(reiniciado.pesquisaUsuarioPorId("222"), "Daniel/222, daniel.figueredo, 1010-2222, status: doador");
+			assertEquals(reiniciado.realizaDoacao(necessario, doado, "01/01/2019"), "01/01/2019 - doador: Gustavo/111, item: cama, quantidade: 1, receptor: Murilo Luiz Brito/84473712044");
+			reiniciado.finalizaSistema();
+		} finally {
+			for (File arquivo : diretorio.listFiles()) {
+				arquivo.delete();
+			}
+			for (File arquivo : guardados.toFile().listFiles()) {
+				Files.move(arquivo.toPath(), diretorio.toPath().resolve(arquivo.getName()));
+			}
+			guardados.toFile().delete();
+		}
+	}
 
 }
@@ -1,5 +1,11 @@
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
 import org.junit.jupiter.api.Test;
 
 import eDoe.Descritor;
@@ -40,5 +46,22 @@ class DescritorTest {
 		assertEquals(d.toString(), "2 - cama");
 	}
 	
+	@Test
+	void testSerializacao() throws IOException, ClassNotFoundException {
+		Descritor d = new Descritor("cama", 2);
+		d.aumentaQuant(3);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream saida = new ObjectOutputStream(bytes)) {
+			saida.writeObject(d);
+		}
+		
+		try (ObjectInputStream entrada = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			Descritor lido = (Descritor) entrada.readObject();
+			assertEquals(lido.toString(), "5 - cama");
+			lido.diminuiQuant(1);
+			assertEquals(lido.getQuant(), 4);
+		}
+	}
+	
 
 }
@@ -0,0 +1,89 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import util.Diario;
+
+class DiarioTest {
+
+	private File arquivo;
+	private List<Object[]> reproduzidos;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		this.arquivo = File.createTempFile("diario", ".edoe");
+		this.arquivo.delete();
+		this.reproduzidos = new ArrayList<Object[]>();
+	}
+
+	@AfterEach
+	void tearDown() {
+		this.arquivo.delete();
+	}
+
+	private Diario abre(long geracaoMinima) throws IOException {
+		return Diario.abre(this.arquivo.getPath(), geracaoMinima, Diario.SEMPRE, 1000, this.reproduzidos::add);
+	}
+
+	@Test
+	void testRegistraEReproduz() throws IOException {
+		Diario diario = abre(1);
+		diario.registra(1, "111", "Gustavo", null).confirma();
+		Diario.RegistroPendente segundo = diario.registra(5, "111", "cama", 3, "madeira,solteiro", 7L);
+		diario.registra(4, "sofá");
+		segundo.confirma();
+		diario.close();
+
+		Diario reaberto = abre(1);
+		assertEquals(reaberto.getGeracao(), 1);
+		assertEquals(this.reproduzidos.size(), 3);
+		assertEquals(Arrays.asList(this.reproduzidos.get(0)), Arrays.asList(1L, "111", "Gustavo", null));
+		assertEquals(Arrays.asList(this.reproduzidos.get(1)), Arrays.asList(5L, "111", "cama", 3L, "madeira,solteiro", 7L));
+		assertEquals(Arrays.asList(this.reproduzidos.get(2)), Arrays.asList(4L, "sofá"));
+		reaberto.close();
+	}
+
+	@Test
+	void testRegistroFinalIncompletoDescartado() throws IOException {
+		Diario diario = abre(1);
+		diario.registra(1, "111").confirma();
+		diario.registra(1, "222").confirma();
+		diario.close();
+
+		try (RandomAccessFile bytes = new RandomAccessFile(this.arquivo, "rw")) {
+			bytes.setLength(bytes.length() - 2);
+		}
+
+		Diario reaberto = abre(1);
+		assertEquals(this.reproduzidos.size(), 1);
+		reaberto.registra(1, "333").confirma();
+		reaberto.close();
+
+		this.reproduzidos.clear();
+		abre(1).close();
+		assertEquals(this.reproduzidos.size(), 2);
+		assertEquals(this.reproduzidos.get(1)[1], "333");
+	}
+
+	@Test
+	void testGeracaoAntigaDescartada() throws IOException {
+		Diario diario = abre(1);
+		diario.registra(1, "111").confirma();
+		diario.close();
+
+		Diario novo = abre(2);
+		assertEquals(novo.getGeracao(), 2);
+		assertTrue(this.reproduzidos.isEmpty());
+		novo.close();
+	}
+
+}
@@ -0,0 +1,95 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import eDoe.Descritor;
+import eDoe.Doacao;
+import eDoe.EstadoDoSistema;
+import eDoe.Usuario;
+
+class EstadoDoSistemaTest {
+
+	private byte[] grava(EstadoDoSistema estado) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		estado.grava(new DataOutputStream(bytes));
+		return bytes.toByteArray();
+	}
+
+	private EstadoDoSistema le(byte[] bytes) throws IOException {
+		return EstadoDoSistema.le(new DataInputStream(new ByteArrayInputStream(bytes)));
+	}
+
+	@Test
+	void testGravaELe() throws IOException {
+		Usuario doador = new Usuario("111", "Gustavo", "gustavo.campos", "9999-9999", "PESSOA_FISICA", "doador");
+		doador.adicionaItem("cama", 5, "madeira,solteiro", 3);
+		doador.adicionaItem("sofá", 1, null, 7);
+		Usuario receptor = new Usuario("222", "Gabriel", "gabriel.campos", "8888-8888", "IGREJA", "receptor");
+		receptor.adicionaItem("cama", 2, "madeira", 4);
+		List<Doacao> doacoes = Arrays.asList(new Doacao(0, "05/03/2019", "cama", "Gustavo/111", "Gabriel/222", 1), new Doacao(1, "01/01/2019", "cama", "Gustavo/111", "Gabriel/222", 2));
+		List<Descritor> descritores = Arrays.asList(new Descritor("cama", 5), new Descritor("sofá", 1), new Descritor("mesa"));
+
+		EstadoDoSistema lido = le(grava(new EstadoDoSistema(Arrays.asList(doador, receptor), doacoes, descritores, 8)));
+
+		Iterator<Usuario> usuarios = lido.getUsuarios().iterator();
+		Usuario doadorLido = usuarios.next();
+		assertEquals(doadorLido.toString(), doador.toString());
+		assertEquals(doadorLido.exibeItem(3), "3 - cama, tags: [madeira, solteiro], quantidade: 5");
+		assertEquals(doadorLido.exibeItem(7), doador.exibeItem(7));
+		assertEquals(doadorLido.buscaItem("cama", "madeira,solteiro").getId(), 3);
+		assertEquals(usuarios.next().exibeItem(4), receptor.exibeItem(4));
+		assertFalse(usuarios.hasNext());
+
+		assertEquals(lido.getDoacoes().toString(), doacoes.toString());
+		assertEquals(lido.getDoacoes().get(1).getId(), 1);
+		assertEquals(lido.getDescritores().toString(), "[5 - cama, 1 - sofá, 0 - mesa]");
+		assertEquals(lido.getIdItens(), 8);
+	}
+
+	@Test
+	void testArquivoInvalido() throws IOException {
+		byte[] bytes = grava(new EstadoDoSistema(new ArrayList<Usuario>(), new ArrayList<Doacao>(), Arrays.asList(new Descritor("cama", 5)), 1));
+
+		byte[] assinaturaErrada = bytes.clone();
+		assinaturaErrada[0] = 0;
+		assertThrows(IOException.class, () -> le(assinaturaErrada));
+
+		byte[] versaoFutura = bytes.clone();
+		versaoFutura[7] = (byte) (EstadoDoSistema.VERSAO + 1);
+		assertThrows(IOException.class, () -> le(versaoFutura));
+
+		byte[] corrompido = bytes.clone();
+		corrompido[bytes.length - 9] ^= 1;
+		assertThrows(IOException.class, () -> le(corrompido));
+
+		assertThrows(IOException.class, () -> le(Arrays.copyOf(bytes, bytes.length - 4)));
+	}
+
+	@Test
+	void testLeFormatoAntigoDosArquivosDoSistema() throws Exception {
+		EstadoDoSistema lido = EstadoDoSistema.leFormatoAntigo("arquivos_sistema");
+
+		assertEquals(lido.getUsuarios().size(), 31);
+		assertEquals(lido.getDescritores().size(), 21);
+		assertEquals(lido.getIdItens(), 34);
+
+		List<Doacao> doacoes = lido.getDoacoes();
+		assertEquals(doacoes.size(), 4);
+		assertEquals(doacoes.get(0).getId(), 0);
+		assertEquals(doacoes.get(0).toString(), "30/06/2013 - doador: Aramis Araujo/49847103331, item: jaqueta de couro, quantidade: 3, receptor: Antonella Sonia Moraes/32719454000103");
+		assertEquals(doacoes.get(3).getId(), 3);
+		assertEquals(doacoes.get(3).getQuantidade(), 7);
+		assertEquals(doacoes.get(3).getReceptor(), "Luiza Elisa Lopes/72859801000118");
+	}
+
+}
@@ -0,0 +1,106 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import eDoe.ArquivosDoSistema;
+import eDoe.Descritor;
+import eDoe.Doacao;
+import eDoe.EstadoDoSistema;
+import eDoe.GravadorDeCheckpoints;
+import eDoe.MetricasDeCheckpoint;
+import eDoe.Usuario;
+import util.Diario;
+
+class GravadorDeCheckpointsTest {
+
+	private File diretorio;
+	private ArquivosDoSistema arquivos;
+	private GravadorDeCheckpoints gravador;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		this.diretorio = Files.createTempDirectory("checkpoints").toFile();
+		this.arquivos = new ArquivosDoSistema(new File(this.diretorio, "sistema.edoe").getPath(), new File(this.diretorio, "diario.edoe").getPath());
+		this.gravador = new GravadorDeCheckpoints(this.arquivos);
+	}
+
+	@AfterEach
+	void tearDown() {
+		apaga(this.diretorio);
+	}
+
+	private void apaga(File arquivo) {
+		File[] filhos = arquivo.listFiles();
+		if (filhos != null) {
+			for (File filho : filhos) {
+				apaga(filho);
+			}
+		}
+		arquivo.delete();
+	}
+
+	private Diario diario(long geracao) throws IOException {
+		return Diario.abre(this.arquivos.caminhoDoDiario(geracao), geracao, Diario.NUNCA, 1000, campos -> {});
+	}
+
+	private EstadoDoSistema estado(long geracao, String... ids) {
+		ArrayList<Usuario> usuarios = new ArrayList<Usuario>();
+		for (String id : ids) {
+			usuarios.add(new Usuario(id, "Usuario " + id, "email", "9999-9999", "IGREJA", "doador"));
+		}
+		return new EstadoDoSistema(usuarios, new ArrayList<Doacao>(), new ArrayList<Descritor>(), 0, geracao, Collections.<String>emptyList());
+	}
+
+	@Test
+	void testGravaEmSegundoPlanoEApagaDiarios() throws Exception {
+		assertTrue(this.gravador.precisaDeBase());
+		this.gravador.grava(estado(1, "111", "222"), true, diario(1), 1000).get();
+		assertFalse(this.gravador.precisaDeBase());
+
+		Diario segundo = diario(2);
+		Diario terceiro = diario(3);
+		this.gravador.grava(estado(2, "333"), false, segundo, 2000);
+		this.gravador.aguarda();
+
+		assertEquals(this.arquivos.geracoesDosDiarios(), Arrays.asList(3L));
+		assertEquals(this.arquivos.le().getUsuarios().size(), 3);
+
+		MetricasDeCheckpoint metricas = this.gravador.getMetricas();
+		assertEquals(metricas.getConcluidos(), 2);
+		assertEquals(metricas.getFalhas(), 0);
+		assertEquals(metricas.getPendentes(), 0);
+		assertEquals(metricas.getDuracaoDaUltimaCaptura(), 2);
+		terceiro.close();
+	}
+
+	@Test
+	void testFalhaExigeBaseEGuardaDiarios() throws Exception {
+		this.gravador.grava(estado(1, "111"), true, diario(1), 0).get();
+		new File(this.diretorio, "sistema.edoe.2.delta").mkdir();
+
+		Diario terceiro = diario(3);
+		this.gravador.grava(estado(2, "222"), false, diario(2), 0);
+		this.gravador.grava(estado(3, "333"), false, terceiro, 0);
+		this.gravador.aguarda();
+
+		assertTrue(this.gravador.precisaDeBase());
+		assertEquals(this.gravador.getMetricas().getFalhas(), 2);
+		assertEquals(this.arquivos.geracoesDosDiarios(), Arrays.asList(2L, 3L));
+
+		this.gravador.grava(estado(3, "111", "222", "333"), true, diario(4), 0);
+		this.gravador.aguarda();
+		assertFalse(this.gravador.precisaDeBase());
+		assertEquals(this.arquivos.geracoesDosDiarios(), Arrays.asList(4L));
+		assertEquals(this.arquivos.le().getUsuarios().size(), 3);
+	}
+
+}
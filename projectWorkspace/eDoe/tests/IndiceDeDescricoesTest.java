@@ -0,0 +1,35 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import eDoe.Item;
+import util.IndiceDeDescricoes;
+
+class IndiceDeDescricoesTest {
+
+	@Test
+	void testBusca() {
+		IndiceDeDescricoes indice = new IndiceDeDescricoes();
+		indice.adiciona(new Item("cama elastica", 2, "pulavel", 0));
+		indice.adiciona(new Item("cama de casal", 1, "plus size", 1));
+		indice.adiciona(new Item("sofa", 1, "couro", 2));
+		indice.adiciona(new Item("cama de casal", 3, "madeira", 3));
+		
+		assertEquals(indice.busca("CAMA").toString(), "[1 - cama de casal, tags: [plus size], quantidade: 1, 3 - cama de casal, tags: [madeira], quantidade: 3, 0 - cama elastica, tags: [pulavel], quantidade: 2]");
+		assertEquals(indice.busca("a").size(), 4);
+		assertEquals(indice.busca("travesseiro").size(), 0);
+	}
+	
+	@Test
+	void testRemove() {
+		IndiceDeDescricoes indice = new IndiceDeDescricoes();
+		Item item = new Item("cama elastica", 2, "pulavel", 0);
+		indice.adiciona(item);
+		indice.adiciona(new Item("sofa", 1, "couro", 1));
+		indice.remove(item);
+		
+		assertEquals(indice.busca("elast").size(), 0);
+		assertEquals(indice.busca("ofa").size(), 1);
+	}
+
+}
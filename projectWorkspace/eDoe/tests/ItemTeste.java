@@ -3,6 +3,7 @@ import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.Test;
 
 import eDoe.Item;
+import util.DicionarioDeTags;
 
 class ItemTeste {
 	
@@ -84,6 +85,37 @@ class ItemTeste {
 		assertEquals(i1.compareTo(i2), -6);
 	}
 	
+	@Test
+	void testPontosDeMatchDasTags() {
+		DicionarioDeTags dicionario = new DicionarioDeTags();
+		Item necessario = new Item("cama", 1, "plus size, madeira,chique,resistente", 0, dicionario);
+		Item candidato = new Item("cama", 1, "plus size, madeira", 1, dicionario);
+		assertEquals(necessario.pontosDeMatchDasTags(candidato), 20);
+		
+		candidato.setTags("Plus Size,chique");
+		assertEquals(necessario.pontosDeMatchDasTags(candidato), 10);
+		
+		candidato.setTags("pulavel");
+		assertEquals(necessario.pontosDeMatchDasTags(candidato), 0);
+	}
+	
+	@Test
+	void testUsaDicionarioDeTags() {
+		Item necessario = new Item("cama", 1, "plus size, madeira,chique", 0);
+		Item candidato = new Item("cama", 1, "plus size, madeira", 1);
+		DicionarioDeTags dicionario = new DicionarioDeTags();
+		necessario.usaDicionarioDeTags(dicionario);
+		candidato.usaDicionarioDeTags(dicionario);
+		assertEquals(necessario.pontosDeMatchDasTags(candidato), 20);
+		assertEquals(dicionario.tamanho(), 3);
+	}
+	
+	@Test
+	void testToStringComTagsVazias() {
+		Item i = new Item("calca jeans", 3, "", 11);
+		assertEquals(i.toString(), "11 - calca jeans, tags: [], quantidade: 3");
+	}
+	
 	@Test
 	void testHashCode() {
 		Item i = new Item("armario", 1, "4 portas", 9);
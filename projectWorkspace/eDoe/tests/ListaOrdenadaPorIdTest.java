@@ -0,0 +1,38 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import util.ListaOrdenadaPorId;
+
+class ListaOrdenadaPorIdTest {
+
+	@Test
+	void testAdicionaForaDeOrdem() {
+		ListaOrdenadaPorId<String> lista = new ListaOrdenadaPorId<>();
+		for (int i = 40; i >= 0; i -= 2) {
+			lista.adiciona(i, "item " + i);
+		}
+		lista.adiciona(7, "item 7");
+		lista.adiciona(7, "item sete");
+		
+		assertEquals(lista.tamanho(), 22);
+		assertEquals(lista.idNaPosicao(0), 0);
+		assertEquals(lista.valorNaPosicao(4), "item sete");
+		assertEquals(lista.idNaPosicao(21), 40);
+	}
+	
+	@Test
+	void testRemove() {
+		ListaOrdenadaPorId<String> lista = new ListaOrdenadaPorId<>();
+		lista.adiciona(1, "um");
+		lista.adiciona(2, "dois");
+		lista.adiciona(3, "tres");
+		lista.remove(2);
+		lista.remove(5);
+		
+		assertEquals(lista.tamanho(), 2);
+		assertEquals(lista.valorNaPosicao(1), "tres");
+		assertEquals(lista.posicaoDe(2), 1);
+	}
+
+}
@@ -0,0 +1,49 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import eDoe.Doacao;
+import eDoe.RegistroDeDoacoes;
+
+class RegistroDeDoacoesTest {
+
+	private static List<Long> ids(Iterable<Doacao> doacoes) {
+		List<Long> ids = new ArrayList<>();
+		for (Doacao doacao : doacoes) {
+			ids.add(doacao.getId());
+		}
+		return ids;
+	}
+
+	@Test
+	void testRetratoIgnoraIdsReservadosAindaNaoRegistrados() {
+		RegistroDeDoacoes registro = new RegistroDeDoacoes();
+		long primeiro = registro.reservaIds(2);
+		registro.registra(primeiro + 1, "02/01/2019", "cama", "Gustavo/111", "Daniel/222", 1);
+
+		Iterable<Doacao> retrato = registro.retrato();
+		registro.registra(primeiro, "01/01/2019", "cama", "Gustavo/111", "Daniel/222", 1);
+
+		assertEquals(ids(retrato).toString(), "[1]");
+		assertEquals(ids(registro.retrato()).toString(), "[0, 1]");
+	}
+
+	@Test
+	void testRetratoNaoIncluiRegistrosPosteriores() {
+		RegistroDeDoacoes registro = new RegistroDeDoacoes();
+		registro.registra("05/01/2019", "mesa", "Gustavo/111", "Daniel/222", 2);
+		registro.registra("03/01/2019", "cama", "Gustavo/111", "Daniel/222", 1);
+
+		Iterable<Doacao> retrato = registro.retrato();
+		registro.registra("01/01/2019", "sofa", "Gustavo/111", "Daniel/222", 1);
+		registro.registra("04/01/2019", "armario", "Gustavo/111", "Daniel/222", 1);
+
+		assertEquals(ids(retrato).toString(), "[1, 0]");
+		assertEquals(ids(retrato).toString(), "[1, 0]");
+		assertEquals(ids(registro.retrato()).toString(), "[2, 1, 3, 0]");
+	}
+
+}
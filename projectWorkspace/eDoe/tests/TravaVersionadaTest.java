@@ -0,0 +1,73 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import util.RetratoVersionado;
+import util.TravaVersionada;
+
+class TravaVersionadaTest {
+
+	@Test
+	void testEscritaMudaAVersao() {
+		TravaVersionada trava = new TravaVersionada();
+		long antes = trava.versao();
+
+		trava.leitura().lock();
+		trava.leitura().unlock();
+		assertEquals(trava.versao(), antes);
+
+		trava.escrita().lock();
+		trava.escrita().unlock();
+		assertNotEquals(trava.versao(), antes);
+	}
+
+	@Test
+	void testEscritaReentrante() {
+		TravaVersionada trava = new TravaVersionada();
+
+		trava.escrita().lock();
+		trava.escrita().lock();
+		trava.escrita().unlock();
+		trava.escrita().unlock();
+
+		assertTrue(trava.escrita().tryLock());
+		trava.escrita().unlock();
+		assertThrows(IllegalMonitorStateException.class, () -> trava.escrita().unlock());
+	}
+
+	@Test
+	void testRetratoReaproveitadoAteUmaEscrita() {
+		TravaVersionada trava = new TravaVersionada();
+		AtomicInteger retratos = new AtomicInteger();
+		RetratoVersionado<String> retrato = new RetratoVersionado<String>(trava, () -> "retrato " + retratos.incrementAndGet());
+
+		assertEquals(retrato.atual(), "retrato 1");
+		assertEquals(retrato.atual(), "retrato 1");
+
+		trava.escrita().lock();
+		trava.escrita().unlock();
+
+		assertEquals(retrato.atual(), "retrato 2");
+		assertEquals(retratos.get(), 2);
+	}
+
+	@Test
+	void testRetratoDoEscritorNaoEGuardado() {
+		TravaVersionada trava = new TravaVersionada();
+		AtomicInteger retratos = new AtomicInteger();
+		RetratoVersionado<String> retrato = new RetratoVersionado<String>(trava, () -> "retrato " + retratos.incrementAndGet());
+
+		trava.escrita().lock();
+		try {
+			assertEquals(retrato.atual(), "retrato 1");
+			assertEquals(retrato.atual(), "retrato 2");
+		} finally {
+			trava.escrita().unlock();
+		}
+		assertEquals(retrato.atual(), "retrato 3");
+		assertEquals(retrato.atual(), "retrato 3");
+	}
+
+}
@@ -30,6 +30,23 @@ class UsuarioTest {
 		
 	}
 	
+	@Test
+	void testBuscaItem() {
+		Usuario u = new Usuario("999", "Lucas Leal", "lucas.lucena@ccc.ufcg.edu.br", "2345-6780", "PESSOA_FISICA", "doador");
+		u.adicionaItem("bola de volei", 2, "bola branca", 1);
+		u.adicionaItem("bola de volei", 1, "bola azul", 2);
+		
+		assertEquals(u.buscaItem("Bola de Volei", "bola azul").getId(), 2);
+		assertNull(u.buscaItem("bola de volei", "bola verde"));
+		
+		u.mudaTagsDoItem(2, "bola verde");
+		assertNull(u.buscaItem("bola de volei", "bola azul"));
+		assertEquals(u.buscaItem("bola de volei", "bola verde").getId(), 2);
+		
+		u.removeItem(2);
+		assertNull(u.buscaItem("bola de volei", "bola verde"));
+	}
+	
 	@Test
 	void testToString() {
 		Usuario u = new Usuario("100", "Daniel", "daniel.figueredo@ccc.ufcg.edu.br", "1010-2222", "doador", "PESSOA_FISICA");